@@ -0,0 +1,204 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Scagnostics at the finest resolution that still meets a target latency. The CostModel gives the largest
+ * number of binned points that computes within the target, and that becomes the maxBins of the Binner, so
+ * binHex keeps numBins where a plot has few points and coarsens it by 2/3 steps where it has many.
+ * Each compute is fed back into the model. Not thread safe; threads can share one CostModel.
+ */
+public class AdaptiveScagnostics {
+    private static final int MIN_POINTS = 20;
+    private CostModel model;
+    private double targetMillis;
+    private int numBins, maxBins;
+    private Binner binner;
+    private boolean learning = true;
+    private long timeLimit;
+    private int lastNumBins, lastPoints;
+    private double lastPredicted;
+    private ComputeStats lastStats;
+
+    // numBins and maxBins bound the resolution from above; a targetMillis of 0 always uses them
+    public AdaptiveScagnostics(CostModel model, double targetMillis, int numBins, int maxBins) {
+        this.model = model;
+        this.targetMillis = targetMillis;
+        this.numBins = numBins;
+        this.maxBins = maxBins;
+        this.binner = new Binner(maxBins);
+    }
+
+    // whether computed plots are added to the model, true by default
+    public void setLearning(boolean learning) {
+        this.learning = learning;
+    }
+
+    /*
+     * Hard limit as in Scagnostics.setTimeLimit. A plot that runs out of time is binned again to 4/9 of its
+     * points, one 2/3 step of numBins, and computed once more without a limit.
+     */
+    public void setTimeLimit(long millis) {
+        timeLimit = millis;
+    }
+
+    // the number of binned points allowed by the target
+    public int getPointBudget() {
+        if (targetMillis <= 0)
+            return maxBins;
+        return Math.max(MIN_POINTS, Math.min(maxBins, model.maxPoints(targetMillis)));
+    }
+
+    // x and y normalized to [0, 1], as for Scagnostics
+    public double[] compute(double[] x, double[] y) {
+        return compute(x, y, binner.assignCells(x, y, numBins));
+    }
+
+    // the pair x = column xCol, y = column yCol of columns
+    public double[] compute(ColumnCache columns, int xCol, int yCol) {
+        return compute(columns.getColumn(xCol), columns.getColumn(yCol), columns.getCells(xCol, yCol, numBins));
+    }
+
+    private double[] compute(double[] x, double[] y, int[] cells) {
+        binner.setMaxBins(getPointBudget());
+        BinnedData bdata = binner.binCells(x, y, cells, null, numBins, 3);
+        Scagnostics s = start(bdata);
+        s.setTimeLimit(timeLimit);
+        try {
+            return finish(s, s.compute());
+        } catch (ScagnosticsTimeoutException e) {
+            binner.setMaxBins(Math.max(MIN_POINTS, 4 * lastPoints / 9));
+            s = start(binner.binCells(x, y, cells, null, numBins, 3));
+            return finish(s, s.compute());
+        }
+    }
+
+    private Scagnostics start(BinnedData bdata) {
+        lastNumBins = binner.getLastNumBins();
+        lastPoints = bdata.getXData().length;
+        lastPredicted = model.predict(lastPoints);
+        return new Scagnostics(bdata);
+    }
+
+    private double[] finish(Scagnostics s, double[] result) {
+        lastStats = s.getStats();
+        if (learning)
+            model.add(lastStats);
+        return result;
+    }
+
+    // numBins the last plot was binned at
+    public int getLastNumBins() {
+        return lastNumBins;
+    }
+
+    public int getLastPoints() {
+        return lastPoints;
+    }
+
+    // milliseconds the model predicted for the last plot
+    public double getLastPredicted() {
+        return lastPredicted;
+    }
+
+    public ComputeStats getLastStats() {
+        return lastStats;
+    }
+
+    /*
+     * AdaptiveScagnostics <data.csv> [-target ms] [-model file] [-train] [-bins numBins] [-maxBins maxBins]
+     *                     [-sigmas s] [-timeLimit ms]
+     * Computes every pair as Main does and prints the numBins, binned points, predicted and actual ms of each.
+     * The model is read from -model, or trained on PlotGenerator plots if the file does not exist or with
+     * -train, and written back with the plots of this run added.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 1) {
+            System.out.println("usage: AdaptiveScagnostics <data.csv> [-target ms] [-model file] [-train]"
+                    + " [-bins numBins] [-maxBins maxBins] [-sigmas s] [-timeLimit ms]");
+            return;
+        }
+        double target = 0;
+        File modelFile = null;
+        boolean train = false;
+        int numBins = 50;
+        int maxBins = 1000;
+        double sigmas = 2;
+        long timeLimit = 0;
+        for (int i = 1; i < argv.length; i++) {
+            if (argv[i].equals("-train")) {
+                train = true;
+                continue;
+            }
+            if (i + 1 == argv.length)
+                throw new IllegalArgumentException("Missing value of " + argv[i]);
+            String value = argv[++i];
+            switch (argv[i - 1]) {
+                case "-target": target = Double.parseDouble(value); break;
+                case "-model": modelFile = new File(value); break;
+                case "-bins": numBins = Integer.parseInt(value); break;
+                case "-maxBins": maxBins = Integer.parseInt(value); break;
+                case "-sigmas": sigmas = Double.parseDouble(value); break;
+                case "-timeLimit": timeLimit = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i - 1]);
+            }
+        }
+        CostModel model;
+        if (modelFile != null && modelFile.exists() && !train) {
+            model = CostModel.load(modelFile);
+        } else {
+            long t0 = System.currentTimeMillis();
+            model = CostModel.train(new int[]{300, 1000, 5000}, new int[]{10, 25, 50}, Math.max(maxBins, 1500), 1);
+            System.out.println("trained on " + model.getSamples() + " plots in " + (System.currentTimeMillis() - t0)
+                    + " ms");
+        }
+        model.setSigmas(sigmas);
+        System.out.println(model);
+
+        double[][] columns = Main.getData(new File(argv[0]));
+        if (columns == null)
+            return;
+        ColumnCache cache = new ColumnCache(columns);
+        AdaptiveScagnostics adaptive = new AdaptiveScagnostics(model, target, numBins, maxBins);
+        adaptive.setTimeLimit(timeLimit);
+        System.out.println("point budget " + adaptive.getPointBudget());
+        System.out.println("x,y,numBins,points,predicted ms,ms," + String.join(",", Scagnostics.getScagnosticsLabels()));
+        for (int i = 1; i < columns.length; i++) {
+            for (int j = 0; j < i; j++) {
+                long t0 = System.nanoTime();
+                double[] s = adaptive.compute(cache, j, i);
+                StringBuilder sb = new StringBuilder("V" + (j + 1) + ",V" + (i + 1));
+                sb.append(',').append(adaptive.getLastNumBins()).append(',').append(adaptive.getLastPoints())
+                        .append(',').append(String.format("%.2f", adaptive.getLastPredicted()))
+                        .append(',').append(String.format("%.2f", (System.nanoTime() - t0) / 1e6));
+                for (int m = 0; m < Scagnostics.getNumScagnostics(); m++)
+                    sb.append(',').append(s == null ? Double.NaN : s[m]);
+                System.out.println(sb);
+            }
+        }
+        if (modelFile != null)
+            model.save(modelFile);
+    }
+}
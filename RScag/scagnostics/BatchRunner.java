@@ -0,0 +1,443 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * All-pairs scagnostics of a table written straight into a ResultStore by a pool of workers.
+ * By default the pairs are computed in decreasing order of their estimated cost, so the most expensive
+ * ones start first and no long pair is left running alone at the end; otherwise workers take blocks of
+ * consecutive pairs. Pairs already stored are skipped, so an interrupted run continues where it
+ * stopped when the same store is passed again.
+ */
+public class BatchRunner {
+    private static final int BLOCK = 64;
+    private static final int FALLBACKS = 2;
+    private static final int SAMPLE = 4096;       // rows looked at per pair for the cost estimate
+    private static final double COST_EXPONENT = 1.6;   // compute time ~ points^1.6, as fitted by CostModel
+    private ColumnCache columns;
+    private int numBins, maxBins;
+    private Variant variant;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private ScagnosticsCache cache;
+    private long timeLimit;
+    private final AtomicLong partial = new AtomicLong();
+    private boolean costOrder = true;
+    private CostModel costModel;
+    private PlotCapture capture;
+
+    // the columns are normalized in place, as in Main
+    public BatchRunner(double[][] columns, int numBins, int maxBins, Variant variant) {
+        this(new ColumnCache(columns), numBins, maxBins, variant);
+    }
+
+    // pairs are computed from the columns of cache, which need only be loaded for the pairs run
+    public BatchRunner(ColumnCache columns, int numBins, int maxBins, Variant variant) {
+        this.columns = columns;
+        this.numBins = numBins;
+        this.maxBins = maxBins;
+        this.variant = variant;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    // RScag pairs are then binned with a fixed seed and looked up in cache before their geometry is built
+    public void setCache(ScagnosticsCache cache) {
+        this.cache = cache;
+    }
+
+    /*
+     * Time limit of one RScag pair. A pair that runs out of time is computed again at numBins * 2 / 3, and once
+     * more at 2 / 3 of that, and stored as PARTIAL, so no pair takes much longer than three times the limit.
+     * 0, the default, sets no limit. Scag-05 and Scag-06 are not limited.
+     */
+    public void setTimeLimit(long millis) {
+        timeLimit = millis;
+    }
+
+    // whether pairs are computed in decreasing order of estimated cost (the default) or in store order
+    public void setCostOrder(boolean costOrder) {
+        this.costOrder = costOrder;
+    }
+
+    // estimates costs with model instead of a fixed power of the estimated binned points
+    public void setCostModel(CostModel model) {
+        this.costModel = model;
+    }
+
+    // bins every pair with a seed from capture and offers it to capture with its time, including timed out ones
+    public void setCapture(PlotCapture capture) {
+        this.capture = capture;
+    }
+
+    // pairs stored as PARTIAL by this runner
+    public long getPartial() {
+        return partial.get();
+    }
+
+    public ResultStore create(File file, String[] labels) throws IOException {
+        return ResultStore.create(file, labels, numBins, maxBins, variant);
+    }
+
+    // fills the EMPTY pairs of store, returns how many were computed
+    public long run(final ResultStore store) {
+        checkDimension(store);
+        final long numPairs = store.getNumPairs();
+        if (costOrder && numPairs <= Integer.MAX_VALUE)
+            return run(store, 0, columns.getNumColumns(), 0, columns.getNumColumns());
+        final AtomicLong next = new AtomicLong();
+        final AtomicLong computed = new AtomicLong();
+        if (cache != null)
+            cache.setTimeLimit(timeLimit);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            runOnPool(pool, new Runnable() {
+                public void run() {
+                    Binner binner = new Binner(maxBins);
+                    long from;
+                    while ((from = next.getAndAdd(BLOCK)) < numPairs) {
+                        long to = Math.min(numPairs, from + BLOCK);
+                        int[] ij = ResultStore.pair(from);
+                        for (long k = from; k < to; k++) {
+                            if (store.getStatus(k) == ResultStore.EMPTY) {
+                                put(store, k, binner, ij[0], ij[1]);
+                                computed.incrementAndGet();
+                            }
+                            if (++ij[1] == ij[0]) {
+                                ij[0]++;
+                                ij[1] = 0;
+                            }
+                        }
+                    }
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        store.flush();
+        return computed.get();
+    }
+
+    /*
+     * Fills the EMPTY pairs (i, j), j < i, with i in [iFrom, iTo) and j in [jFrom, jTo), one tile of
+     * TiledRunner; only the columns of the tile need to be loaded. Returns how many were computed.
+     */
+    public long run(final ResultStore store, int iFrom, int iTo, int jFrom, int jTo) {
+        checkDimension(store);
+        final long[] pairs = tile(store, iFrom, iTo, jFrom, jTo);
+        final AtomicInteger next = new AtomicInteger();
+        if (cache != null)
+            cache.setTimeLimit(timeLimit);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            if (costOrder)
+                order(pool, pairs);
+            runOnPool(pool, new Runnable() {
+                public void run() {
+                    Binner binner = new Binner(maxBins);
+                    int t;
+                    while ((t = next.getAndIncrement()) < pairs.length) {
+                        int[] ij = ResultStore.pair(pairs[t]);
+                        put(store, pairs[t], binner, ij[0], ij[1]);
+                    }
+                }
+            });
+        } finally {
+            pool.shutdown();
+        }
+        store.flush();
+        return pairs.length;
+    }
+
+    private void checkDimension(ResultStore store) {
+        if (store.getDimension() != columns.getNumColumns())
+            throw new IllegalArgumentException("store has " + store.getDimension() + " columns, table "
+                    + columns.getNumColumns());
+    }
+
+    // the EMPTY pairs of a tile, in store order
+    private static long[] tile(ResultStore store, int iFrom, int iTo, int jFrom, int jTo) {
+        long size = 0;
+        for (int i = iFrom; i < iTo; i++)
+            size += Math.max(0, Math.min(i, jTo) - jFrom);
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("tile of " + size + " pairs");
+        long[] pairs = new long[(int) size];
+        int n = 0;
+        for (int i = Math.max(iFrom, 1); i < iTo; i++) {
+            for (int j = jFrom; j < Math.min(i, jTo); j++) {
+                long k = ResultStore.pairIndex(i, j);
+                if (store.getStatus(k) == ResultStore.EMPTY)
+                    pairs[n++] = k;
+            }
+        }
+        return n == pairs.length ? pairs : Arrays.copyOf(pairs, n);
+    }
+
+    /*
+     * Sorts pairs by decreasing estimated cost. The costs are estimated on the pool and sorted as the float
+     * bits of the cost in the high and the position in pairs in the low 32 bits of a long.
+     */
+    private void order(ExecutorService pool, final long[] pairs) {
+        final long[] keys = new long[pairs.length];
+        final AtomicInteger next = new AtomicInteger();
+        runOnPool(pool, new Runnable() {
+            public void run() {
+                int[] histogram = new int[4 * numBins * numBins];
+                int[] touched = new int[SAMPLE + 1];
+                int from;
+                while ((from = next.getAndAdd(BLOCK)) < pairs.length) {
+                    int to = Math.min(pairs.length, from + BLOCK);
+                    for (int t = from; t < to; t++) {
+                        int[] ij = ResultStore.pair(pairs[t]);
+                        float cost = (float) estimate(ij[0], ij[1], histogram, touched);
+                        keys[t] = (long) Float.floatToIntBits(cost) << 32 | t;
+                    }
+                }
+            }
+        });
+        Arrays.parallelSort(keys);
+        long[] sorted = new long[pairs.length];
+        for (int t = 0; t < keys.length; t++)
+            sorted[t] = pairs[(int) keys[keys.length - 1 - t]];
+        System.arraycopy(sorted, 0, pairs, 0, pairs.length);
+    }
+
+    /*
+     * Estimated cost of the pair (i, j). The occupancy histogram of a sample of rows on the grid of numBins
+     * gives the points binHex would keep, as in Binner.select; above maxBins the grid is coarsened as in
+     * Binner.binCells.
+     */
+    private double estimate(int i, int j, int[] histogram, int[] touched) {
+        int step = Math.max(1, (columns.getColumn(j).length + SAMPLE - 1) / SAMPLE);
+        int bins = numBins;
+        int scale = 3;
+        double points = 0;
+        while (bins > 0) {
+            int[] cx = columns.getIndices(j, bins);
+            int[] cy = columns.getIndices(i, bins);
+            int cells = 0;
+            for (int r = 0; r < cx.length; r += step) {
+                int c = Binner.combineCell(cx[r], cy[r], 2 * bins);
+                if (c >= 0 && histogram[c]++ == 0)
+                    touched[cells++] = c;
+            }
+            int kept = 0;
+            for (int t = 0; t < cells; t++)
+                kept += Math.max(1, histogram[touched[t]] * step / scale);
+            // binCells also leaves the count of every occupied cell from index kept on as a point at (0, 0);
+            // counted on purpose to match Binner.binCells, the one site to change if that is ever fixed
+            points = kept;
+            for (int t = 0; t < cells; t++) {
+                if (touched[t] >= kept)
+                    points++;
+                histogram[touched[t]] = 0;
+            }
+            if (points <= maxBins)
+                break;
+            bins = 2 * bins / 3;
+            scale = (int) (1.5 * scale);
+        }
+        if (costModel != null)
+            return costModel.predict(Math.max(3, (int) points));
+        return Math.pow(points, COST_EXPONENT);
+    }
+
+    // runs task on every thread of pool and waits for all of them
+    private void runOnPool(ExecutorService pool, Runnable task) {
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int t = 0; t < threads; t++)
+            futures.add(pool.submit(task));
+        try {
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void put(ResultStore store, long k, Binner binner, int i, int j) {
+        if (timeLimit <= 0 || variant != Variant.RSCAG) {
+            store.put(k, compute(binner, i, j, numBins));
+            return;
+        }
+        int bins = numBins;
+        for (int attempt = 0; attempt <= FALLBACKS; attempt++, bins = 2 * bins / 3) {
+            try {
+                double[] result = compute(binner, i, j, bins);
+                if (attempt == 0) {
+                    store.put(k, result);
+                } else {
+                    store.putPartial(k, result, bins);
+                    partial.incrementAndGet();
+                }
+                return;
+            } catch (ScagnosticsTimeoutException e) {
+                // try a coarser grid
+            }
+        }
+        store.putPartial(k, null, 0);
+        partial.incrementAndGet();
+    }
+
+    // the pair (i, j), j < i, with x = column j and y = column i as in Main
+    private double[] compute(Binner binner, int i, int j, int bins) {
+        if (capture == null)
+            return computePair(binner, i, j, bins);
+        long seed = cache != null && variant == Variant.RSCAG ? ScagnosticsCache.SEED : capture.nextSeed();
+        binner.setSeed(seed);
+        boolean timedOut = false;
+        long start = System.nanoTime();
+        try {
+            return computePair(binner, i, j, bins);
+        } catch (ScagnosticsTimeoutException e) {
+            timedOut = true;
+            throw e;
+        } finally {
+            capture.offer(j + ":" + i, columns.getColumn(j), columns.getColumn(i), variant, bins, maxBins, seed,
+                    cache != null && variant == Variant.RSCAG, System.nanoTime() - start, timedOut);
+        }
+    }
+
+    private double[] computePair(Binner binner, int i, int j, int bins) {
+        double[] x = columns.getColumn(j);
+        double[] y = columns.getColumn(i);
+        if (variant == Variant.RSCAG && cache != null)
+            return cache.compute(x, y, columns.getCells(j, i, bins), bins, maxBins);
+        if (variant == Variant.RSCAG) {
+            Scagnostics s = new Scagnostics(columns.bin(binner, j, i, bins));
+            s.setTimeLimit(timeLimit);
+            return s.compute();
+        }
+        return new MultiScagnostics(x, y, bins, maxBins).compute(variant);
+    }
+
+    private static boolean parseOrder(String order) {
+        if (!order.equals("cost") && !order.equals("store"))
+            throw new IllegalArgumentException("Unknown order " + order + ", expected cost or store");
+        return order.equals("cost");
+    }
+
+    /*
+     * BatchRunner <data.csv> <store> [-bins numBins] [-maxBins maxBins] [-variant RScag|Scag-05|Scag-06] [-threads n]
+     *             [-cache directory] [-cacheSize entries] [-timeLimit ms] [-order cost|store] [-model file]
+     *             [-capture file] [-captureOver ms]
+     * Pairs that take longer than -captureOver ms (1000 by default) are appended to the -capture file.
+     * The data file is read as by Main (one column per field, no header); columns are labelled V1, V2, ...
+     * An existing store is resumed; one written with other settings is refused, never replaced.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 2) {
+            System.out.println("usage: BatchRunner <data.csv> <store> [-bins numBins] [-maxBins maxBins]"
+                    + " [-variant RScag|Scag-05|Scag-06] [-threads n] [-cache directory] [-cacheSize entries]"
+                    + " [-timeLimit ms] [-order cost|store] [-model file] [-capture file] [-captureOver ms]");
+            return;
+        }
+        int numBins = 50;
+        int maxBins = 1000;
+        Variant variant = Variant.RSCAG;
+        int threads = Runtime.getRuntime().availableProcessors();
+        File cacheDir = null;
+        int cacheSize = 100000;
+        long timeLimit = 0;
+        boolean costOrder = true;
+        File modelFile = null;
+        File captureFile = null;
+        long captureOver = 1000;
+        for (int i = 2; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-bins": numBins = Integer.parseInt(value); break;
+                case "-maxBins": maxBins = Integer.parseInt(value); break;
+                case "-variant": variant = Variant.forLabel(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                case "-cache": cacheDir = new File(value); break;
+                case "-cacheSize": cacheSize = Integer.parseInt(value); break;
+                case "-timeLimit": timeLimit = Long.parseLong(value); break;
+                case "-order": costOrder = parseOrder(value); break;
+                case "-model": modelFile = new File(value); break;
+                case "-capture": captureFile = new File(value); break;
+                case "-captureOver": captureOver = Long.parseLong(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        double[][] columns = Main.getData(new File(argv[0]));
+        if (columns == null)
+            return;
+        BatchRunner runner = new BatchRunner(columns, numBins, maxBins, variant);
+        runner.setThreads(threads);
+        runner.setTimeLimit(timeLimit);
+        runner.setCostOrder(costOrder);
+        if (modelFile != null)
+            runner.setCostModel(CostModel.load(modelFile));
+        ScagnosticsCache cache = null;
+        if (cacheDir != null) {
+            cache = new ScagnosticsCache(cacheSize);
+            cache.setDirectory(cacheDir);
+            runner.setCache(cache);
+        }
+        PlotCapture capture = null;
+        if (captureFile != null) {
+            capture = new PlotCapture(captureFile, captureOver);
+            runner.setCapture(capture);
+        }
+
+        File file = new File(argv[1]);
+        ResultStore store = ResultStore.resume(file, columns.length, numBins, maxBins, variant);
+        if (store == null) {
+            String[] labels = new String[columns.length];
+            for (int i = 0; i < labels.length; i++)
+                labels[i] = "V" + (i + 1);
+            store = runner.create(file, labels);
+        }
+        long t0 = System.currentTimeMillis();
+        long computed = runner.run(store);
+        System.out.println(computed + " of " + store.getNumPairs() + " pairs computed in "
+                + (System.currentTimeMillis() - t0) + " ms");
+        if (runner.getPartial() > 0)
+            System.out.println(runner.getPartial() + " pairs ran out of time and are stored as PARTIAL");
+        if (cache != null)
+            System.out.println("cache: " + cache.getHits() + " hits, " + cache.getDiskHits() + " from disk, "
+                    + cache.getMisses() + " computed");
+        if (capture != null) {
+            System.out.println(capture.getCaptured() + " plots over " + captureOver + " ms captured in " + captureFile);
+            capture.close();
+        }
+        store.close();
+    }
+}
@@ -0,0 +1,102 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+/*
+ * Bin pyramid for numBins sweeps. Each axis is cut into the grid of the largest numBins once;
+ * the cells of a coarser numBins are derived from those indices, and only points in fine
+ * columns that straddle a coarse boundary look at their coordinates again. Only this index
+ * computation is shared between levels: every level still runs Binner.binCells over all the
+ * points, O(n) per level, because the grids of a ladder do not nest and the representatives
+ * of a cell are drawn from its members, so a level is not the sum of the finer one's cells.
+ */
+public class BinPyramid {
+    private double[] x, y;
+    private int maxNumBins;
+    private int[] fx, fy;     // Binner.axisIndex on the finest grid
+    private Binner binner;
+
+    // x and y must be normalized to [0, 1] as for Scagnostics
+    public BinPyramid(double[] x, double[] y, int maxNumBins, int maxBins) {
+        this.x = x;
+        this.y = y;
+        this.maxNumBins = maxNumBins;
+        binner = new Binner(maxBins);
+        int mBins = 2 * maxNumBins;
+        fx = new int[x.length];
+        fy = new int[y.length];
+        for (int i = 0; i < x.length; i++) {
+            fx[i] = Binner.axisIndex(x[i], mBins);
+            fy[i] = Binner.axisIndex(y[i], mBins);
+        }
+    }
+
+    public void setSeed(long seed) {
+        binner.setSeed(seed);
+    }
+
+    // same cells as Binner.assignCells(x, y, numBins)
+    public int[] getCells(int numBins) {
+        if (numBins > maxNumBins || numBins < 1)
+            throw new IllegalArgumentException("numBins must be in [1, " + maxNumBins + "]");
+        int mBins = 2 * numBins;
+        return Binner.combineCells(coarsen(fx, x, mBins), coarsen(fy, y, mBins), numBins);
+    }
+
+    public BinnedData bin(int numBins) {
+        return binner.binCells(x, y, getCells(numBins), null, numBins, 3);
+    }
+
+    // RScag scagnostics at every resolution of the ladder, null where a plot is degenerate
+    public double[][] compute(int[] numBins) {
+        double[][] results = new double[numBins.length][];
+        for (int k = 0; k < numBins.length; k++)
+            results[k] = new Scagnostics(bin(numBins[k])).compute();
+        return results;
+    }
+
+    private int[] coarsen(int[] fine, double[] v, int mBins) {
+        int fBins = 2 * maxNumBins;
+        if (mBins == fBins)
+            return fine;
+        // coarse column of every fine column, -1 where it straddles or touches a coarse edge,
+        // since x * mBins may round across that edge differently from x * fBins
+        int[] map = new int[fBins + 1];
+        for (int i = 0; i <= fBins; i++) {
+            long lo = (long) i * mBins;
+            long hi = (long) (i + 1) * mBins;
+            boolean inside = lo / fBins == (hi - 1) / fBins && (i == 0 || lo % fBins != 0) && hi % fBins != 0;
+            map[i] = inside ? (int) (lo / fBins) : -1;
+        }
+        int[] coarse = new int[fine.length];
+        for (int i = 0; i < fine.length; i++) {
+            int f = fine[i];
+            if (f < 0)
+                coarse[i] = f;
+            else if (map[f] >= 0)
+                coarse[i] = map[f];
+            else
+                coarse[i] = (int) Math.floor(v[i] * mBins);
+        }
+        return coarse;
+    }
+}
@@ -21,167 +21,365 @@
  */
 package RScag.scagnostics;
 
-import java.lang.reflect.Array;
 import java.util.Arrays;
-import java.util.Vector;
+import java.util.Random;
 
 public class Binner {
     private int maxBins;
+    private Random random = new Random();
+    private double[] count, xbin, ybin;
+    private int[] start, next, members, keptRows, keptCells;
+    private boolean[] taken;
+    private boolean canonical;
+    private int lastNumBins;
 
     public Binner(int maxBins) {
         this.maxBins = maxBins;
     }
 
+    public Binner(int maxBins, long seed) {
+        this.maxBins = maxBins;
+        random.setSeed(seed);
+    }
+
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    public void setMaxBins(int maxBins) {
+        this.maxBins = maxBins;
+    }
+
+    // numBins of the last binCells, after any coarsening to maxBins
+    public int getLastNumBins() {
+        return lastNumBins;
+    }
+
+    // reseeds the subsampling of crowded bins
+    public void setSeed(long seed) {
+        random.setSeed(seed);
+    }
+
+    /*
+     * Orders the points of every bin by x, then y, before the crowded bins are subsampled. With a seed,
+     * the same points in any row order then give the same BinnedData, which is what ScagnosticsCache keys on.
+     */
+    public void setCanonical(boolean canonical) {
+        this.canonical = canonical;
+    }
+
     public final BinnedData binHex(double[] x, double[] y, int nBins, int scale) {
+        return binCells(x, y, assignCells(x, y, nBins), null, nBins, scale);
+    }
 
-        int n = x.length;
+    static final int MISSING = -1, ONE = -2;
+
+    // column of v on a grid of mBins columns, MISSING for NaN and ONE for a value of 1
+    static int axisIndex(double v, int mBins) {
+        if (Double.isNaN(v))
+            return MISSING;
+        return v == 1 ? ONE : (int) Math.floor(v * mBins);
+    }
+
+    // the cells of assignCells from the axis indices of x and y
+    static int[] combineCells(int[] cx, int[] cy, int nBins) {
+        int mBins = nBins*2;
+        int[] cells = new int[cx.length];
+        for (int i = 0; i < cells.length; i++)
+            cells[i] = combineCell(cx[i], cy[i], mBins);
+        return cells;
+    }
 
+    // the cell of one point on a grid of mBins x mBins, -1 if either index is MISSING
+    static int combineCell(int cx, int cy, int mBins) {
+        if (cx == MISSING || cy == MISSING)
+            return -1;
+        if (cx == ONE)
+            return cy == ONE ? mBins * mBins - 1 : mBins * (cy + 1) - 1;
+        if (cy == ONE)
+            return mBins * (cx + 1) - 1;   // row and column swapped on y == 1, as below
+        return cy * mBins + cx;
+    }
+
+    // cell of every point on the (2 * nBins) x (2 * nBins) grid, -1 for missing values
+    public final int[] assignCells(double[] x, double[] y, int nBins) {
+        int n = x.length;
         int mBins = nBins*2;
         int nBin = mBins*mBins;
+        int[] cells = new int[n];
+        for (int i=0; i<n; i++)
+        {
+            if (Double.isNaN(x[i]) || Double.isNaN(y[i])) {
+                cells[i] = -1;
+            } else if(x[i]==1){
+                if(y[i]==1){
+                    cells[i] = nBin-1;
+                }else {
+                    cells[i] = mBins * ((int) Math.floor(y[i] * mBins) + 1) - 1;
+                }
+            }
+            else if(y[i]==1)
+            {
+                cells[i] = mBins*((int)Math.floor(x[i]*mBins)+1)-1;
+            }
+            else {
+                int xlocat = (int) Math.floor(x[i] * mBins);
+                int ylocat = (int) Math.floor(y[i] * mBins);
+                cells[i] = ylocat * mBins + xlocat;
+            }
+        }
+        return cells;
+    }
 
-        double[] count = new double[nBin];
-        double[] xbin = new double[nBin];
-        double[] ybin = new double[nBin];
-        Vector<Double>[] x_inbin = new Vector[nBin];
-        Vector<Double>[] y_inbin = new Vector[nBin];
+    // bins the points listed in rows (all points when rows is null) from cells computed by assignCells
+    public final BinnedData binCells(double[] x, double[] y, int[] cells, int[] rows, int nBins, int scale) {
+
+        int n = rows == null ? x.length : rows.length;
 
-        Vector<Double>[] xt_inbin = new Vector[nBin];
-        Vector<Double>[] yt_inbin = new Vector[nBin];
-        //ini
-        for(int i=0; i<nBin; i++)
+        int mBins = nBins*2;
+        int nBin = mBins*mBins;
+        ensureWorkspace(nBin, n);
+
+        // sort the rows by cell, keeping their order within a cell
+        Arrays.fill(start, 0, nBin + 1, 0);
+        for (int k=0; k<n; k++)
         {
-            x_inbin[i] = new Vector<Double>();
-            y_inbin[i] = new Vector<Double>();
-            xt_inbin[i] = new Vector<Double>();
-            yt_inbin[i] = new Vector<Double>();
+            int c = cells[rows == null ? k : rows[k]];
+            if (c >= 0) start[c + 1]++;
         }
-        for (int i=0; i<n; i++)
+        for (int i=0; i<nBin; i++)
+            start[i + 1] += start[i];
+        System.arraycopy(start, 0, next, 0, nBin);
+        for (int k=0; k<n; k++)
         {
-            if (Double.isNaN(x[i])) continue;
-            if (Double.isNaN(y[i])) continue;
-            if(x[i]==1){
-            if(y[i]==1){
-                x_inbin[nBin-1].add(x[i]);
-                y_inbin[nBin-1].add(y[i]);
-            }else {
-                int location = mBins * ((int) Math.floor(y[i] * mBins) + 1) - 1;
-                x_inbin[location].add(x[i]);
-                y_inbin[location].add(y[i]);
-            }
+            int row = rows == null ? k : rows[k];
+            int c = cells[row];
+            if (c >= 0) members[next[c]++] = row;
         }
-        else if(y[i]==1)
+        if (canonical) {
+            for (int i=0; i<nBin; i++)
+                if (start[i + 1] - start[i] > 1) sortMembers(x, y, start[i], start[i + 1] - 1);
+        }
+
+        // keep fewer points per bin until the kept points fit in the grid
+        int all = select(nBin, scale);
+        while (all > nBin) {
+            scale = (int)(1.5*scale);
+            all = select(nBin, scale);
+        }
+        // the counts at indices from all on are not cleared, so every occupied cell from index all on is also
+        // kept as a point at (0, 0). StreamingBins.compact and BatchRunner.estimate reproduce this on purpose
+        // to give the same results; a fix belongs here first and then in both copies
+        for(int m1=0; m1<all; m1++)
         {
-            int location = mBins*((int)Math.floor(x[i]*mBins)+1)-1;
-            x_inbin[location].add(x[i]);
-            y_inbin[location].add(y[i]);
+            xbin[m1] = x[keptRows[m1]];
+            ybin[m1] = y[keptRows[m1]];
+            count[m1] = count[keptCells[m1]];
         }
-        else {
-            int xlocat = (int) Math.floor(x[i] * mBins);
-            int ylocat = (int) Math.floor(y[i] * mBins);
-            int location = ylocat * mBins + xlocat;
-            x_inbin[location].add(x[i]);
-            y_inbin[location].add(y[i]);
+        nBin = deleteEmptyBins(count, xbin, ybin);
+
+        if (nBin > maxBins) {
+            nBins = 2 * nBins / 3;
+            scale = (int)(1.5*scale);
+            return binCells(x, y, assignCells(x, y, nBins), rows, nBins, scale);
         }
+        lastNumBins = nBins;
+        double[] tcount = new double[nBin];
+        double[] xtbin = new double[nBin];
+        double[] ytbin = new double[nBin];
+        System.arraycopy(count, 0, tcount, 0, nBin);//copy count to tcount
+        System.arraycopy(xbin, 0, xtbin, 0, nBin);
+        System.arraycopy(ybin, 0, ytbin, 0, nBin);
+        return new BinnedData(xtbin, ytbin, tcount);
     }
-    int m = 0;
-    for(int i=0 ; i<nBin ; i++)
-    {
-        if(x_inbin[i].size()>0)
+
+    // picks the kept rows of every bin of the sorted members, returns how many were kept
+    private int select(int nBin, int scale) {
+        Arrays.fill(count, 0);
+        Arrays.fill(xbin, 0);
+        Arrays.fill(ybin, 0);
+        int all = 0;
+        for(int i=0 ; i<nBin ; i++)
         {
-            if(x_inbin[i].size()==1)//keep one node
+            int size = start[i + 1] - start[i];
+            if(size>0)
             {
-                xt_inbin[i].add(x_inbin[i].get(0));
-                yt_inbin[i].add(y_inbin[i].get(0));
-                count[i] = 1;
-            }else{
-                int scount = x_inbin[i].size()/scale;
-                if(scount==0)//keep one node
+                if(size==1)//keep one node
                 {
-                    int index = randSelect(y_inbin[i].size(),1)[0];
-                    xt_inbin[i].add(x_inbin[i].get(index));
-                    yt_inbin[i].add(y_inbin[i].get(index));
-                    count[i] = x_inbin[i].size();
-                    m++;
-                }
-                else{//keep scount nodes
-                    int[] select = randSelect(x_inbin[i].size(), scount);
-                    for(int j=0 ; j<scount ; j++)
+                    keptRows[all] = members[start[i]];
+                    keptCells[all++] = i;
+                    count[i] = 1;
+                }else{
+                    int scount = size/scale;
+                    if(scount==0)//keep one node
                     {
-                        xt_inbin[i].add(x_inbin[i].get(select[j]));
-                        yt_inbin[i].add(y_inbin[i].get(select[j]));
+                        int index = randSelect(size,1)[0];
+                        keptRows[all] = members[start[i] + index];
+                        keptCells[all++] = i;
+                        count[i] = size;
+                    }
+                    else{//keep scount nodes
+                        int[] select = randSelect(size, scount);
+                        for(int j=0 ; j<scount ; j++)
+                        {
+                            keptRows[all] = members[start[i] + select[j]];
+                            keptCells[all++] = i;
+                        }
+                        count[i] = (double) size/scount;
                     }
-                    count[i] = (double) x_inbin[i].size()/scount;
                 }
             }
         }
+        return all;
     }
-        int all = getAllData(xt_inbin);
-        if(all>nBin)
-        {
-            scale = (int)(1.5*scale);
-            return binHex(x, y, nBins, scale);
-        }else{
-            int m1=0;
-            for(int i=0; i<xt_inbin.length;i++)
-            {
-                for(int j=0; j<xt_inbin[i].size(); j++)
-                {
-                    xbin[m1] = xt_inbin[i].get(j);
-                    ybin[m1] = yt_inbin[i].get(j);
-                    count[m1] = count[i];
-                    m1++;
+
+    // members[from..to] by x, then y, then row
+    private void sortMembers(double[] x, double[] y, int from, int to) {
+        while (to - from > 16) {
+            int p = members[(from + to) >>> 1];
+            int i = from, j = to;
+            while (i <= j) {
+                while (before(x, y, members[i], p)) i++;
+                while (before(x, y, p, members[j])) j--;
+                if (i <= j) {
+                    int t = members[i];
+                    members[i++] = members[j];
+                    members[j--] = t;
                 }
             }
+            if (j - from < to - i) {
+                sortMembers(x, y, from, j);
+                from = i;
+            } else {
+                sortMembers(x, y, i, to);
+                to = j;
+            }
         }
-        nBin = deleteEmptyBins(count, xbin, ybin);
+        for (int i = from + 1; i <= to; i++) {
+            int r = members[i];
+            int j = i - 1;
+            while (j >= from && before(x, y, r, members[j])) {
+                members[j + 1] = members[j];
+                j--;
+            }
+            members[j + 1] = r;
+        }
+    }
+
+    private static boolean before(double[] x, double[] y, int a, int b) {
+        if (x[a] != x[b])
+            return x[a] < x[b];
+        if (y[a] != y[b])
+            return y[a] < y[b];
+        return a < b;
+    }
+
+    // the arrays of binCells are kept between calls, so a Binner must not be shared between threads
+    private void ensureWorkspace(int nBin, int n) {
+        if (count == null || count.length != nBin) {
+            count = new double[nBin];
+            xbin = new double[nBin];
+            ybin = new double[nBin];
+            start = new int[nBin + 1];
+            next = new int[nBin];
+        }
+        if (members == null || members.length < n) {
+            members = new int[n];
+            keptRows = new int[n];
+            keptCells = new int[n];
+        }
+    }
+
+    // hexagonal binning of Scag-05/Scag-06, one point per bin at the mean of its members
+    public final BinnedData binHexagonal(double[] x, double[] y, int nBins) {
+
+        int n = x.length;
+
+        // scaling constants
 
+        double con1 = .25;
+        double con2 = 1. / 3.;
+        double c1 = (double) (nBins - 1);
+        double c2 = c1 / Math.sqrt(3.);
+        int jinc = nBins;
+        int iinc = 2 * nBins;
+        int nBin = (nBins + 20) * (nBins + 20);
+
+        double[] count = new double[nBin];
+        double[] xbin = new double[nBin];
+        double[] ybin = new double[nBin];
+
+        // fill bins
+
+        for (int i = 0; i < n; i++) {
+            if (Double.isNaN(x[i])) continue;
+            if (Double.isNaN(y[i])) continue;
+            double sx = c1 * x[i];
+            double sy = c2 * y[i];
+            int i1 = (int) (sy + .5);
+            int j1 = (int) (sx + .5);
+            double dy = sy - (double) i1;
+            double dx = sx - (double) j1;
+            double dist1 = dx * dx + 3. * dy * dy;
+            int m;
+            if (dist1 < con1) {
+                m = i1 * iinc + j1;
+            } else if (dist1 > con2) {
+                m = (int) sy * iinc + (int) sx + jinc;
+            } else {
+                int i2 = (int) sy;
+                int j2 = (int) sx;
+                dy = sy - (double) i2 - .5;
+                dx = sx - (double) j2 - .5;
+                double dist2 = dx * dx + 3. * dy * dy;
+                if (dist1 <= dist2) {
+                    m = i1 * iinc + j1;
+                } else {
+                    m = i2 * iinc + j2 + jinc;
+                }
+            }
+            count[m]++;
+            xbin[m] += (x[i] - xbin[m]) / count[m];
+            ybin[m] += (y[i] - ybin[m]) / count[m];
+        }
+
+        nBin = deleteEmptyBins(count, xbin, ybin);
         if (nBin > maxBins) {
             nBins = 2 * nBins / 3;
-            scale = (int)(1.5*scale);
-            return binHex(x, y, nBins, scale);
+            return binHexagonal(x, y, nBins);
         }
+
         double[] tcount = new double[nBin];
         double[] xtbin = new double[nBin];
         double[] ytbin = new double[nBin];
-        System.arraycopy(count, 0, tcount, 0, nBin);//copy count to tcount
+        System.arraycopy(count, 0, tcount, 0, nBin);
         System.arraycopy(xbin, 0, xtbin, 0, nBin);
         System.arraycopy(ybin, 0, ytbin, 0, nBin);
         return new BinnedData(xtbin, ytbin, tcount);
     }
+
+    // m distinct indices below n; index 0 is never drawn, as with the former test against the zero-filled result
     private int[] randSelect (int n, int m)
     {
+        if (taken == null || taken.length < n)
+            taken = new boolean[n];
         int[] rel = new int[m];
+        taken[0] = true;
         for(int i = 0; i< m ; i++)
         {
-            int tmp = (int)(Math.random()*n);
-            while (isInclude(rel ,tmp))
+            int tmp = (int)(random.nextDouble()*n);
+            while (taken[tmp])
             {
-                tmp = (int)(Math.random()*n);
+                tmp = (int)(random.nextDouble()*n);
             }
             rel[i] = tmp;
+            taken[tmp] = true;
         }
+        taken[0] = false;
+        for(int i = 0; i< m ; i++)
+            taken[rel[i]] = false;
         return rel;
     }
-    private int getAllData(Vector<Double>[] v){
-        int rel = 0;
-        for(int i=0; i<v.length; i++)
-        {
-            rel+=v[i].size();
-        }
-        return rel;
-    }
-    private boolean isInclude (int[] arr, int target)
-    {
-        boolean isIn = false;
-        for(int i=0 ; i<arr.length ; i++)
-        {
-            if(arr[i]==target)
-            {
-                isIn = true;
-            }
-        }
-        return isIn;
-    }
     private int deleteEmptyBins(double[] count, double[] xbin, double[] ybin) {
 
         int k = 0;
@@ -0,0 +1,93 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+/*
+ * One plot written by PlotCapture: the normalized pair, the settings and the seed it was binned with, so
+ * that bin() gives back the same BinnedData and the same measures.
+ */
+public class CapturedPlot {
+    long time;              // ms since the epoch
+    String label;
+    Variant variant;
+    boolean canonical;
+    int numBins, maxBins;
+    long seed;
+    long nanos;             // as measured when captured, binning included
+    boolean timedOut;
+    double[] x, y;
+
+    public long getTime() {
+        return time;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public int getNumBins() {
+        return numBins;
+    }
+
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getNanos() {
+        return nanos;
+    }
+
+    // whether the capture was of a plot that ran out of its time limit
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    public double[] getX() {
+        return x;
+    }
+
+    public double[] getY() {
+        return y;
+    }
+
+    // the binning of RScag, as when captured
+    public BinnedData bin() {
+        Binner binner = new Binner(maxBins, seed);
+        binner.setCanonical(canonical);
+        return binner.binHex(x, y, numBins, 3);
+    }
+
+    // the measures, without a time limit
+    public double[] compute() {
+        if (variant == Variant.RSCAG)
+            return new Scagnostics(bin()).compute();
+        return new MultiScagnostics(x, y, numBins, maxBins).compute(variant);
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/*
+ * Builds an application class data sharing (AppCDS) archive for short runs of the CLI. A JVM started with
+ * -XX:SharedArchiveFile maps the classes of a training run from the archive instead of loading and
+ * verifying them from the jar. The training run computes PlotGenerator plots of every family through
+ * Main, from writing the CSV files to printing the measures. The archive is only used with the same JDK
+ * and the same jar, so it has to be built again after every build.
+ */
+public class CdsArchive {
+    private static final int[] ROWS = {100, 1000};
+
+    // runs the training in a new JVM with the class path of this one, which writes archive at exit
+    public static void create(File archive, int plots) throws IOException {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        ProcessBuilder pb = new ProcessBuilder(java, "-XX:ArchiveClassesAtExit=" + archive.getAbsolutePath(),
+                "-cp", System.getProperty("java.class.path"), CdsArchive.class.getName(), "-train",
+                Integer.toString(plots));
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        pb.redirectError(ProcessBuilder.Redirect.INHERIT);
+        try {
+            if (pb.start().waitFor() != 0 || !archive.exists())
+                throw new IOException("the training run did not write " + archive);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while training");
+        }
+    }
+
+    // the training run: plots CSV files computed by Main, as single-plot invocations do
+    static void train(int plots) throws IOException {
+        File dir = Files.createTempDirectory("rscag-cds").toFile();
+        String[] families = PlotGenerator.getFamilies();
+        PlotGenerator generator = new PlotGenerator(1, 0.01, 0.01);
+        try {
+            for (int k = 0; k < plots; k++) {
+                File file = new File(dir, "plot" + k + ".csv");
+                PlotGenerator.writeCsv(file, generator.generate(families[k % families.length], ROWS[k % ROWS.length]));
+                Main.main(new String[]{file.getPath()});
+                file.delete();
+            }
+        } finally {
+            dir.delete();
+        }
+    }
+
+    /*
+     * CdsArchive <archive.jsa> [-plots n]
+     * The archive only matches the class path of this JVM, which is printed with the command to use.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 1) {
+            System.out.println("usage: CdsArchive <archive.jsa> [-plots n]");
+            return;
+        }
+        if (argv[0].equals("-train")) {
+            train(Integer.parseInt(argv[1]));
+            return;
+        }
+        int plots = 2 * PlotGenerator.getFamilies().length;
+        for (int i = 1; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-plots")) plots = Integer.parseInt(argv[i + 1]);
+            else throw new IllegalArgumentException("Unknown option " + argv[i]);
+        }
+        File archive = new File(argv[0]);
+        long t0 = System.currentTimeMillis();
+        create(archive, plots);
+        System.out.println(archive + ": " + archive.length() / 1024 + " KB, trained on " + plots + " plots in "
+                + (System.currentTimeMillis() - t0) + " ms");
+        System.out.println("run with: java -XX:SharedArchiveFile=" + archive + " -XX:TieredStopAtLevel=1 -cp "
+                + System.getProperty("java.class.path") + " RScag.scagnostics.Main <data.csv>");
+    }
+}
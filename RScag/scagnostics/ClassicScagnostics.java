@@ -0,0 +1,345 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/*
+ * The classic scagnostics of Scag-05 and Scag-06 on hexagonally binned data.
+ * Several outlier policies are peeled in lockstep so that the triangulations
+ * they have in common are built only once.
+ */
+class ClassicScagnostics {
+    private int[] px, py;
+    private double[] counts;
+    private int totalCount;
+    private double totalOriginalMSTLengths;
+    private double[] sortedOriginalMSTLengths;
+    private double alphaArea = 1, alphaPerimeter = 1, hullArea = 1, hullPerimeter = 1;
+    private Triangulation dt;
+    private boolean[] isOutlier;
+    private final static int OUTLYING = 0, SKEWED = 1, CLUMPY = 2, SPARSE = 3,
+            STRIATED = 4, CONVEX = 5, SKINNY = 6, STRINGY = 7, MONOTONIC = 8;
+
+    ClassicScagnostics(BinnedData bdata) {
+        px = bdata.getXData();
+        py = bdata.getYData();
+        counts = bdata.getCounts();
+    }
+
+    // one result vector per policy, null where the plot is degenerate
+    double[][] compute(OutlierPolicy[] policies) {
+        int np = policies.length;
+        double[][] results = new double[np][];
+        if (px.length < 3)
+            return results;
+        boolean isXConstant = true;
+        boolean isYConstant = true;
+        for (int i = 1; i < px.length; i++) {
+            if (px[i] != px[0]) isXConstant = false;
+            if (py[i] != py[0]) isYConstant = false;
+        }
+        if (isXConstant || isYConstant)
+            return results;
+
+        for (int i = 0; i < counts.length; i++)
+            totalCount += counts[i];
+
+        Triangulation original = new Triangulation();
+        original.computeDT(px, py, counts, new boolean[px.length]);
+        original.computeMST();
+        sortedOriginalMSTLengths = original.getSortedMSTEdgeLengths();
+        for (int i = 0; i < sortedOriginalMSTLengths.length; i++)
+            totalOriginalMSTLengths += sortedOriginalMSTLengths[i];
+
+        Triangulation[] geometry = new Triangulation[np];
+        boolean[][] outliers = new boolean[np][px.length];
+        double[][] outlierLengths = new double[np][1];
+        boolean[] peeling = new boolean[np];
+        Arrays.fill(geometry, original);
+        Arrays.fill(peeling, true);
+        boolean anyPeeling = true;
+        while (anyPeeling) {
+            anyPeeling = false;
+            List<Triangulation> built = new ArrayList<Triangulation>();
+            List<boolean[]> builtMasks = new ArrayList<boolean[]>();
+            for (int p = 0; p < np; p++) {
+                if (!peeling[p])
+                    continue;
+                double cutoff = computeCutoff(geometry[p].getSortedMSTEdgeLengths());
+                if (!policies[p].peel(geometry[p], cutoff, outliers[p], outlierLengths[p])) {
+                    peeling[p] = false;
+                    continue;
+                }
+                anyPeeling = true;
+                int k = 0;
+                while (k < builtMasks.size() && !Arrays.equals(builtMasks.get(k), outliers[p]))
+                    k++;
+                if (k == built.size()) {
+                    Triangulation t = new Triangulation();
+                    t.computeDT(px, py, counts, outliers[p]);
+                    t.computeMST();
+                    built.add(t);
+                    builtMasks.add(outliers[p].clone());
+                }
+                geometry[p] = built.get(k);
+            }
+        }
+
+        // equal outlier masks share their final geometry, so measure each one once
+        for (int p = 0; p < np; p++) {
+            int q = 0;
+            while (geometry[q] != geometry[p])
+                q++;
+            if (q < p) {
+                results[p] = results[q].clone();
+            } else {
+                dt = geometry[p];
+                isOutlier = outliers[p];
+                results[p] = computeMeasures();
+            }
+            results[p][OUTLYING] = outlierLengths[p][0] / totalOriginalMSTLengths;
+        }
+        return results;
+    }
+
+    private double[] computeMeasures() {
+        dt.computeAlphaGraph(computeAlphaValue());
+        alphaArea = dt.computeAlphaArea();
+        alphaPerimeter = dt.computeAlphaPerimeter();
+        hullArea = dt.computeHullArea();
+        hullPerimeter = dt.computeHullPerimeter();
+        double[] results = new double[Scagnostics.getNumScagnostics()];
+        results[CLUMPY] = computeClusterMeasure();
+        results[SKEWED] = computeMSTEdgeLengthSkewnessMeasure();
+        results[CONVEX] = computeConvexityMeasure();
+        results[SKINNY] = computeSkinnyMeasure();
+        results[STRINGY] = computeStringyMeasure();
+        results[STRIATED] = computeStriationMeasure();
+        results[SPARSE] = computeSparsenessMeasure();
+        results[MONOTONIC] = computeMonotonicityMeasure();
+        return results;
+    }
+
+    private double computeCutoff(double[] lengths) {
+        if (lengths.length == 0) return 0;
+        int n50 = lengths.length / 2;
+        int n25 = n50 / 2;
+        int n75 = n50 + n25;
+        return lengths[n75] + 1.5 * (lengths[n75] - lengths[n25]);
+    }
+
+    private double computeAlphaValue() {
+        int length = sortedOriginalMSTLengths.length;
+        if (length == 0) return 100.;
+        int n90 = (9 * length) / 10;
+        double alpha = sortedOriginalMSTLengths[n90];
+        return Math.min(alpha, 100.);
+    }
+
+    private double computeMSTEdgeLengthSkewnessMeasure() {
+        if (sortedOriginalMSTLengths.length == 0)
+            return 0;
+        int n = sortedOriginalMSTLengths.length;
+        int n50 = n / 2;
+        int n10 = n / 10;
+        int n90 = (9 * n) / 10;
+        double skewness = (sortedOriginalMSTLengths[n90] - sortedOriginalMSTLengths[n50]) /
+                (sortedOriginalMSTLengths[n90] - sortedOriginalMSTLengths[n10]);
+        double t = (double) totalCount / 500;
+        double correction = .7 + .3 / (1 + t * t);
+        return 1 - correction * (1 - skewness);
+    }
+
+    private double computeClusterMeasure() {
+        double[] maxLength = new double[1];
+        double maxValue = 0;
+        for (Edge e : dt.mstEdges) {
+            dt.clearVisits();
+            e.onMST = false;  // break MST at this edge
+            int runts = getRunts(e, maxLength);
+            e.onMST = true;   // restore this edge to MST
+            if (maxLength[0] > 0) {
+                double value = runts * (1 - maxLength[0] / e.weight);
+                if (value > maxValue)
+                    maxValue = value;
+            }
+        }
+        return 2 * maxValue / dt.totalPeeledCount;
+    }
+
+    private int getRunts(Edge e, double[] maxLength) {
+        double cutoff = e.weight;
+        double[] maxLength1 = new double[1];
+        double[] maxLength2 = new double[1];
+        int count1 = getMSTChildren(e.p1, cutoff, maxLength1);
+        int count2 = getMSTChildren(e.p2, cutoff, maxLength2);
+        if (count1 < count2) {
+            maxLength[0] = maxLength1[0];
+            return count1;
+        } else if (count1 == count2) {        // take more tightly clustered child
+            maxLength[0] = Math.min(maxLength1[0], maxLength2[0]);
+            return count1;
+        } else {
+            maxLength[0] = maxLength2[0];
+            return count2;
+        }
+    }
+
+    private int getMSTChildren(Node n, double cutoff, double[] maxLength) {
+        int count = 0;
+        if (n.isVisited)
+            return count;
+        n.isVisited = true;
+        for (Edge e : n.neighbors) {
+            if (e.onMST && e.weight < cutoff) {
+                Node other = e.otherNode(n);
+                if (!other.isVisited) {
+                    count += getMSTChildren(other, cutoff, maxLength);
+                    if (e.weight > maxLength[0])
+                        maxLength[0] = e.weight;
+                }
+            }
+        }
+        count += n.count; // add count for this node
+        return count;
+    }
+
+    private double computeStringyMeasure() {
+        int count1 = 0;
+        int count2 = 0;
+        for (Node n : dt.nodes) {
+            if (n.mstDegree == 1)
+                count1++;
+            if (n.mstDegree == 2)
+                count2++;
+        }
+        double result = (double) count2 / (double) (dt.nodes.size() - count1);
+        return result * result * result;
+    }
+
+    private double computeMonotonicityMeasure() {
+        int n = counts.length;
+        double[] ax = new double[n];
+        double[] ay = new double[n];
+        double[] weights = new double[n];
+        for (int i = 0; i < n; i++) {
+            ax[i] = px[i];
+            ay[i] = py[i];
+            weights[i] = counts[i];
+        }
+        double[] rx = Sorts.rank(ax);
+        double[] ry = Sorts.rank(ay);
+        double s = computePearson(rx, ry, weights);
+        return s * s;
+    }
+
+    private double computePearson(double[] x, double[] y, double[] weights) {
+        int n = x.length;
+        double xmean = 0;
+        double ymean = 0;
+        double xx = 0;
+        double yy = 0;
+        double xy = 0;
+        double sumwt = 0;
+        for (int i = 0; i < n; i++) {
+            double wt = weights[i];
+            if (wt > 0 && !isOutlier[i]) {
+                sumwt += wt;
+                xx += (x[i] - xmean) * wt * (x[i] - xmean);
+                yy += (y[i] - ymean) * wt * (y[i] - ymean);
+                xy += (x[i] - xmean) * wt * (y[i] - ymean);
+                xmean += (x[i] - xmean) * wt / sumwt;
+                ymean += (y[i] - ymean) * wt / sumwt;
+            }
+        }
+        xy = xy / Math.sqrt(xx * yy);
+        return xy;
+    }
+
+    private double computeSparsenessMeasure() {
+        int n = sortedOriginalMSTLengths.length;
+        int n90 = (9 * n) / 10;
+        double sparse = Math.min(sortedOriginalMSTLengths[n90] / 1000, 1);
+        double t = (double) totalCount / 500;
+        double correction = .7 + .3 / (1 + t * t);
+        return correction * sparse;
+    }
+
+    private double computeStriationMeasure() {
+        double numEdges = 0;
+        for (Edge e : dt.mstEdges) {
+            Node n1 = e.p1;
+            Node n2 = e.p2;
+            if (n1.mstDegree == 2 && n2.mstDegree == 2) {
+                Edge e1 = getAdjacentMSTEdge(n1, e);
+                Edge e2 = getAdjacentMSTEdge(n2, e);
+                if (cosineOfAdjacentEdges(e, e1, n1) < -.7 && cosineOfAdjacentEdges(e, e2, n2) < -.7)
+                    numEdges++;
+            }
+        }
+        return numEdges / (double) dt.mstEdges.size();
+    }
+
+    private Edge getAdjacentMSTEdge(Node n, Edge e) {
+        for (Edge et : n.neighbors) {
+            if (et.onMST && !e.equals(et)) {
+                return et;
+            }
+        }
+        return null;
+    }
+
+    private double cosineOfAdjacentEdges(Edge e1, Edge e2, Node n) {
+        double v1x = e1.otherNode(n).x - n.x;
+        double v1y = e1.otherNode(n).y - n.y;
+        double v2x = e2.otherNode(n).x - n.x;
+        double v2y = e2.otherNode(n).y - n.y;
+        double v1 = Math.sqrt(v1x * v1x + v1y * v1y);
+        double v2 = Math.sqrt(v2x * v2x + v2y * v2y);
+        v1x = v1x / v1;
+        v1y = v1y / v1;
+        v2x = v2x / v2;
+        v2y = v2y / v2;
+        return v1x * v2x + v1y * v2y;
+    }
+
+    private double computeConvexityMeasure() {
+        if (hullArea == 0) // points in general position
+            return 1;
+        else {
+            double t = (double) totalCount / 500;
+            double correction = .7 + .3 / (1 + t * t);
+            double convexity = alphaArea / hullArea;
+            return correction * convexity;
+        }
+    }
+
+    private double computeSkinnyMeasure() {
+        if (alphaPerimeter > 0)
+            return 1 - Math.sqrt(4 * Math.PI * alphaArea) / alphaPerimeter;
+        else
+            return 1;
+    }
+}
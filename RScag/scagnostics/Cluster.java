@@ -21,13 +21,27 @@
  */
 package RScag.scagnostics;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 public class Cluster {
 
+    private static final int CHUNK_ROWS = 4096;
     private int[] members;
     private int numClusters;
     private int numIterations;
     private int nVar;
     private int nRow;
+    private int threads = 1;
+    private double[] rows;            // row-major copy of the data in parallel mode
+    private double[][] centers;       // cluster means of the last compute
+    private ExecutorService pool;
 
     public Cluster(int numClusters, int numIterations) {
         this.numIterations = 3;
@@ -36,9 +50,34 @@ public class Cluster {
         if (numClusters != 0) this.numClusters = numClusters;
     }
 
+    /*
+     * With more than one thread, reassign splits the rows into fixed chunks whose statistics are
+     * merged in chunk order, so the result does not depend on the number of threads. Means and sums
+     * of squares are merged pairwise and may differ from the sequential pass in the last bits.
+     */
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
     public int[] compute(double [][]data) {
         nRow = data.length;
         nVar = data[0].length;
+        if (threads == 1 || nRow <= CHUNK_ROWS)
+            return cluster(data);
+        rows = new double[nRow * nVar];
+        for (int i = 0; i < nRow; i++)
+            System.arraycopy(data[i], 0, rows, i * nVar, nVar);
+        pool = Executors.newFixedThreadPool(threads);
+        try {
+            return cluster(data);
+        } finally {
+            pool.shutdownNow();
+            pool = null;
+            rows = null;
+        }
+    }
+
+    private int[] cluster(double[][] data) {
         boolean useStoppingRule = false;
         double[][] ssr = null;
         if (numClusters == 0) {
@@ -136,6 +175,10 @@ public class Cluster {
             }
         }
 
+        centers = new double[numClusters][];
+        for (int k = 0; k < numClusters; k++)
+            centers[k] = count[k][0] > 0 ? mean[k].clone() : null;
+
         int nc = 0;
         double cutoff = .1;
         for (int k = 0; k < numClusters; k++) {
@@ -153,10 +196,20 @@ public class Cluster {
         return exemplars;
     }
 
+    // means of the clusters found by the last compute, null for empty ones
+    double[][] getCenters() {
+        return centers;
+    }
+
     private void reassign(int nCluster, double[][] data, double[][] center, double[][] count,
                           double[][] mean, double[][] min, double[][] max, double[][] ssq,
                           int[] closestPoints, double[] closestDistances) {
 
+        if (rows != null) {
+            parallelReassign(nCluster, center, count, mean, min, max, ssq, closestPoints, closestDistances);
+            return;
+        }
+
         /* initialize cluster statistics */
 
         for (int k = 0; k <= nCluster; k++) {
@@ -216,6 +269,142 @@ public class Cluster {
         }
     }
 
+    private void parallelReassign(int nCluster, double[][] center, double[][] count,
+                                  double[][] mean, double[][] min, double[][] max, double[][] ssq,
+                                  int[] closestPoints, double[] closestDistances) {
+        final int nc = nCluster + 1;
+        final double[] centers = new double[nc * nVar];
+        for (int k = 0; k < nc; k++) {
+            closestPoints[k] = -1;
+            closestDistances[k] = Double.POSITIVE_INFINITY;
+            for (int j = 0; j < nVar; j++) {
+                center[k][j] = mean[k][j];
+                centers[k * nVar + j] = mean[k][j];
+                mean[k][j] = 0;
+                count[k][j] = 0;
+                ssq[k][j] = 0;
+                min[k][j] = Double.POSITIVE_INFINITY;
+                max[k][j] = Double.NEGATIVE_INFINITY;
+            }
+        }
+
+        List<Future<Stats>> futures = new ArrayList<Future<Stats>>();
+        for (int s = 0; s < nRow; s += CHUNK_ROWS) {
+            final int from = s;
+            final int to = Math.min(nRow, s + CHUNK_ROWS);
+            futures.add(pool.submit(new Callable<Stats>() {
+                public Stats call() {
+                    return assign(from, to, nc, centers);
+                }
+            }));
+        }
+        try {
+            for (Future<Stats> f : futures)
+                f.get().mergeInto(nc, count, mean, min, max, ssq, closestPoints, closestDistances);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // the sequential reassign loop over rows from..to, with statistics of its own
+    private Stats assign(int from, int to, int nc, double[] centers) {
+        Stats st = new Stats(nc, nVar);
+        for (int i = from; i < to; i++) {
+            int ro = i * nVar;
+            double dmin = Double.POSITIVE_INFINITY;
+            int kmin = -1;
+            for (int k = 0; k < nc; k++) {
+                double dd = distance(ro, centers, k * nVar, dmin);
+                if (dd < dmin) {
+                    dmin = dd;
+                    kmin = k;
+                    if (dmin < st.closestDistances[k]) {
+                        st.closestDistances[k] = dmin;
+                        st.closestPoints[k] = i;
+                    }
+                }
+            }
+            members[i] = kmin;
+
+            int so = kmin * nVar;
+            for (int j = 0; j < nVar; j++) {
+                double xa = rows[ro + j];
+                if (!Double.isNaN(xa)) {
+                    double xn = ++st.count[so + j];
+                    st.mean[so + j] += (xa - st.mean[so + j]) / xn;
+                    if (xn > 1.)
+                        st.ssq[so + j] += xn * (xa - st.mean[so + j]) * (xa - st.mean[so + j]) / (xn - 1.);
+                    if (st.min[so + j] > xa)
+                        st.min[so + j] = xa;
+                    if (st.max[so + j] < xa)
+                        st.max[so + j] = xa;
+                }
+            }
+        }
+        return st;
+    }
+
+    // squared distance of a row to a center; stops once it cannot be below dmin, which leaves every comparison unchanged
+    private double distance(int ro, double[] centers, int co, double dmin) {
+        double dist = 0;
+        for (int j = 0; j < nVar && dist < dmin; j++) {
+            double d = rows[ro + j] - centers[co + j];
+            dist += d * d;
+        }
+        return dist;
+    }
+
+    private static class Stats {
+        double[] count, mean, ssq, min, max, closestDistances;
+        int[] closestPoints;
+        int nVar;
+
+        Stats(int nc, int nVar) {
+            this.nVar = nVar;
+            count = new double[nc * nVar];
+            mean = new double[nc * nVar];
+            ssq = new double[nc * nVar];
+            min = new double[nc * nVar];
+            max = new double[nc * nVar];
+            Arrays.fill(min, Double.POSITIVE_INFINITY);
+            Arrays.fill(max, Double.NEGATIVE_INFINITY);
+            closestDistances = new double[nc];
+            Arrays.fill(closestDistances, Double.POSITIVE_INFINITY);
+            closestPoints = new int[nc];
+            Arrays.fill(closestPoints, -1);
+        }
+
+        // chunks are merged in row order, so ties for the closest point go to the first row as before
+        void mergeInto(int nc, double[][] count, double[][] mean, double[][] min, double[][] max,
+                       double[][] ssq, int[] closestPoints, double[] closestDistances) {
+            for (int k = 0; k < nc; k++) {
+                if (this.closestDistances[k] < closestDistances[k]) {
+                    closestDistances[k] = this.closestDistances[k];
+                    closestPoints[k] = this.closestPoints[k];
+                }
+                for (int j = 0; j < nVar; j++) {
+                    int o = k * nVar + j;
+                    double nb = this.count[o];
+                    if (nb == 0)
+                        continue;
+                    double na = count[k][j];
+                    double n = na + nb;
+                    double delta = this.mean[o] - mean[k][j];
+                    mean[k][j] += delta * nb / n;
+                    ssq[k][j] += this.ssq[o] + delta * delta * na * nb / n;
+                    count[k][j] = n;
+                    if (min[k][j] > this.min[o])
+                        min[k][j] = this.min[o];
+                    if (max[k][j] < this.max[o])
+                        max[k][j] = this.max[o];
+                }
+            }
+        }
+    }
+
     private double distance(double[] a, double[] b) {
         double dist = 0;
         for (int i = 0; i < a.length; i++) {
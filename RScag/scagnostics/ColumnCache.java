@@ -0,0 +1,100 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/*
+ * Per-column preprocessing shared by all pairs of a table. Each column is normalized once, and its
+ * Binner.axisIndex at a resolution is computed once, the first time a pair asks for it. The indices also
+ * serve as the column's NaN mask (Binner.MISSING), so the cells of a pair are merged from two int arrays,
+ * skipping missing values without looking at the coordinates again.
+ * Safe for concurrent use. A cache can also start empty and hold only the columns loaded into it, as
+ * TiledRunner does; load and unload while no pair is computed.
+ */
+public class ColumnCache {
+    private double[][] columns;
+    private ConcurrentHashMap<Long, int[]> indices = new ConcurrentHashMap<Long, int[]>();
+
+    // the columns are normalized in place, as in Main
+    public ColumnCache(double[][] columns) {
+        Main.normalizePoints(columns);
+        this.columns = columns;
+    }
+
+    // a cache of numColumns columns with none loaded
+    public ColumnCache(int numColumns) {
+        this.columns = new double[numColumns][];
+    }
+
+    // normalizes values in place, as in Main, and makes it column c
+    public void load(int c, double[] values) {
+        Main.normalizePoints(new double[][]{values});
+        columns[c] = values;
+    }
+
+    // drops column c and its indices
+    public void unload(int c) {
+        for (Long key : indices.keySet())
+            if ((int) key.longValue() == c) indices.remove(key);
+        columns[c] = null;
+    }
+
+    public boolean isLoaded(int c) {
+        return columns[c] != null;
+    }
+
+    public int getNumColumns() {
+        return columns.length;
+    }
+
+    public double[] getColumn(int c) {
+        return columns[c];
+    }
+
+    // axis index of every point of column c on the grid of numBins, Binner.MISSING for NaN
+    public int[] getIndices(final int c, final int numBins) {
+        long key = (long) numBins << 32 | c;
+        int[] idx = indices.get(key);
+        if (idx == null) {
+            double[] v = columns[c];
+            int mBins = 2 * numBins;
+            idx = new int[v.length];
+            for (int i = 0; i < v.length; i++)
+                idx[i] = Binner.axisIndex(v[i], mBins);
+            int[] old = indices.putIfAbsent(key, idx);
+            if (old != null)
+                idx = old;
+        }
+        return idx;
+    }
+
+    // same cells as Binner.assignCells(getColumn(xCol), getColumn(yCol), numBins)
+    public int[] getCells(int xCol, int yCol, int numBins) {
+        return Binner.combineCells(getIndices(xCol, numBins), getIndices(yCol, numBins), numBins);
+    }
+
+    // same as binner.binHex(getColumn(xCol), getColumn(yCol), numBins, 3)
+    public BinnedData bin(Binner binner, int xCol, int yCol, int numBins) {
+        return binner.binCells(columns[xCol], columns[yCol], getCells(xCol, yCol, numBins), null, numBins, 3);
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/*
+ * A table stored column by column as raw doubles, so that any column is one sequential read. Tables with
+ * more columns than fit in memory are converted from text once (create) and then read a few columns at a
+ * time by TiledRunner. The file is a header (magic, version, rows, columns) followed by the columns.
+ */
+public class ColumnFile {
+    private static final byte[] MAGIC = "RSCAGCOL".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = MAGIC.length + 12;
+
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private int numRows, numColumns;
+
+    private ColumnFile(RandomAccessFile raf) {
+        this.raf = raf;
+        this.channel = raf.getChannel();
+    }
+
+    /*
+     * Converts a text table (CsvVectorSource: one row per line, commas, tabs or blanks, an optional header)
+     * in two passes: one to count the rows and one that reads rows in chunks of about memoryBytes and
+     * writes each column's part of the chunk in place. The columns are written to a temporary file next to
+     * file, which only replaces file once complete, so a conversion that is killed leaves no file behind
+     * that open would take for a whole table.
+     */
+    public static ColumnFile create(File text, File file, long memoryBytes) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        File tmp = File.createTempFile(file.getName(), ".tmp", dir);
+        try {
+            CsvVectorSource in = new CsvVectorSource(text);
+            ColumnFile table = null;
+            try {
+                int dim = in.getDimension();
+                double[] row = new double[dim];
+                int rows = 0;
+                while (in.read(row) > 0)
+                    rows++;
+                in.rewind();
+
+                table = new ColumnFile(new RandomAccessFile(tmp, "rw"));
+                table.numRows = rows;
+                table.numColumns = dim;
+                table.writeHeader();
+                int chunkRows = (int) Math.max(1, Math.min(rows, memoryBytes / 16 / dim));
+                double[] chunk = new double[chunkRows * dim];
+                ByteBuffer out = ByteBuffer.allocate(8 * chunkRows);
+                int first = 0;
+                int n;
+                while ((n = in.read(chunk)) > 0) {
+                    for (int c = 0; c < dim; c++) {
+                        out.clear();
+                        for (int r = 0; r < n; r++)
+                            out.putDouble(chunk[r * dim + c]);
+                        out.flip();
+                        table.write(out, table.offset(c) + 8L * first);
+                    }
+                    first += n;
+                }
+                table.channel.force(true);
+            } finally {
+                in.close();
+                if (table != null)
+                    table.close();
+            }
+            Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            tmp.delete();
+            throw e;
+        }
+        return open(file);
+    }
+
+    public static ColumnFile open(File file) throws IOException {
+        ColumnFile table = new ColumnFile(new RandomAccessFile(file, "r"));
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        table.read(header, 0);
+        header.flip();
+        byte[] magic = new byte[MAGIC.length];
+        header.get(magic);
+        if (!Arrays.equals(magic, MAGIC) || header.getInt() != VERSION) {
+            table.close();
+            throw new IOException(file + " is not a column file");
+        }
+        table.numRows = header.getInt();
+        table.numColumns = header.getInt();
+        return table;
+    }
+
+    public int getNumRows() {
+        return numRows;
+    }
+
+    public int getNumColumns() {
+        return numColumns;
+    }
+
+    // column c as read from the text, not normalized
+    public double[] read(int c) throws IOException {
+        if (c < 0 || c >= numColumns)
+            throw new IndexOutOfBoundsException("column " + c + " of " + numColumns);
+        ByteBuffer b = ByteBuffer.allocate(8 * numRows);
+        read(b, offset(c));
+        b.flip();
+        double[] v = new double[numRows];
+        b.asDoubleBuffer().get(v);
+        return v;
+    }
+
+    public void close() throws IOException {
+        raf.close();
+    }
+
+    private long offset(int c) {
+        return HEADER_BYTES + 8L * numRows * c;
+    }
+
+    private void writeHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        header.put(MAGIC).putInt(VERSION).putInt(numRows).putInt(numColumns);
+        header.flip();
+        write(header, 0);
+    }
+
+    private void write(ByteBuffer b, long position) throws IOException {
+        while (b.hasRemaining())
+            position += channel.write(b, position);
+    }
+
+    private void read(ByteBuffer b, long position) throws IOException {
+        while (b.hasRemaining()) {
+            int n = channel.read(b, position);
+            if (n < 0)
+                throw new IOException("column file ends early");
+            position += n;
+        }
+    }
+}
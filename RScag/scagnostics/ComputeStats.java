@@ -0,0 +1,90 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+/*
+ * Where the time of the last Scagnostics.compute went: the binned points, how often they were
+ * triangulated while peeling outliers, how many MST edges the runt search cut, and the nanoseconds of
+ * each stage. CostModel is fitted from these.
+ */
+public class ComputeStats {
+    int points;
+    int dtBuilds;
+    long dtNodes;
+    int runtEdges;
+    long triangulationNanos, alphaNanos, runtNanos, totalNanos;
+
+    void reset(int points) {
+        this.points = points;
+        dtBuilds = 0;
+        dtNodes = 0;
+        runtEdges = 0;
+        triangulationNanos = alphaNanos = runtNanos = totalNanos = 0;
+    }
+
+    public int getPoints() {
+        return points;
+    }
+
+    // Delaunay triangulations built, one per peeling round and cluster
+    public int getDTBuilds() {
+        return dtBuilds;
+    }
+
+    // points inserted over all triangulations
+    public long getDTNodes() {
+        return dtNodes;
+    }
+
+    public int getRuntEdges() {
+        return runtEdges;
+    }
+
+    // Delaunay triangulation and MST
+    public long getTriangulationNanos() {
+        return triangulationNanos;
+    }
+
+    // alpha graph, alpha shape and hull
+    public long getAlphaNanos() {
+        return alphaNanos;
+    }
+
+    public long getRuntNanos() {
+        return runtNanos;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    // everything not in the three stages above: peeling, clusters and the measures themselves
+    public long getOtherNanos() {
+        return Math.max(0, totalNanos - triangulationNanos - alphaNanos - runtNanos);
+    }
+
+    public String toString() {
+        return "points " + points + ", DT builds " + dtBuilds + ", DT nodes " + dtNodes + ", runt edges " + runtEdges
+                + ", ms " + totalNanos / 1e6 + " (DT/MST " + triangulationNanos / 1e6 + ", alpha " + alphaNanos / 1e6
+                + ", runts " + runtNanos / 1e6 + ")";
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Predicts the time of Scagnostics.compute from the number of binned points n. Each stage of ComputeStats
+ * (triangulation and MST, alpha shape, runt search, the rest) is fitted as a * n^p by least squares on
+ * log n and log nanos, so the model learns how many DT builds and how much runt search a plot of n points
+ * costs on this machine. The number of DT builds is fitted the same way, for reporting.
+ */
+public class CostModel {
+    private static final byte[] MAGIC = "RSCAGCST".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int TRIANGULATION = 0, ALPHA = 1, RUNTS = 2, OTHER = 3, DT_BUILDS = 4;
+    private static final String[] names = {"DT/MST", "alpha", "runts", "other", "DT builds"};
+    private static final int MAX_POINTS = 1 << 20;
+
+    private final Fit[] fits = new Fit[names.length];
+    private double sigmas = 2;
+
+    public CostModel() {
+        for (int c = 0; c < fits.length; c++)
+            fits[c] = new Fit();
+    }
+
+    /*
+     * Predictions are raised by sigmas standard deviations of each stage's log residuals, so that plots
+     * of the same size but a costlier shape still meet a target. 0 predicts the typical plot.
+     */
+    public synchronized void setSigmas(double sigmas) {
+        this.sigmas = sigmas;
+    }
+
+    public synchronized void add(ComputeStats stats) {
+        int n = stats.getPoints();
+        if (n < 3)
+            return;
+        fits[TRIANGULATION].add(n, stats.getTriangulationNanos());
+        fits[ALPHA].add(n, stats.getAlphaNanos());
+        fits[RUNTS].add(n, stats.getRuntNanos());
+        fits[OTHER].add(n, stats.getOtherNanos());
+        fits[DT_BUILDS].add(n, stats.getDTBuilds());
+    }
+
+    // plots the model has been fitted from
+    public synchronized long getSamples() {
+        return fits[DT_BUILDS].count;
+    }
+
+    // whether the triangulation and the rest have samples of several sizes; alpha and runts may never run
+    public synchronized boolean isFitted() {
+        return fits[TRIANGULATION].isFitted() && fits[OTHER].isFitted();
+    }
+
+    // predicted milliseconds of compute for n binned points
+    public synchronized double predict(int n) {
+        double nanos = 0;
+        for (int c = 0; c < DT_BUILDS; c++)
+            nanos += fits[c].predict(n, sigmas);
+        return nanos / 1e6;
+    }
+
+    // predicted number of Delaunay triangulations for n binned points
+    public synchronized double predictDTBuilds(int n) {
+        return fits[DT_BUILDS].predict(n, 0);
+    }
+
+    /*
+     * The largest number of binned points predicted to compute within targetMillis, at least 3.
+     * Integer.MAX_VALUE until the model is fitted.
+     */
+    public synchronized int maxPoints(double targetMillis) {
+        if (!isFitted())
+            return Integer.MAX_VALUE;
+        if (predict(MAX_POINTS) <= targetMillis)
+            return MAX_POINTS;
+        int lo = 3, hi = MAX_POINTS;
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            if (predict(mid) <= targetMillis)
+                lo = mid;
+            else
+                hi = mid;
+        }
+        return lo;
+    }
+
+    /*
+     * Fits a model from PlotGenerator plots of every family, each size in rows, binned at every numBins in
+     * bins and at most maxBins points. A first pass over the smallest plots warms up the JIT and is not used.
+     */
+    public static CostModel train(int[] rows, int[] bins, int maxBins, long seed) {
+        CostModel model = new CostModel();
+        String[] families = PlotGenerator.getFamilies();
+        PlotGenerator generator = new PlotGenerator(seed);
+        for (int pass = 0; pass < 2; pass++) {
+            for (String family : families) {
+                for (int n : pass == 0 ? new int[]{rows[0]} : rows) {
+                    double[][] xy = generator.generate(family, n);
+                    for (int b : bins) {
+                        Scagnostics s = new Scagnostics(xy[0], xy[1], b, maxBins);
+                        s.compute();
+                        if (pass == 1)
+                            model.add(s.getStats());
+                    }
+                }
+            }
+        }
+        return model;
+    }
+
+    public synchronized void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(fits.length);
+            for (Fit f : fits)
+                f.write(out);
+        }
+    }
+
+    public static CostModel load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION || in.readInt() != names.length)
+                throw new IOException(file + " is not a cost model");
+            CostModel model = new CostModel();
+            for (Fit f : model.fits)
+                f.read(in);
+            return model;
+        }
+    }
+
+    public synchronized String toString() {
+        StringBuilder sb = new StringBuilder(getSamples() + " plots");
+        for (int c = 0; c < fits.length; c++) {
+            Fit f = fits[c];
+            sb.append("\n").append(names[c]).append(": ");
+            if (f.isFitted())
+                sb.append(String.format("%.3g", Math.exp(f.intercept()))).append(" n^")
+                        .append(String.format("%.2f", f.slope())).append(", sd ")
+                        .append(String.format("%.2f", f.sd())).append(" (log)");
+            else
+                sb.append("not fitted");
+        }
+        return sb.toString();
+    }
+
+    // least squares of log y on log x, from running sums; zero y are left out
+    private static class Fit {
+        long count;
+        double sx, sy, sxx, sxy, syy;
+
+        void add(double x, double y) {
+            if (y <= 0)
+                return;
+            double lx = Math.log(x);
+            double ly = Math.log(y);
+            count++;
+            sx += lx;
+            sy += ly;
+            sxx += lx * lx;
+            sxy += lx * ly;
+            syy += ly * ly;
+        }
+
+        boolean isFitted() {
+            return count > 2 && count * sxx - sx * sx > 1e-9 * count * count;
+        }
+
+        double slope() {
+            return (count * sxy - sx * sy) / (count * sxx - sx * sx);
+        }
+
+        double intercept() {
+            return (sy - slope() * sx) / count;
+        }
+
+        double sd() {
+            double b = slope();
+            double a = intercept();
+            double sse = syy - 2 * a * sy - 2 * b * sxy + count * a * a + 2 * a * b * sx + b * b * sxx;
+            return Math.sqrt(Math.max(0, sse) / (count - 2));
+        }
+
+        // a stage that never took any time, such as the runt search of plots that are never clumpy, predicts 0
+        double predict(double x, double sigmas) {
+            if (!isFitted())
+                return 0;
+            return Math.exp(intercept() + slope() * Math.log(x) + sigmas * sd());
+        }
+
+        void write(DataOutputStream out) throws IOException {
+            out.writeLong(count);
+            out.writeDouble(sx);
+            out.writeDouble(sy);
+            out.writeDouble(sxx);
+            out.writeDouble(sxy);
+            out.writeDouble(syy);
+        }
+
+        void read(DataInputStream in) throws IOException {
+            count = in.readLong();
+            sx = in.readDouble();
+            sy = in.readDouble();
+            sxx = in.readDouble();
+            sxy = in.readDouble();
+            syy = in.readDouble();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.StringTokenizer;
+
+// vectors of a text file, one row per line separated by commas, tabs or blanks; a header line is skipped
+public class CsvVectorSource implements VectorSource {
+    private File file;
+    private BufferedReader in;
+    private int nVar;
+    private String pending;     // first data line, read while looking for the dimension
+
+    public CsvVectorSource(File file) throws IOException {
+        this.file = file;
+        rewind();
+        if (pending == null)
+            throw new IOException("no data in " + file);
+        nVar = new StringTokenizer(pending, ", \t").countTokens();
+    }
+
+    public int getDimension() {
+        return nVar;
+    }
+
+    public int read(double[] chunk) throws IOException {
+        int rows = 0;
+        int maxRows = chunk.length / nVar;
+        while (rows < maxRows) {
+            String record = pending != null ? pending : in.readLine();
+            pending = null;
+            if (record == null)
+                break;
+            StringTokenizer st = new StringTokenizer(record, ", \t");
+            if (!st.hasMoreTokens())
+                continue;
+            int o = rows * nVar;
+            for (int j = 0; j < nVar; j++) {
+                if (!st.hasMoreTokens())
+                    throw new IOException("short row in " + file + ": " + record);
+                chunk[o + j] = Double.parseDouble(st.nextToken());
+            }
+            rows++;
+        }
+        return rows;
+    }
+
+    public void rewind() throws IOException {
+        close();
+        in = new BufferedReader(new FileReader(file), 1 << 16);
+        pending = in.readLine();
+        while (pending != null && pending.trim().length() == 0)
+            pending = in.readLine();
+        if (pending != null && !isNumeric(pending))
+            pending = in.readLine();
+    }
+
+    public void close() throws IOException {
+        if (in != null)
+            in.close();
+        in = null;
+    }
+
+    private static boolean isNumeric(String record) {
+        StringTokenizer st = new StringTokenizer(record, ", \t");
+        try {
+            while (st.hasMoreTokens())
+                Double.parseDouble(st.nextToken());
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
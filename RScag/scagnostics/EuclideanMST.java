@@ -0,0 +1,510 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+ * Euclidean minimum spanning tree of the scagnostics vectors, built with Boruvka rounds over a
+ * kd-tree. In every round each point finds its nearest point in another component, in parallel,
+ * and each component is joined along its shortest outgoing edge. Edge lengths are squared
+ * distances summed in the same order as the Prim loop of Scagnostics, and since every MST has the
+ * same multiset of lengths, the boxplot cutoff and the outlier flags equal those of the Prim version.
+ */
+public class EuclideanMST {
+    private static final int LEAF_SIZE = 16;
+    private int nPts, nVar;
+    private double[] pts;             // row-major copy of the points
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int k = 8;                // neighbours kept per point
+
+    // kd-tree: node t holds idx[lo[t]..hi[t]), children left[t], right[t] (-1 for a leaf) and a bounding box
+    private int[] idx, lo, hi, left, right;
+    private double[] boxMin, boxMax;
+    private int nNodes;
+
+    private int[] knn;                // k nearest neighbours of every point, nearest first
+    private double[] kthLength;       // squared length to the last of them
+    private int[] comp;               // component of every point
+    private int[] nodeComp;           // component shared by all points of a node, -1 if mixed
+    private AtomicLongArray bound;    // per component, bits of the shortest outgoing edge found so far
+
+    private int[][] edges;
+    private double[] lengths;
+
+    public EuclideanMST(double[][] points) {
+        nPts = points.length;
+        nVar = nPts == 0 ? 0 : points[0].length;
+        pts = new double[nPts * nVar];
+        for (int i = 0; i < nPts; i++)
+            System.arraycopy(points[i], 0, pts, i * nVar, nVar);
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    // more neighbours answer more lookups without a tree search, at 4 bytes per point each
+    public void setNeighbors(int k) {
+        this.k = Math.max(1, k);
+    }
+
+    // the nPts - 1 edges of the tree as point index pairs, with their squared lengths in getLengths()
+    public int[][] compute() {
+        if (edges != null)
+            return edges;
+        edges = new int[Math.max(nPts - 1, 0)][2];
+        lengths = new double[Math.max(nPts - 1, 0)];
+        if (nPts < 2)
+            return edges;
+        k = Math.min(k, nPts - 1);
+        buildTree();
+        comp = new int[nPts];
+        for (int i = 0; i < nPts; i++)
+            comp[i] = i;
+        nodeComp = new int[nNodes];
+        bound = new AtomicLongArray(nPts);
+
+        final int[] nearest = new int[nPts];
+        final double[] nearestLength = new double[nPts];
+        Arrays.fill(nearest, -1);
+        int[] best = new int[nPts];       // per component, the point whose edge is shortest
+        int nEdges = 0;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            parallel(pool, new Range() {
+                public void run(int from, int to) {
+                    neighbors(from, to);
+                }
+            });
+            while (nEdges < nPts - 1) {
+                int added = nEdges;
+                updateNodeComponents(0);
+                findNearest(pool, nearest, nearestLength);
+
+                Arrays.fill(best, -1);
+                for (int i = 0; i < nPts; i++) {
+                    int c = comp[i];
+                    if (nearest[i] >= 0 && (best[c] < 0 || shorter(nearestLength[i], i, nearest[i],
+                            nearestLength[best[c]], best[c], nearest[best[c]])))
+                        best[c] = i;
+                }
+                for (int c = 0; c < nPts; c++) {
+                    int i = best[c];
+                    if (i < 0)
+                        continue;
+                    int a = find(i);
+                    int b = find(nearest[i]);
+                    if (a == b)
+                        continue;     // the other component chose the same edge
+                    union(a, b);
+                    edges[nEdges][0] = i;
+                    edges[nEdges][1] = nearest[i];
+                    lengths[nEdges] = nearestLength[i];
+                    nEdges++;
+                }
+                if (nEdges == added)
+                    throw new IllegalArgumentException("points must be finite");
+                for (int i = 0; i < nPts; i++)
+                    comp[i] = find(i);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return edges;
+    }
+
+    public double[] getLengths() {
+        compute();
+        return lengths;
+    }
+
+    // same cutoff and flags as Scagnostics.computeScagnosticsOutliers
+    public boolean[] computeOutliers() {
+        if (nPts < 2)
+            return null;
+        compute();
+        double cutoff = Scagnostics.findCutoff(lengths);
+        boolean[] outliers = new boolean[nPts];
+        Arrays.fill(outliers, true);
+        for (int i = 0; i < nPts - 1; i++) {
+            if (lengths[i] < cutoff) {
+                outliers[edges[i][0]] = false;
+                outliers[edges[i][1]] = false;
+            }
+        }
+        return outliers;
+    }
+
+    // ties are broken by point indices so that Boruvka never closes a cycle
+    private static boolean shorter(double w1, int a1, int b1, double w2, int a2, int b2) {
+        if (w1 != w2)
+            return w1 < w2;
+        int lo1 = Math.min(a1, b1), lo2 = Math.min(a2, b2);
+        if (lo1 != lo2)
+            return lo1 < lo2;
+        return Math.max(a1, b1) < Math.max(a2, b2);
+    }
+
+    /*
+     * Components only grow, so a nearest point that is still in another component stays the nearest,
+     * and the first neighbour of the list that is in another component is the nearest one. A point
+     * whose neighbours all share its component is only searched for when its last neighbour is not
+     * farther than the best edge its component has so far.
+     */
+    private void findNearest(ExecutorService pool, final int[] nearest, final double[] nearestLength) {
+        long inf = Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+        for (int c = 0; c < nPts; c++)
+            bound.set(c, inf);
+        final boolean[] searched = new boolean[nPts];
+        parallel(pool, new Range() {
+            public void run(int from, int to) {
+                for (int i = from; i < to; i++) {
+                    if (nearest[i] < 0 || comp[nearest[i]] == comp[i]) {
+                        nearest[i] = -1;
+                        for (int j = i * k; j < (i + 1) * k; j++) {
+                            if (comp[knn[j]] != comp[i]) {
+                                nearest[i] = knn[j];
+                                nearestLength[i] = distance(i, knn[j], Double.POSITIVE_INFINITY);
+                                break;
+                            }
+                        }
+                    }
+                    if (nearest[i] >= 0)
+                        lowerBound(comp[i], nearestLength[i]);
+                }
+            }
+        });
+        parallel(pool, new Range() {
+            public void run(int from, int to) {
+                double[] result = new double[2];
+                for (int t = from; t < to; t++) {
+                    int i = idx[t];    // tree order, so that neighbouring searches share their paths
+                    if (nearest[i] >= 0 || kthLength[i] > Double.longBitsToDouble(bound.get(comp[i])))
+                        continue;
+                    result[0] = Double.POSITIVE_INFINITY;
+                    result[1] = -1;
+                    nearestOtherComponent(0, i, result);
+                    if (result[1] >= 0) {
+                        nearest[i] = (int) result[1];
+                        nearestLength[i] = result[0];
+                        lowerBound(comp[i], result[0]);
+                    }
+                }
+            }
+        });
+    }
+
+    // lengths are not negative, so their bit patterns order like the values
+    private void lowerBound(int c, double length) {
+        long bits = Double.doubleToLongBits(length);
+        long old = bound.get(c);
+        while (bits < old && !bound.compareAndSet(c, old, bits))
+            old = bound.get(c);
+    }
+
+    // result = {squared length, point} of the shortest edge from q to a point of another component
+    private void nearestOtherComponent(int node, int q, double[] result) {
+        if (nodeComp[node] == comp[q])
+            return;
+        double limit = Math.min(result[0], Double.longBitsToDouble(bound.get(comp[q])));
+        if (boxDistance(node, q) > limit)
+            return;
+        if (left[node] < 0) {
+            for (int t = lo[node]; t < hi[node]; t++) {
+                int j = idx[t];
+                if (comp[j] == comp[q])
+                    continue;
+                double dist = distance(q, j, limit);
+                if (dist > limit)
+                    continue;
+                if (result[1] < 0 || dist < result[0] || (dist == result[0] && j < result[1])) {
+                    result[0] = dist;
+                    result[1] = j;
+                    limit = Math.min(limit, dist);
+                }
+            }
+            return;
+        }
+        int l = left[node], r = right[node];
+        if (boxDistance(r, q) < boxDistance(l, q)) {
+            int t = l;
+            l = r;
+            r = t;
+        }
+        nearestOtherComponent(l, q, result);
+        nearestOtherComponent(r, q, result);
+    }
+
+    // k nearest neighbours of the points from..to, ordered by length and then index
+    private void neighbors(int from, int to) {
+        int[] heap = new int[k];
+        double[] heapLength = new double[k];
+        int[] size = new int[1];
+        for (int i = from; i < to; i++) {
+            size[0] = 0;
+            nearestK(0, i, heap, heapLength, size);
+            // heap sort, largest last
+            for (int n = k - 1; n > 0; n--) {
+                swap(heap, heapLength, 0, n);
+                siftDown(heap, heapLength, 0, n);
+            }
+            System.arraycopy(heap, 0, knn, i * k, k);
+            kthLength[i] = heapLength[k - 1];
+        }
+    }
+
+    private void nearestK(int node, int q, int[] heap, double[] heapLength, int[] size) {
+        double limit = size[0] < k ? Double.POSITIVE_INFINITY : heapLength[0];
+        if (boxDistance(node, q) > limit)
+            return;
+        if (left[node] < 0) {
+            for (int t = lo[node]; t < hi[node]; t++) {
+                int j = idx[t];
+                if (j == q)
+                    continue;
+                double dist = distance(q, j, limit);
+                if (size[0] < k) {
+                    heap[size[0]] = j;
+                    heapLength[size[0]] = dist;
+                    siftUp(heap, heapLength, size[0]++);
+                } else if (dist < heapLength[0] || (dist == heapLength[0] && j < heap[0])) {
+                    heap[0] = j;
+                    heapLength[0] = dist;
+                    siftDown(heap, heapLength, 0, k);
+                } else {
+                    continue;
+                }
+                limit = size[0] < k ? Double.POSITIVE_INFINITY : heapLength[0];
+            }
+            return;
+        }
+        int l = left[node], r = right[node];
+        if (boxDistance(r, q) < boxDistance(l, q)) {
+            int t = l;
+            l = r;
+            r = t;
+        }
+        nearestK(l, q, heap, heapLength, size);
+        nearestK(r, q, heap, heapLength, size);
+    }
+
+    // max-heap on (length, index)
+    private static boolean after(double[] heapLength, int[] heap, int a, int b) {
+        return heapLength[a] > heapLength[b] || (heapLength[a] == heapLength[b] && heap[a] > heap[b]);
+    }
+
+    private static void siftUp(int[] heap, double[] heapLength, int c) {
+        while (c > 0) {
+            int p = (c - 1) / 2;
+            if (!after(heapLength, heap, c, p))
+                return;
+            swap(heap, heapLength, c, p);
+            c = p;
+        }
+    }
+
+    private static void siftDown(int[] heap, double[] heapLength, int p, int n) {
+        while (true) {
+            int c = 2 * p + 1;
+            if (c >= n)
+                return;
+            if (c + 1 < n && after(heapLength, heap, c + 1, c))
+                c++;
+            if (!after(heapLength, heap, c, p))
+                return;
+            swap(heap, heapLength, c, p);
+            p = c;
+        }
+    }
+
+    private static void swap(int[] heap, double[] heapLength, int a, int b) {
+        int t = heap[a];
+        heap[a] = heap[b];
+        heap[b] = t;
+        double d = heapLength[a];
+        heapLength[a] = heapLength[b];
+        heapLength[b] = d;
+    }
+
+    // squared distance, given up once it exceeds limit
+    private double distance(int a, int b, double limit) {
+        int ao = a * nVar;
+        int bo = b * nVar;
+        double dist = 0.;
+        for (int v = 0; v < nVar && dist <= limit; v++) {
+            double d = pts[ao + v] - pts[bo + v];
+            dist += d * d;
+        }
+        return dist;
+    }
+
+    private double boxDistance(int node, int q) {
+        double dist = 0.;
+        int bo = node * nVar;
+        int qo = q * nVar;
+        for (int v = 0; v < nVar; v++) {
+            double x = pts[qo + v];
+            double d = 0;
+            if (x < boxMin[bo + v])
+                d = boxMin[bo + v] - x;
+            else if (x > boxMax[bo + v])
+                d = x - boxMax[bo + v];
+            dist += d * d;
+        }
+        return dist;
+    }
+
+    private int updateNodeComponents(int node) {
+        int c;
+        if (left[node] < 0) {
+            c = comp[idx[lo[node]]];
+            for (int t = lo[node] + 1; t < hi[node] && c >= 0; t++)
+                if (comp[idx[t]] != c) c = -1;
+        } else {
+            int a = updateNodeComponents(left[node]);
+            int b = updateNodeComponents(right[node]);
+            c = a == b ? a : -1;
+        }
+        nodeComp[node] = c;
+        return c;
+    }
+
+    private int find(int i) {
+        while (comp[i] != i) {
+            comp[i] = comp[comp[i]];
+            i = comp[i];
+        }
+        return i;
+    }
+
+    private void union(int a, int b) {
+        if (a < b)
+            comp[b] = a;
+        else
+            comp[a] = b;
+    }
+
+    private interface Range {
+        void run(int from, int to);
+    }
+
+    private void parallel(ExecutorService pool, final Range range) {
+        int chunk = Math.max(1024, nPts / (threads * 8));
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int s = 0; s < nPts; s += chunk) {
+            final int from = s;
+            final int to = Math.min(nPts, s + chunk);
+            futures.add(pool.submit(new Runnable() {
+                public void run() {
+                    range.run(from, to);
+                }
+            }));
+        }
+        try {
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    private void buildTree() {
+        idx = new int[nPts];
+        for (int i = 0; i < nPts; i++)
+            idx[i] = i;
+        int maxNodes = 2 * (nPts / LEAF_SIZE + 1) * 2;
+        lo = new int[maxNodes];
+        hi = new int[maxNodes];
+        left = new int[maxNodes];
+        right = new int[maxNodes];
+        boxMin = new double[maxNodes * nVar];
+        boxMax = new double[maxNodes * nVar];
+        nNodes = 0;
+        build(0, nPts);
+        knn = new int[nPts * k];
+        kthLength = new double[nPts];
+    }
+
+    private int build(int from, int to) {
+        int node = nNodes++;
+        lo[node] = from;
+        hi[node] = to;
+        int bo = node * nVar;
+        Arrays.fill(boxMin, bo, bo + nVar, Double.POSITIVE_INFINITY);
+        Arrays.fill(boxMax, bo, bo + nVar, Double.NEGATIVE_INFINITY);
+        for (int t = from; t < to; t++) {
+            int po = idx[t] * nVar;
+            for (int v = 0; v < nVar; v++) {
+                boxMin[bo + v] = Math.min(boxMin[bo + v], pts[po + v]);
+                boxMax[bo + v] = Math.max(boxMax[bo + v], pts[po + v]);
+            }
+        }
+        if (to - from <= LEAF_SIZE) {
+            left[node] = right[node] = -1;
+            return node;
+        }
+        int split = 0;
+        for (int v = 1; v < nVar; v++)
+            if (boxMax[bo + v] - boxMin[bo + v] > boxMax[bo + split] - boxMin[bo + split]) split = v;
+        int mid = (from + to) >>> 1;
+        select(from, to - 1, mid, split);
+        left[node] = build(from, mid);
+        right[node] = build(mid, to);
+        return node;
+    }
+
+    // quickselect on idx[from..to] so that idx[m] holds the m-th smallest coordinate v
+    private void select(int from, int to, int m, int v) {
+        while (to > from) {
+            double pivot = pts[idx[(from + to) >>> 1] * nVar + v];
+            int i = from, j = to;
+            while (i <= j) {
+                while (pts[idx[i] * nVar + v] < pivot) i++;
+                while (pts[idx[j] * nVar + v] > pivot) j--;
+                if (i <= j) {
+                    int t = idx[i];
+                    idx[i] = idx[j];
+                    idx[j] = t;
+                    i++;
+                    j--;
+                }
+            }
+            if (m <= j)
+                to = j;
+            else if (m >= i)
+                from = i;
+            else
+                return;
+        }
+    }
+}
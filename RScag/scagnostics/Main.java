@@ -27,12 +27,26 @@ import java.util.*;
 
 public class Main {
 
+    /*
+     * Main [data.csv|directory] [-bins numBins] [-maxBins maxBins]
+     * Computes every .csv file of the directory (Rscag/data by default), or the one file given.
+     */
     public static void main(String[] argv) {
         int numBins = 50;    // user setting for number of bins
         int maxBins = 1000;  // user setting for maximum number of nonempty bins allowed (maxBins >= numBins*numBins)
 
         String fold_path = "Rscag//data//";
-        File[] files = getFileList(fold_path, ".csv");
+        int first = 0;
+        if (argv.length > 0 && !argv[0].startsWith("-")) {
+            fold_path = argv[0];
+            first = 1;
+        }
+        for (int i = first; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-bins")) numBins = Integer.parseInt(argv[i + 1]);
+            else if (argv[i].equals("-maxBins")) maxBins = Integer.parseInt(argv[i + 1]);
+            else throw new IllegalArgumentException("Unknown option " + argv[i]);
+        }
+        File[] files = new File(fold_path).isFile() ? new File[]{new File(fold_path)} : getFileList(fold_path, ".csv");
         for (File file : files) {
             System.out.println(file.getName());
             double[][] points = getData(file);
@@ -57,7 +71,7 @@ public class Main {
         return files;
     }
 
-    private static double[][] getData(File fname) {
+    static double[][] getData(File fname) {
         java.io.BufferedReader fin;
         try {
             fin = new java.io.BufferedReader(new java.io.FileReader(fname));
@@ -145,14 +159,15 @@ public class Main {
     }
 
     private static double[][] computeScagnostics(double[][] points, int numBins, int maxBins) {
-        normalizePoints(points);
+        ColumnCache columns = new ColumnCache(points);
+        Binner binner = new Binner(maxBins);
         int nDim = points.length;
         int numCells = nDim * (nDim - 1) / 2;
         double[][] scagnostics = new double[numCells][Scagnostics.getNumScagnostics()];
         int k = 0;
         for (int i = 1; i < nDim; i++) {
             for (int j = 0; j < i; j++) {
-                Scagnostics s = new Scagnostics(points[j], points[i], numBins, maxBins);
+                Scagnostics s = new Scagnostics(columns.bin(binner, j, i, numBins));
                 scagnostics[k] = s.compute();
                 k++;
             }
@@ -160,7 +175,7 @@ public class Main {
         return scagnostics;
     }
 
-    private static void normalizePoints(double[][] points) {
+    static void normalizePoints(double[][] points) {
         double[] min = new double[points.length];
         double[] max = new double[points.length];
         for (int i = 0; i < points.length; i++)
@@ -0,0 +1,66 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+/*
+ * Computes the RScag, Scag-05 and Scag-06 scagnostics of one scatterplot.
+ * Scag-05 and Scag-06 only differ in their outlier peeling, so they share the
+ * hexagonal binning, the initial triangulation and MST and every later
+ * triangulation on which their outlier sets still agree.
+ */
+public class MultiScagnostics {
+    private double[] x, y;
+    private int numBins, maxBins;
+
+    public MultiScagnostics(double[] x, double[] y, int numBins, int maxBins) {
+        this.x = x;
+        this.y = y;
+        this.numBins = numBins;
+        this.maxBins = maxBins;
+    }
+
+    public double[] compute(Variant variant) {
+        Binner b = new Binner(maxBins);
+        switch (variant) {
+            case RSCAG:
+                return new Scagnostics(b.binHex(x, y, numBins, 3)).compute();
+            case SCAG_05:
+                return new ClassicScagnostics(b.binHexagonal(x, y, numBins)).compute(
+                        new OutlierPolicy[]{OutlierPolicy.DEGREE_ONE})[0];
+            default:
+                return new ClassicScagnostics(b.binHexagonal(x, y, numBins)).compute(
+                        new OutlierPolicy[]{OutlierPolicy.ANY_DEGREE})[0];
+        }
+    }
+
+    // one row per Variant, in declaration order
+    public double[][] compute() {
+        Binner b = new Binner(maxBins);
+        double[][] results = new double[Variant.values().length][];
+        results[Variant.RSCAG.ordinal()] = new Scagnostics(b.binHex(x, y, numBins, 3)).compute();
+        double[][] classic = new ClassicScagnostics(b.binHexagonal(x, y, numBins)).compute(
+                new OutlierPolicy[]{OutlierPolicy.DEGREE_ONE, OutlierPolicy.ANY_DEGREE});
+        results[Variant.SCAG_05.ordinal()] = classic[0];
+        results[Variant.SCAG_06.ordinal()] = classic[1];
+        return results;
+    }
+}
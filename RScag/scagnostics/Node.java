@@ -29,7 +29,7 @@ class Node {
     protected int x, y;          // coordinate X,Y
     protected double count;        // number of points aggregated at this node
     protected Edge anEdge;     // an edge which starts from this node
-    protected List neighbors;   // nearest Delaunay neighbors list
+    protected List<Edge> neighbors;   // nearest Delaunay neighbors list
     protected boolean onMST;
     protected boolean onHull = false;
     protected boolean isVisited = false;
@@ -43,7 +43,7 @@ class Node {
         this.y = y;
         this.count = count;
         anEdge = null;
-        neighbors = new ArrayList();
+        neighbors = new ArrayList<Edge>();
         this.pointID = pointID;
     }
 
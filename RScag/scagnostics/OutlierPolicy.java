@@ -0,0 +1,66 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// MST outlier peeling of the classic scagnostics, Scag-05 only peels leaves of the MST
+enum OutlierPolicy {
+    DEGREE_ONE(true),
+    ANY_DEGREE(false);
+
+    private final boolean leavesOnly;
+
+    OutlierPolicy(boolean leavesOnly) {
+        this.leavesOnly = leavesOnly;
+    }
+
+    // marks the nodes whose MST edges are all at least omega and adds their edge lengths to outlierLength[0];
+    // the triangulation itself is left untouched so that it can be shared between policies
+    boolean peel(Triangulation dt, double omega, boolean[] isOutlier, double[] outlierLength) {
+        boolean found = false;
+        Set<Edge> counted = new HashSet<Edge>();
+        for (Node n : dt.nodes) {
+            if (leavesOnly && n.getMstDegree() != 1) {
+                continue;
+            }
+            boolean delete = true;
+            for (Edge e : n.neighbors) {
+                if (e.onMST && e.weight < omega)
+                    delete = false;
+            }
+            if (delete) {
+                double sumlength = 0;
+                for (Edge e : n.neighbors) {
+                    if (e.onMST && counted.add(e)) {
+                        sumlength += e.weight;
+                    }
+                }
+                outlierLength[0] += sumlength;
+                isOutlier[n.pointID] = true;
+                found = true;
+            }
+        }
+        return found;
+    }
+}
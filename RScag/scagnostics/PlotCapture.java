@@ -0,0 +1,229 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Keeps the plots that take longer than a threshold, so that they can be replayed (PlotReplay) long after
+ * the run. Runners bin every plot with a seed from nextSeed and offer it with its time once computed;
+ * slow ones are appended to the capture file with the normalized pair, numBins, maxBins, variant and seed.
+ * The file starts with MAGIC and a version, followed by one record per plot: time, label, variant, flags,
+ * numBins, maxBins, seed, nanos, the number of rows and the x and y values as doubles.
+ */
+public class PlotCapture implements Closeable {
+    private static final byte[] MAGIC = {'R', 'S', 'C', 'A', 'G', 'C', 'A', 'P'};
+    private static final int VERSION = 1;
+    private static final int CANONICAL = 1, TIMED_OUT = 2;
+
+    private final long threshold;
+    private int maxPlots = 1000;
+    private int captured;
+    private final Random seeds = new Random();
+    private DataOutputStream out;
+
+    // appends to file, which must be a capture file if it exists; plots slower than millis are captured
+    public PlotCapture(File file, long millis) throws IOException {
+        threshold = millis * 1000000L;
+        boolean append = file.exists() && file.length() > 0;
+        if (append) {
+            long complete = scan(file, null);
+            if (complete < file.length()) {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                    raf.setLength(complete);
+                }
+            }
+        }
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, append)));
+        if (!append) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.flush();
+        }
+    }
+
+    // at most this many plots are written, so that a low threshold cannot fill the disk
+    public void setMaxPlots(int maxPlots) {
+        this.maxPlots = maxPlots;
+    }
+
+    public synchronized int getCaptured() {
+        return captured;
+    }
+
+    public synchronized long nextSeed() {
+        return seeds.nextLong();
+    }
+
+    /*
+     * Captures the plot if nanos is above the threshold or it timed out. x and y are the normalized
+     * columns and seed the seed of the binner; canonical is Binner.setCanonical. Returns whether it was
+     * captured.
+     */
+    public boolean offer(String label, double[] x, double[] y, Variant variant, int numBins, int maxBins,
+                         long seed, boolean canonical, long nanos, boolean timedOut) {
+        if (nanos <= threshold && !timedOut)
+            return false;
+        synchronized (this) {
+            if (out == null || captured >= maxPlots)
+                return false;
+            try {
+                out.writeLong(System.currentTimeMillis());
+                out.writeUTF(label);
+                out.writeByte(variant.ordinal());
+                out.writeByte((canonical ? CANONICAL : 0) | (timedOut ? TIMED_OUT : 0));
+                out.writeInt(numBins);
+                out.writeInt(maxBins);
+                out.writeLong(seed);
+                out.writeLong(nanos);
+                out.writeInt(x.length);
+                for (double v : x)
+                    out.writeDouble(v);
+                for (double v : y)
+                    out.writeDouble(v);
+                out.flush();
+                captured++;
+                return true;
+            } catch (IOException e) {
+                // a capture must not fail the run; stop capturing
+                System.err.println("plot capture stopped: " + e);
+                out = null;
+                return false;
+            }
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (out != null)
+            out.close();
+        out = null;
+    }
+
+    public static List<CapturedPlot> read(File file) throws IOException {
+        List<CapturedPlot> plots = new ArrayList<CapturedPlot>();
+        scan(file, plots);
+        return plots;
+    }
+
+    /*
+     * Reads the records of file into plots, or only skips them if plots is null, and returns the length of
+     * the file up to the end of the last complete record. A record cut short when a run died ends the scan;
+     * the constructor truncates it before appending.
+     */
+    private static long scan(File file, List<CapturedPlot> plots) throws IOException {
+        try (CountingInputStream counter = new CountingInputStream(new BufferedInputStream(new FileInputStream(file)));
+             DataInputStream in = new DataInputStream(counter)) {
+            readHeader(in, file);
+            long complete = counter.count;
+            byte[] scratch = new byte[8192];
+            while (true) {
+                CapturedPlot p = new CapturedPlot();
+                try {
+                    p.time = in.readLong();
+                    p.label = in.readUTF();
+                    int variant = in.readByte();
+                    if (variant < 0 || variant >= Variant.values().length)
+                        break;
+                    p.variant = Variant.values()[variant];
+                    int flags = in.readByte();
+                    p.canonical = (flags & CANONICAL) != 0;
+                    p.timedOut = (flags & TIMED_OUT) != 0;
+                    p.numBins = in.readInt();
+                    p.maxBins = in.readInt();
+                    p.seed = in.readLong();
+                    p.nanos = in.readLong();
+                    int n = in.readInt();
+                    if (n < 0)
+                        break;
+                    if (plots == null) {
+                        // read rather than skip: FileInputStream.skip goes past the end without an error
+                        for (long left = 16L * n; left > 0; left -= scratch.length)
+                            in.readFully(scratch, 0, (int) Math.min(left, scratch.length));
+                    } else {
+                        if (16L * n > file.length() - counter.count)
+                            break;
+                        p.x = new double[n];
+                        p.y = new double[n];
+                        for (int i = 0; i < n; i++)
+                            p.x[i] = in.readDouble();
+                        for (int i = 0; i < n; i++)
+                            p.y[i] = in.readDouble();
+                    }
+                } catch (EOFException e) {
+                    break;
+                }
+                complete = counter.count;
+                if (plots != null)
+                    plots.add(p);
+            }
+            return complete;
+        }
+    }
+
+    private static void readHeader(DataInputStream in, File file) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        in.readFully(magic);
+        for (int i = 0; i < MAGIC.length; i++)
+            if (magic[i] != MAGIC[i])
+                throw new IOException(file + " is not a plot capture file");
+        int version = in.readInt();
+        if (version != VERSION)
+            throw new IOException(file + " has version " + version + ", expected " + VERSION);
+    }
+
+    private static class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0)
+                count++;
+            return b;
+        }
+
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0)
+                count += n;
+            return n;
+        }
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * Synthetic scatterplots following the R scripts in dataset/data_analysis (binormal, clustered,
+ * exponential, funnel, ...). Plots come out as normalized x and y columns that can be handed to
+ * Scagnostics directly, so benchmark and soak runs need neither R nor files.
+ */
+public class PlotGenerator {
+    private static final String[] families = {"binormal", "bivariate", "clustered", "doughnut", "exponential",
+            "funnel", "quadratic", "rays", "rpois", "spherical", "stripe"};
+
+    private Random random;
+    private double noise;       // sd of gaussian jitter, as a fraction of each column's range
+    private double outliers;    // fraction of points replaced by uniform points around the plot
+
+    public PlotGenerator(long seed) {
+        this(seed, 0, 0);
+    }
+
+    public PlotGenerator(long seed, double noise, double outliers) {
+        if (noise < 0 || outliers < 0 || outliers > 1)
+            throw new IllegalArgumentException("noise must be >= 0 and outliers in [0, 1]");
+        this.random = new Random(seed);
+        this.noise = noise;
+        this.outliers = outliers;
+    }
+
+    public static String[] getFamilies() {
+        return families.clone();
+    }
+
+    // returns {x, y}, both normalized to [0, 1]; successive calls continue the same random stream
+    public double[][] generate(String family, int n) {
+        if (n < 1)
+            throw new IllegalArgumentException("n must be positive");
+        double[] x = new double[n];
+        double[] y = new double[n];
+        switch (family) {
+            case "binormal":
+                normal(x, y, 0, 2, 0, 2, .6);
+                break;
+            case "bivariate":
+                normal(x, y, 1, 2, 1, 8, -.6);
+                break;
+            case "clustered":
+                clustered(x, y);
+                break;
+            case "doughnut":
+                doughnut(x, y, 3, 6);
+                break;
+            case "exponential":
+                exponential(x, y);
+                break;
+            case "funnel":
+                funnel(x, y);
+                break;
+            case "quadratic":
+                quadratic(x, y);
+                break;
+            case "rays":
+                rays(x, y);
+                break;
+            case "rpois":
+                rpois(x, y, 8);
+                break;
+            case "spherical":
+                spherical(x, y);
+                break;
+            case "stripe":
+                stripe(x, y);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown family " + family + ", expected one of "
+                        + Arrays.toString(families));
+        }
+        addNoise(x, y);
+        addOutliers(x, y);
+        normalize(x);
+        normalize(y);
+        return new double[][]{x, y};
+    }
+
+    public Scagnostics scagnostics(String family, int n, int numBins, int maxBins) {
+        double[][] xy = generate(family, n);
+        return new Scagnostics(xy[0], xy[1], numBins, maxBins);
+    }
+
+    private void normal(double[] x, double[] y, double mu1, double s1, double mu2, double s2, double rho) {
+        double s = Math.sqrt(1 - rho * rho);
+        for (int i = 0; i < x.length; i++) {
+            double z1 = random.nextGaussian();
+            double z2 = random.nextGaussian();
+            x[i] = mu1 + s1 * z1;
+            y[i] = mu2 + s2 * (rho * z1 + s * z2);
+        }
+    }
+
+    // three balls on the corners of a triangle, seen from above
+    private void clustered(double[] x, double[] y) {
+        double l1 = uniform(10, 100);
+        double l2 = uniform(10, 100);
+        double l3 = uniform(10, 100);
+        double[][] centers = {{-l1 / 2, 0}, {l2 / 2, 0}, {0, l3 / 2 * Math.sqrt(3)}};
+        int n = x.length;
+        for (int i = 0; i < n; i++) {
+            double[] c = centers[3 * i / n];
+            ball(x, y, i, c[0], c[1], 3, 3);
+        }
+    }
+
+    private void spherical(double[] x, double[] y) {
+        double a = uniform(.01, 1);
+        double b = uniform(.01, 1);
+        double inner = Math.min(a, b);
+        double outer = Math.max(a, b);
+        for (int i = 0; i < x.length; i++)
+            ball(x, y, i, -10, 0, inner, outer);
+    }
+
+    // a point of the shell between radii inner and outer, uniform in volume, projected on the plane
+    private void ball(double[] x, double[] y, int i, double cx, double cy, double inner, double outer) {
+        double inner3 = inner * inner * inner;
+        double r = Math.cbrt(random.nextDouble() * (outer * outer * outer - inner3) + inner3);
+        double phi = Math.acos(uniform(-1, 1));
+        double th = 2 * Math.PI * random.nextDouble();
+        x[i] = r * Math.sin(phi) * Math.sin(th) + cx;
+        y[i] = r * Math.sin(phi) * Math.cos(th) + cy;
+    }
+
+    private void doughnut(double[] x, double[] y, double inner, double outer) {
+        int i = 0;
+        while (i < x.length) {
+            double px = uniform(-outer, outer);
+            double py = uniform(-outer, outer);
+            double d = px * px + py * py;
+            if (d > inner * inner && d < outer * outer) {
+                x[i] = px;
+                y[i] = py;
+                i++;
+            }
+        }
+    }
+
+    private void exponential(double[] x, double[] y) {
+        double rate = .1;
+        double range = uniform(1, 3);
+        for (int i = 0; i < x.length; i++) {
+            x[i] = -Math.log(1 - random.nextDouble()) / rate + uniform(-range, range);
+            y[i] = -Math.log(1 - random.nextDouble()) / rate + uniform(-range, range);
+        }
+    }
+
+    // exponentiated correlated normals, the correlation chosen so that exp(x), exp(y) correlate at .6
+    private void funnel(double[] x, double[] y) {
+        double s1, s2, rho;
+        do {
+            s1 = uniform(1, 10);
+            s2 = uniform(1, 10);
+            rho = Math.log(.6 * Math.sqrt((Math.exp(s1) - 1) * (Math.exp(s2) - 1)) + 1) / Math.sqrt(s1 * s2);
+        } while (rho > 1);
+        normal(x, y, uniform(1, 10), Math.sqrt(s1), uniform(1, 10), Math.sqrt(s2), rho);
+        for (int i = 0; i < x.length; i++) {
+            x[i] = Math.exp(x[i]);
+            y[i] = Math.exp(y[i]);
+        }
+    }
+
+    private void quadratic(double[] x, double[] y) {
+        double a = uniform(-10, 10);
+        double b = uniform(-10, 10);
+        double c = uniform(-10, 10);
+        double lift = (Math.abs(a) + Math.abs(b) + Math.abs(c)) / 3;
+        double range1 = uniform(3, 10);
+        double range2 = uniform(3, 10);
+        double vertex = -b / (2 * a);
+        double step = (range1 + range2) / x.length;
+        for (int i = 0; i < x.length; i++) {
+            x[i] = vertex - range1 + i * step;
+            y[i] = a * x[i] * x[i] + b * x[i] + c + uniform(-lift, lift);
+        }
+    }
+
+    private void rays(double[] x, double[] y) {
+        double maxY = (1 + (int) uniform(10, 100)) * uniform(.2, 1.5);
+        for (int i = 0; i < x.length; i++) {
+            x[i] = random.nextDouble();
+            y[i] = (int) uniform(1, maxY) * x[i];
+        }
+    }
+
+    // unit grid cells holding 1 + Poisson(lambda) uniform points each
+    private void rpois(double[] x, double[] y, double lambda) {
+        int side = Math.max(1, (int) Math.round(Math.sqrt(x.length / (lambda + 1))));
+        int i = 0;
+        int cell = 0;
+        while (i < x.length) {
+            int gx = cell % (side * side) / side;
+            int gy = cell % side;
+            int count = 1 + poisson(lambda);
+            for (int k = 0; k < count && i < x.length; k++, i++) {
+                x[i] = gx + random.nextDouble();
+                y[i] = gy + random.nextDouble();
+            }
+            cell++;
+        }
+    }
+
+    private void stripe(double[] x, double[] y) {
+        double maxY = (1 + (int) uniform(10, 100)) * uniform(.2, 1.5);
+        for (int i = 0; i < x.length; i++) {
+            x[i] = (int) uniform(1, 6);
+            y[i] = uniform(1, maxY);
+        }
+    }
+
+    private void addNoise(double[] x, double[] y) {
+        if (noise == 0)
+            return;
+        double sx = noise * range(x);
+        double sy = noise * range(y);
+        for (int i = 0; i < x.length; i++) {
+            x[i] += sx * random.nextGaussian();
+            y[i] += sy * random.nextGaussian();
+        }
+    }
+
+    // outliers land anywhere in a box three times the size of the plot
+    private void addOutliers(double[] x, double[] y) {
+        int n = (int) Math.round(outliers * x.length);
+        if (n == 0)
+            return;
+        double[] bx = bounds(x);
+        double[] by = bounds(y);
+        double wx = bx[1] - bx[0];
+        double wy = by[1] - by[0];
+        for (int k = 0; k < n; k++) {
+            int i = random.nextInt(x.length);
+            x[i] = uniform(bx[0] - wx, bx[1] + wx);
+            y[i] = uniform(by[0] - wy, by[1] + wy);
+        }
+    }
+
+    private double uniform(double min, double max) {
+        return min + (max - min) * random.nextDouble();
+    }
+
+    private int poisson(double lambda) {
+        double l = Math.exp(-lambda);
+        double p = random.nextDouble();
+        int k = 0;
+        while (p > l) {
+            p *= random.nextDouble();
+            k++;
+        }
+        return k;
+    }
+
+    private static double[] bounds(double[] v) {
+        double min = v[0];
+        double max = v[0];
+        for (int i = 1; i < v.length; i++) {
+            if (v[i] < min)
+                min = v[i];
+            else if (v[i] > max)
+                max = v[i];
+        }
+        return new double[]{min, max};
+    }
+
+    private static double range(double[] v) {
+        double[] b = bounds(v);
+        return b[1] - b[0];
+    }
+
+    private static void normalize(double[] v) {
+        double[] b = bounds(v);
+        double width = b[1] - b[0];
+        for (int i = 0; i < v.length; i++)
+            v[i] = width > 0 ? (v[i] - b[0]) / width : 0;
+    }
+
+    /*
+     * PlotGenerator <family|all> [-n points] [-count plots] [-seed s] [-noise sd] [-outliers fraction]
+     *               [-bins numBins] [-maxBins maxBins] [-csv directory]
+     * Without -csv every plot goes straight into Scagnostics and its measures are printed.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length == 0) {
+            System.out.println("usage: PlotGenerator <family|all> [-n points] [-count plots] [-seed s] [-noise sd]"
+                    + " [-outliers fraction] [-bins numBins] [-maxBins maxBins] [-csv directory]");
+            System.out.println("families: " + Arrays.toString(families));
+            return;
+        }
+        String[] which = argv[0].equals("all") ? families : new String[]{argv[0]};
+        int n = 1000;
+        int count = 1;
+        long seed = 1;
+        double noise = 0;
+        double outliers = 0;
+        int numBins = 50;
+        int maxBins = 1000;
+        File csv = null;
+        for (int i = 1; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-n": n = Integer.parseInt(value); break;
+                case "-count": count = Integer.parseInt(value); break;
+                case "-seed": seed = Long.parseLong(value); break;
+                case "-noise": noise = Double.parseDouble(value); break;
+                case "-outliers": outliers = Double.parseDouble(value); break;
+                case "-bins": numBins = Integer.parseInt(value); break;
+                case "-maxBins": maxBins = Integer.parseInt(value); break;
+                case "-csv": csv = new File(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        if (csv != null && !csv.isDirectory() && !csv.mkdirs())
+            throw new IOException("Cannot create " + csv);
+
+        PlotGenerator generator = new PlotGenerator(seed, noise, outliers);
+        String[] labels = Scagnostics.getScagnosticsLabels();
+        if (csv == null)
+            System.out.println("family,plot," + String.join(",", labels));
+        for (String family : which) {
+            for (int k = 0; k < count; k++) {
+                double[][] xy = generator.generate(family, n);
+                if (csv != null) {
+                    writeCsv(new File(csv, family + "_" + n + "_" + (k + 1) + ".csv"), xy);
+                } else {
+                    double[] s = new Scagnostics(xy[0], xy[1], numBins, maxBins).compute();
+                    StringBuilder sb = new StringBuilder(family).append(',').append(k + 1);
+                    for (int j = 0; j < labels.length; j++)
+                        sb.append(',').append(s == null ? Double.NaN : s[j]);
+                    System.out.println(sb);
+                }
+            }
+        }
+    }
+
+    // same layout as the R scripts write: no header, comma separated
+    static void writeCsv(File file, double[][] xy) throws IOException {
+        try (PrintWriter pw = new PrintWriter(new FileWriter(file))) {
+            for (int i = 0; i < xy[0].length; i++)
+                pw.println(xy[0][i] + "," + xy[1][i]);
+        }
+    }
+}
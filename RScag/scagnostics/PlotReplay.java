@@ -0,0 +1,126 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/*
+ * Runs captured plots (PlotCapture) again, stage by stage, and reports the median time of each stage over
+ * several runs. Binning is timed on its own and the rest comes from Scagnostics.getStats; Scag-05 and
+ * Scag-06 only report their total. Every run must give the measures of the first, since the binning is
+ * seeded as when the plot was captured.
+ */
+public class PlotReplay {
+    private static final String COLUMNS = "plot,label,variant,rows,numBins,maxBins,captured_ms,timed_out,bin_ms,points,"
+            + "dt_builds,dt_ms,alpha_ms,runt_ms,other_ms,total_ms";
+
+    // one CSV line of COLUMNS: the medians of repeat runs of plot
+    public static String replay(int index, CapturedPlot plot, int repeat) {
+        long[] bin = new long[repeat], dt = new long[repeat], alpha = new long[repeat], runt = new long[repeat],
+                other = new long[repeat], total = new long[repeat];
+        int points = 0, builds = 0;
+        double[] first = null;
+        boolean reproduced = true;
+        for (int r = 0; r < repeat; r++) {
+            double[] result;
+            long start = System.nanoTime();
+            if (plot.getVariant() == Variant.RSCAG) {
+                BinnedData bdata = plot.bin();
+                bin[r] = System.nanoTime() - start;
+                Scagnostics s = new Scagnostics(bdata);
+                result = s.compute();
+                ComputeStats stats = s.getStats();
+                dt[r] = stats.getTriangulationNanos();
+                alpha[r] = stats.getAlphaNanos();
+                runt[r] = stats.getRuntNanos();
+                other[r] = stats.getOtherNanos();
+                points = stats.getPoints();
+                builds = stats.getDTBuilds();
+            } else {
+                result = plot.compute();
+            }
+            total[r] = System.nanoTime() - start;
+            if (first == null)
+                first = result;
+            else if (!Arrays.equals(first, result))
+                reproduced = false;
+        }
+        if (!reproduced)
+            System.err.println("plot " + index + " gave different measures between runs");
+        return index + "," + plot.getLabel() + "," + plot.getVariant().getLabel() + "," + plot.getX().length + ","
+                + plot.getNumBins() + "," + plot.getMaxBins() + "," + millis(plot.getNanos())
+                + "," + plot.isTimedOut() + "," + millis(median(bin)) + "," + points + ","
+                + builds + "," + millis(median(dt)) + "," + millis(median(alpha)) + "," + millis(median(runt)) + ","
+                + millis(median(other)) + "," + millis(median(total));
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    private static String millis(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1e6);
+    }
+
+    /*
+     * PlotReplay <capture> [-plot k] [-repeat n] [-warmup n]
+     * Prints one CSV line per plot; -warmup runs every plot n times first so that the JIT has compiled the code.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 1) {
+            System.out.println("usage: PlotReplay <capture> [-plot k] [-repeat n] [-warmup n]");
+            return;
+        }
+        int plot = -1;
+        int repeat = 5;
+        int warmup = 1;
+        for (int i = 1; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-plot": plot = Integer.parseInt(value); break;
+                case "-repeat": repeat = Math.max(1, Integer.parseInt(value)); break;
+                case "-warmup": warmup = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        List<CapturedPlot> plots = PlotCapture.read(new File(argv[0]));
+        if (plot >= plots.size())
+            throw new IllegalArgumentException(argv[0] + " holds " + plots.size() + " plots");
+        int from = plot < 0 ? 0 : plot;
+        int to = plot < 0 ? plots.size() : plot + 1;
+        for (int w = 0; w < warmup; w++)
+            for (int k = from; k < to; k++)
+                plots.get(k).compute();
+        String[] lines = new String[to - from];
+        for (int k = from; k < to; k++)
+            lines[k - from] = replay(k, plots.get(k), repeat);
+        System.out.println(COLUMNS);
+        for (String line : lines)
+            System.out.println(line);
+    }
+}
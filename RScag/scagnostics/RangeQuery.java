@@ -0,0 +1,156 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/*
+ * Conjunction of ranges on scagnostics measures, such as "Clumpy > 0.6 and Outlying < 0.1".
+ * Each measure takes at most one range; a second condition on the same measure narrows it.
+ */
+public class RangeQuery {
+    private static final String[] labels = Scagnostics.getScagnosticsLabels();
+    private double[] min, max;
+    private boolean[] minInclusive, maxInclusive;
+    private boolean[] used;
+
+    public RangeQuery() {
+        int n = labels.length;
+        min = new double[n];
+        max = new double[n];
+        minInclusive = new boolean[n];
+        maxInclusive = new boolean[n];
+        used = new boolean[n];
+        for (int m = 0; m < n; m++) {
+            min[m] = Double.NEGATIVE_INFINITY;
+            max[m] = Double.POSITIVE_INFINITY;
+            minInclusive[m] = maxInclusive[m] = true;
+        }
+    }
+
+    // conditions "<measure> <op> <value>" joined by "and", with op one of <, <=, >, >=
+    public static RangeQuery parse(String query) {
+        RangeQuery q = new RangeQuery();
+        String[] terms = query.trim().split("(?i)\\s+and\\s+|\\s*&&\\s*");
+        for (String term : terms) {
+            StringTokenizer st = new StringTokenizer(term, "<>= ", true);
+            List<String> tokens = new ArrayList<String>();
+            while (st.hasMoreTokens()) {
+                String t = st.nextToken();
+                if (t.equals(" "))
+                    continue;
+                int last = tokens.size() - 1;
+                if (t.equals("=") && last >= 0 && (tokens.get(last).equals("<") || tokens.get(last).equals(">")))
+                    tokens.set(last, tokens.get(last) + "=");
+                else
+                    tokens.add(t);
+            }
+            if (tokens.size() != 3)
+                throw new IllegalArgumentException("cannot parse condition " + term);
+            int m = measure(tokens.get(0));
+            double v = Double.parseDouble(tokens.get(2));
+            String op = tokens.get(1);
+            if (op.equals(">")) q.greaterThan(m, v, false);
+            else if (op.equals(">=")) q.greaterThan(m, v, true);
+            else if (op.equals("<")) q.lessThan(m, v, false);
+            else if (op.equals("<=")) q.lessThan(m, v, true);
+            else throw new IllegalArgumentException("unknown operator " + op);
+        }
+        return q;
+    }
+
+    public static int measure(String label) {
+        for (int m = 0; m < labels.length; m++)
+            if (labels[m].equalsIgnoreCase(label)) return m;
+        throw new IllegalArgumentException("unknown measure " + label);
+    }
+
+    public RangeQuery greaterThan(int measure, double value, boolean inclusive) {
+        if (value > min[measure] || (value == min[measure] && !inclusive)) {
+            min[measure] = value;
+            minInclusive[measure] = inclusive;
+        }
+        used[measure] = true;
+        return this;
+    }
+
+    public RangeQuery lessThan(int measure, double value, boolean inclusive) {
+        if (value < max[measure] || (value == max[measure] && !inclusive)) {
+            max[measure] = value;
+            maxInclusive[measure] = inclusive;
+        }
+        used[measure] = true;
+        return this;
+    }
+
+    public RangeQuery between(int measure, double min, double max) {
+        return greaterThan(measure, min, true).lessThan(measure, max, true);
+    }
+
+    public boolean isConstrained(int measure) {
+        return used[measure];
+    }
+
+    public double getMin(int measure) {
+        return min[measure];
+    }
+
+    public double getMax(int measure) {
+        return max[measure];
+    }
+
+    public boolean isMinInclusive(int measure) {
+        return minInclusive[measure];
+    }
+
+    public boolean isMaxInclusive(int measure) {
+        return maxInclusive[measure];
+    }
+
+    // NaN never matches a constrained measure
+    public boolean accepts(int measure, double value) {
+        if (!used[measure])
+            return true;
+        if (minInclusive[measure] ? !(value >= min[measure]) : !(value > min[measure]))
+            return false;
+        return maxInclusive[measure] ? value <= max[measure] : value < max[measure];
+    }
+
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int m = 0; m < labels.length; m++) {
+            if (!used[m])
+                continue;
+            if (min[m] != Double.NEGATIVE_INFINITY) {
+                if (sb.length() > 0) sb.append(" and ");
+                sb.append(labels[m]).append(minInclusive[m] ? " >= " : " > ").append(min[m]);
+            }
+            if (max[m] != Double.POSITIVE_INFINITY) {
+                if (sb.length() > 0) sb.append(" and ");
+                sb.append(labels[m]).append(maxInclusive[m] ? " <= " : " < ").append(max[m]);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,352 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * Range queries over the pairs of a ResultStore. For every measure the pairs are kept sorted by value,
+ * so the pairs in range of one condition are a slice found by binary search. A query walks the slice of
+ * its most selective condition and tests the other conditions on the stored values of each pair.
+ * Pairs that are not COMPUTED are left out.
+ */
+public class ResultIndex {
+    private static final byte[] MAGIC = "RSCAGIDX".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int NUM_MEASURES = Scagnostics.getNumScagnostics();
+    private int numPairs;
+    private float[] values;        // [pair * NUM_MEASURES + measure], NaN where the pair is not COMPUTED
+    private float[][] sorted;      // [measure][rank], ascending
+    private int[][] order;         // [measure][rank], pair at that rank
+
+    private ResultIndex(int numPairs) {
+        this.numPairs = numPairs;
+        values = new float[numPairs * NUM_MEASURES];
+        sorted = new float[NUM_MEASURES][];
+        order = new int[NUM_MEASURES][];
+    }
+
+    public static ResultIndex build(ResultStore store) {
+        if (store.getNumPairs() > (Integer.MAX_VALUE - 8) / NUM_MEASURES)
+            throw new IllegalArgumentException("too many pairs for one index: " + store.getNumPairs());
+        int n = (int) store.getNumPairs();
+        ResultIndex index = new ResultIndex(n);
+        float[] v = index.values;
+        for (int k = 0; k < n; k++)
+            for (int m = 0; m < NUM_MEASURES; m++)
+                v[k * NUM_MEASURES + m] = store.getMeasure(k, m);
+        for (int m = 0; m < NUM_MEASURES; m++) {
+            int valid = 0;
+            for (int k = 0; k < n; k++)
+                if (!Float.isNaN(v[k * NUM_MEASURES + m])) valid++;
+            // sort value and pair together as one long: order-preserving bits of the float, then the pair
+            long[] keys = new long[valid];
+            valid = 0;
+            for (int k = 0; k < n; k++)
+                if (!Float.isNaN(v[k * NUM_MEASURES + m]))
+                    keys[valid++] = ((long) sortable(v[k * NUM_MEASURES + m]) << 32) | k;
+            Arrays.parallelSort(keys);
+            index.sorted[m] = new float[valid];
+            index.order[m] = new int[valid];
+            for (int r = 0; r < valid; r++) {
+                int k = (int) keys[r];
+                index.order[m][r] = k;
+                index.sorted[m][r] = v[k * NUM_MEASURES + m];
+            }
+        }
+        return index;
+    }
+
+    // pair indices matching every condition, ascending
+    public long[] query(RangeQuery q) {
+        int[] from = new int[NUM_MEASURES];
+        int[] to = new int[NUM_MEASURES];
+        int best = -1;
+        for (int m = 0; m < NUM_MEASURES; m++) {
+            if (!q.isConstrained(m))
+                continue;
+            from[m] = lowerRank(m, q.getMin(m), q.isMinInclusive(m));
+            to[m] = Math.max(from[m], upperRank(m, q.getMax(m), q.isMaxInclusive(m)));
+            if (best < 0 || to[m] - from[m] < to[best] - from[best])
+                best = m;
+        }
+        if (best < 0) {
+            long[] bits = new long[(numPairs + 63) / 64];
+            for (int k = 0; k < numPairs; k++)
+                if (isComputed(k)) bits[k >>> 6] |= 1L << k;
+            return extract(bits, q, new boolean[NUM_MEASURES]);
+        }
+        int size = to[best] - from[best];
+        if (size < numPairs / 64) {
+            // few candidates: test the other conditions on their values
+            int[] hits = new int[size];
+            int n = 0;
+            for (int r = from[best]; r < to[best]; r++) {
+                int k = order[best][r];
+                if (accepts(q, k, best))
+                    hits[n++] = k;
+            }
+            Arrays.sort(hits, 0, n);
+            long[] result = new long[n];
+            for (int i = 0; i < n; i++)
+                result[i] = hits[i];
+            return result;
+        }
+
+        // many candidates: intersect the slices as bitmaps, which stay in cache while the values do not;
+        // a slice much longer than the remaining candidates is tested on the values instead
+        long[] bits = new long[(numPairs + 63) / 64];
+        for (int r = from[best]; r < to[best]; r++)
+            bits[order[best][r] >>> 6] |= 1L << order[best][r];
+        int count = size;
+        boolean[] check = new boolean[NUM_MEASURES];
+        boolean[] done = new boolean[NUM_MEASURES];
+        done[best] = true;
+        while (true) {
+            int m = -1;
+            for (int c = 0; c < NUM_MEASURES; c++)
+                if (q.isConstrained(c) && !done[c] && (m < 0 || to[c] - from[c] < to[m] - from[m])) m = c;
+            if (m < 0)
+                break;
+            done[m] = true;
+            if (to[m] - from[m] > 8 * count) {
+                check[m] = true;
+                continue;
+            }
+            long[] next = new long[bits.length];
+            count = 0;
+            for (int r = from[m]; r < to[m]; r++) {
+                int k = order[m][r];
+                if ((bits[k >>> 6] & (1L << k)) != 0) {
+                    next[k >>> 6] |= 1L << k;
+                    count++;
+                }
+            }
+            bits = next;
+        }
+        return extract(bits, q, check);
+    }
+
+    // the pairs of bits that pass the conditions marked in check, ascending
+    private long[] extract(long[] bits, RangeQuery q, boolean[] check) {
+        boolean any = false;
+        for (int m = 0; m < NUM_MEASURES; m++)
+            any |= check[m];
+        int n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                int k = (w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (any && !accepts(q, k, check))
+                    bits[w] &= ~(1L << k);
+                else
+                    n++;
+            }
+        }
+        long[] result = new long[n];
+        n = 0;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                result[n++] = ((long) w << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return result;
+    }
+
+    private boolean accepts(RangeQuery q, int k, int skip) {
+        int o = k * NUM_MEASURES;
+        for (int m = 0; m < NUM_MEASURES; m++)
+            if (m != skip && !q.accepts(m, values[o + m])) return false;
+        return true;
+    }
+
+    private boolean accepts(RangeQuery q, int k, boolean[] check) {
+        int o = k * NUM_MEASURES;
+        for (int m = 0; m < NUM_MEASURES; m++)
+            if (check[m] && !q.accepts(m, values[o + m])) return false;
+        return true;
+    }
+
+    // number of pairs matching every condition
+    public int count(RangeQuery q) {
+        return query(q).length;
+    }
+
+    public int getNumPairs() {
+        return numPairs;
+    }
+
+    private boolean isComputed(int k) {
+        for (int m = 0; m < NUM_MEASURES; m++)
+            if (!Float.isNaN(values[k * NUM_MEASURES + m])) return true;
+        return false;
+    }
+
+    // first rank whose value is above min (or equal, when inclusive)
+    private int lowerRank(int m, double min, boolean inclusive) {
+        float[] s = sorted[m];
+        int lo = 0, hi = s.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (inclusive ? s[mid] < min : s[mid] <= min) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // first rank whose value is above max (or equal, when exclusive)
+    private int upperRank(int m, double max, boolean inclusive) {
+        float[] s = sorted[m];
+        int lo = 0, hi = s.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (inclusive ? s[mid] <= max : s[mid] < max) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    // signed int with the order of the float
+    private static int sortable(float v) {
+        int bits = Float.floatToIntBits(v);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    // the sorted projections; the values per pair are rebuilt from them on load
+    public void save(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(0);
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 12);
+            header.put(MAGIC).putInt(VERSION).putInt(NUM_MEASURES).putInt(numPairs);
+            header.flip();
+            channel.write(header);
+            ByteBuffer b = ByteBuffer.allocate(1 << 20);
+            for (int m = 0; m < NUM_MEASURES; m++) {
+                b.putInt(sorted[m].length);
+                for (int r = 0; r < sorted[m].length; r++) {
+                    if (b.remaining() < 8)
+                        drain(channel, b);
+                    b.putFloat(sorted[m][r]).putInt(order[m][r]);
+                }
+                drain(channel, b);
+            }
+        }
+    }
+
+    public static ResultIndex load(File file) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            FileChannel channel = raf.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(MAGIC.length + 12);
+            fill(channel, header);
+            byte[] magic = new byte[MAGIC.length];
+            header.get(magic);
+            if (!Arrays.equals(magic, MAGIC) || header.getInt() != VERSION || header.getInt() != NUM_MEASURES)
+                throw new IOException(file + " is not a result index");
+            ResultIndex index = new ResultIndex(header.getInt());
+            Arrays.fill(index.values, Float.NaN);
+            ByteBuffer b = ByteBuffer.allocate(1 << 20);
+            b.limit(0);
+            for (int m = 0; m < NUM_MEASURES; m++) {
+                if (b.remaining() < 4)
+                    refill(channel, b);
+                int valid = b.getInt();
+                index.sorted[m] = new float[valid];
+                index.order[m] = new int[valid];
+                for (int r = 0; r < valid; r++) {
+                    if (b.remaining() < 8)
+                        refill(channel, b);
+                    index.sorted[m][r] = b.getFloat();
+                    index.order[m][r] = b.getInt();
+                    index.values[index.order[m][r] * NUM_MEASURES + m] = index.sorted[m][r];
+                }
+            }
+            return index;
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer b) throws IOException {
+        b.flip();
+        while (b.hasRemaining())
+            channel.write(b);
+        b.clear();
+    }
+
+    private static void refill(FileChannel channel, ByteBuffer b) throws IOException {
+        b.compact();
+        if (channel.read(b) < 0 && b.position() == 0)
+            throw new IOException("unexpected end of index");
+        b.flip();
+    }
+
+    private static void fill(FileChannel channel, ByteBuffer b) throws IOException {
+        while (b.hasRemaining())
+            if (channel.read(b) < 0) throw new IOException("unexpected end of index");
+        b.flip();
+    }
+
+    /*
+     * ResultIndex <store> "<query>" [-limit n]
+     * The index is kept next to the store as <store>.idx and rebuilt when older than the store.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 2) {
+            System.out.println("usage: ResultIndex <store> \"Clumpy > 0.6 and Outlying < 0.1\" [-limit n]");
+            return;
+        }
+        int limit = 20;
+        for (int i = 2; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-limit")) limit = Integer.parseInt(argv[i + 1]);
+            else throw new IllegalArgumentException("Unknown option " + argv[i]);
+        }
+        File storeFile = new File(argv[0]);
+        File indexFile = new File(argv[0] + ".idx");
+        ResultStore store = ResultStore.open(storeFile, false);
+        ResultIndex index;
+        if (indexFile.exists() && indexFile.lastModified() >= storeFile.lastModified()) {
+            index = load(indexFile);
+        } else {
+            index = build(store);
+            index.save(indexFile);
+        }
+        RangeQuery q = RangeQuery.parse(argv[1]);
+        long t0 = System.nanoTime();
+        long[] hits = index.query(q);
+        long t1 = System.nanoTime();
+        System.out.println(hits.length + " pairs match " + q + " (" + (t1 - t0) / 1000 + " us)");
+        String[] labels = store.getLabels();
+        for (int i = 0; i < hits.length && i < limit; i++) {
+            int[] ij = ResultStore.pair(hits[i]);
+            System.out.println(labels[ij[1]] + "," + labels[ij[0]] + "," + Arrays.toString(store.get(hits[i])));
+        }
+        store.close();
+    }
+}
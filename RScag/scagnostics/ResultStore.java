@@ -0,0 +1,394 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * All-pairs scagnostics of one table in a memory-mapped file. After a small header (labels, numBins,
+ * maxBins, variant) come fixed-width records of the nine measures as floats and a status, one record per
+ * pair (i, j) with j < i at index i * (i - 1) / 2 + j, the order of Main.computeScagnostics.
+ * Records of different pairs can be written from several threads at once, and a store can be reopened
+ * to fill in the pairs still EMPTY or opened read-only for random access.
+ * The status int of a record is EMPTY, COMPUTED or DEGENERATE (a null result, NaN measures), or PARTIAL in
+ * its low 8 bits with a numBins in the bits above (status = numBins << 8 | PARTIAL): the pair ran out of
+ * time (BatchRunner.setTimeLimit) and its measures come from that coarser numBins, or are NaN with
+ * numBins 0 if none finished. PARTIAL is new in version 2 of the layout; version 1 stores, which only have
+ * the other three, are still read, and are marked version 2 when opened for writing.
+ */
+public class ResultStore {
+    public static final int EMPTY = 0, COMPUTED = 1, DEGENERATE = 2, PARTIAL = 3;
+    private static final byte[] MAGIC = "RSCAGRES".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 2;
+    private static final int NUM_MEASURES = Scagnostics.getNumScagnostics();
+    private static final int RECORD_BYTES = 4 * NUM_MEASURES + 4;
+    private static final int RECORDS_PER_SEGMENT = (1 << 30) / RECORD_BYTES;
+
+    private File file;
+    private RandomAccessFile raf;
+    private MappedByteBuffer[] segments;
+    private boolean writable;
+    private String[] labels;
+    private int numBins, maxBins;
+    private Variant variant;
+    private long numPairs;
+    private long dataOffset;
+
+    private ResultStore(File file, boolean writable) {
+        this.file = file;
+        this.writable = writable;
+    }
+
+    // a new store with every pair EMPTY; an existing file is replaced
+    public static ResultStore create(File file, String[] labels, int numBins, int maxBins, Variant variant)
+            throws IOException {
+        ResultStore store = new ResultStore(file, true);
+        store.labels = labels.clone();
+        store.numBins = numBins;
+        store.maxBins = maxBins;
+        store.variant = variant;
+        store.numPairs = numPairs(labels.length);
+
+        ByteBuffer header = store.encodeHeader();
+        store.dataOffset = header.limit();
+        store.raf = new RandomAccessFile(file, "rw");
+        store.raf.setLength(0);
+        store.raf.setLength(store.dataOffset + store.numPairs * RECORD_BYTES);
+        store.raf.getChannel().write(header, 0);
+        store.map();
+        return store;
+    }
+
+    public static ResultStore open(File file, boolean writable) throws IOException {
+        ResultStore store = new ResultStore(file, writable);
+        store.raf = new RandomAccessFile(file, writable ? "rw" : "r");
+        store.decodeHeader();
+        if (store.raf.length() < store.dataOffset + store.numPairs * RECORD_BYTES)
+            throw new IOException(file + " is truncated");
+        store.map();
+        return store;
+    }
+
+    // whether file starts as a result store does
+    public static boolean isStore(File file) throws IOException {
+        byte[] magic = new byte[MAGIC.length];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            if (in.length() < magic.length)
+                return false;
+            in.readFully(magic);
+        }
+        return Arrays.equals(magic, MAGIC);
+    }
+
+    public static long numPairs(int nDim) {
+        return (long) nDim * (nDim - 1) / 2;
+    }
+
+    public static long pairIndex(int i, int j) {
+        if (i < j) {
+            int t = i;
+            i = j;
+            j = t;
+        }
+        if (i == j)
+            throw new IllegalArgumentException("no pair (" + i + ", " + i + ")");
+        return (long) i * (i - 1) / 2 + j;
+    }
+
+    // {i, j} with j < i of a pair index
+    public static int[] pair(long index) {
+        int i = (int) ((1 + Math.sqrt(1 + 8. * index)) / 2);
+        while ((long) i * (i - 1) / 2 > index) i--;
+        while ((long) (i + 1) * i / 2 <= index) i++;
+        return new int[]{i, (int) (index - (long) i * (i - 1) / 2)};
+    }
+
+    public void put(int i, int j, double[] result) {
+        put(pairIndex(i, j), result);
+    }
+
+    // a null result (too few bins or a constant column) is stored as DEGENERATE
+    public void put(long index, double[] result) {
+        if (!writable)
+            throw new IllegalStateException(file + " is open read-only");
+        ByteBuffer b = segment(index);
+        int o = offset(index);
+        for (int m = 0; m < NUM_MEASURES; m++)
+            b.putFloat(o + 4 * m, result == null ? Float.NaN : (float) result[m]);
+        b.putInt(o + 4 * NUM_MEASURES, result == null ? DEGENERATE : COMPUTED);
+    }
+
+    // the measures of a pair computed at a coarser numBins than the store's; null if none finished, or if the
+    // coarser plot was degenerate, which is stored with numBins 0
+    public void putPartial(long index, double[] result, int numBins) {
+        if (!writable)
+            throw new IllegalStateException(file + " is open read-only");
+        ByteBuffer b = segment(index);
+        int o = offset(index);
+        for (int m = 0; m < NUM_MEASURES; m++)
+            b.putFloat(o + 4 * m, result == null ? Float.NaN : (float) result[m]);
+        b.putInt(o + 4 * NUM_MEASURES, (result == null ? 0 : numBins) << 8 | PARTIAL);
+    }
+
+    /*
+     * Throws if the store was not written for a table of nDim columns with these settings, naming the first
+     * one that differs. A run must not resume such a store, and is not allowed to replace it either.
+     */
+    public void checkSettings(int nDim, int numBins, int maxBins, Variant variant) throws IOException {
+        String setting = null;
+        if (labels.length != nDim)
+            setting = labels.length + " columns, not " + nDim;
+        else if (this.numBins != numBins)
+            setting = "-bins " + this.numBins + ", not " + numBins;
+        else if (this.maxBins != maxBins)
+            setting = "-maxBins " + this.maxBins + ", not " + maxBins;
+        else if (this.variant != variant)
+            setting = "-variant " + this.variant.getLabel() + ", not " + variant.getLabel();
+        if (setting != null)
+            throw new IOException(file + " was written with " + setting + "; remove it to start over");
+    }
+
+    // opens file to resume if it exists, after checkSettings, and returns null otherwise
+    public static ResultStore resume(File file, int nDim, int numBins, int maxBins, Variant variant)
+            throws IOException {
+        if (!file.exists())
+            return null;
+        ResultStore store = open(file, true);
+        try {
+            store.checkSettings(nDim, numBins, maxBins, variant);
+        } catch (IOException e) {
+            store.close();
+            throw e;
+        }
+        return store;
+    }
+
+    /*
+     * Copies the records of the pairs first to last - 1 that are not EMPTY in from, a store of the same
+     * columns and settings, such as the store of one ShardWorker. Returns how many were copied.
+     */
+    public long copy(ResultStore from, long first, long last) {
+        if (!writable)
+            throw new IllegalStateException(file + " is open read-only");
+        if (!Arrays.equals(from.labels, labels) || from.numBins != numBins || from.maxBins != maxBins
+                || from.variant != variant)
+            throw new IllegalArgumentException(from.getFile() + " does not have the settings of " + file);
+        long copied = 0;
+        for (long k = first; k < last; k++) {
+            ByteBuffer src = from.segment(k);
+            int o = offset(k);
+            int status = src.getInt(o + 4 * NUM_MEASURES);
+            if ((status & 0xff) == EMPTY)
+                continue;
+            ByteBuffer dst = segment(k);
+            for (int m = 0; m < NUM_MEASURES; m++)
+                dst.putFloat(o + 4 * m, src.getFloat(o + 4 * m));
+            dst.putInt(o + 4 * NUM_MEASURES, status);
+            copied++;
+        }
+        return copied;
+    }
+
+    public int getStatus(long index) {
+        return segment(index).getInt(offset(index) + 4 * NUM_MEASURES) & 0xff;
+    }
+
+    // numBins of the measures of a PARTIAL pair, 0 if none finished; the store's numBins for other pairs
+    public int getNumBins(long index) {
+        int status = segment(index).getInt(offset(index) + 4 * NUM_MEASURES);
+        return (status & 0xff) == PARTIAL ? status >>> 8 : numBins;
+    }
+
+    // the measures of a PARTIAL pair, NaN if none finished; null for other pairs
+    public double[] getPartial(long index) {
+        if (getStatus(index) != PARTIAL)
+            return null;
+        ByteBuffer b = segment(index);
+        int o = offset(index);
+        double[] result = new double[NUM_MEASURES];
+        for (int m = 0; m < NUM_MEASURES; m++)
+            result[m] = b.getFloat(o + 4 * m);
+        return result;
+    }
+
+    // the measures of a COMPUTED pair, otherwise null
+    public double[] get(long index) {
+        if (getStatus(index) != COMPUTED)
+            return null;
+        ByteBuffer b = segment(index);
+        int o = offset(index);
+        double[] result = new double[NUM_MEASURES];
+        for (int m = 0; m < NUM_MEASURES; m++)
+            result[m] = b.getFloat(o + 4 * m);
+        return result;
+    }
+
+    // the stored measures of any pair into v from offset, without checking its status
+    void getMeasures(long index, double[] v, int offset) {
+        ByteBuffer b = segment(index);
+        int o = offset(index);
+        for (int m = 0; m < NUM_MEASURES; m++)
+            v[offset + m] = b.getFloat(o + 4 * m);
+    }
+
+    public double[] get(int i, int j) {
+        return get(pairIndex(i, j));
+    }
+
+    // one measure as stored, NaN unless the pair is COMPUTED
+    public float getMeasure(long index, int measure) {
+        ByteBuffer b = segment(index);
+        int o = offset(index);
+        return b.getInt(o + 4 * NUM_MEASURES) == COMPUTED ? b.getFloat(o + 4 * measure) : Float.NaN;
+    }
+
+    public String[] getLabels() {
+        return labels.clone();
+    }
+
+    public int getDimension() {
+        return labels.length;
+    }
+
+    public long getNumPairs() {
+        return numPairs;
+    }
+
+    public int getNumBins() {
+        return numBins;
+    }
+
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public void flush() {
+        if (writable)
+            for (MappedByteBuffer s : segments) s.force();
+    }
+
+    public void close() throws IOException {
+        flush();
+        segments = null;
+        raf.close();
+    }
+
+    private ByteBuffer segment(long index) {
+        if (index < 0 || index >= numPairs)
+            throw new IndexOutOfBoundsException("pair " + index + " of " + numPairs);
+        return segments[(int) (index / RECORDS_PER_SEGMENT)];
+    }
+
+    private static int offset(long index) {
+        return (int) (index % RECORDS_PER_SEGMENT) * RECORD_BYTES;
+    }
+
+    // records are mapped in segments below 2 GB, each holding whole records
+    private void map() throws IOException {
+        FileChannel channel = raf.getChannel();
+        int n = (int) ((numPairs + RECORDS_PER_SEGMENT - 1) / RECORDS_PER_SEGMENT);
+        segments = new MappedByteBuffer[n];
+        for (int s = 0; s < n; s++) {
+            long first = (long) s * RECORDS_PER_SEGMENT;
+            long records = Math.min(RECORDS_PER_SEGMENT, numPairs - first);
+            segments[s] = channel.map(writable ? FileChannel.MapMode.READ_WRITE : FileChannel.MapMode.READ_ONLY,
+                    dataOffset + first * RECORD_BYTES, records * RECORD_BYTES);
+        }
+    }
+
+    /*
+     * magic, version, number of measures, number of columns, numBins, maxBins, header length,
+     * then the variant label and the column labels as length-prefixed UTF-8, padded to 8 bytes
+     */
+    private ByteBuffer encodeHeader() {
+        byte[][] strings = new byte[labels.length + 1][];
+        int length = MAGIC.length + 6 * 4;
+        strings[0] = variant.getLabel().getBytes(StandardCharsets.UTF_8);
+        for (int i = 0; i < labels.length; i++)
+            strings[i + 1] = labels[i].getBytes(StandardCharsets.UTF_8);
+        for (byte[] s : strings)
+            length += 4 + s.length;
+        length = (length + 7) & ~7;
+        ByteBuffer b = ByteBuffer.allocate(length);
+        b.put(MAGIC);
+        b.putInt(VERSION).putInt(NUM_MEASURES).putInt(labels.length).putInt(numBins).putInt(maxBins).putInt(length);
+        for (byte[] s : strings)
+            b.putInt(s.length).put(s);
+        b.clear();
+        return b;
+    }
+
+    private void decodeHeader() throws IOException {
+        FileChannel channel = raf.getChannel();
+        ByteBuffer fixed = ByteBuffer.allocate(MAGIC.length + 6 * 4);
+        channel.read(fixed, 0);
+        fixed.flip();
+        byte[] magic = new byte[MAGIC.length];
+        if (fixed.remaining() < fixed.capacity())
+            throw new IOException(file + " is not a result store");
+        fixed.get(magic);
+        if (!Arrays.equals(magic, MAGIC))
+            throw new IOException(file + " is not a result store");
+        int version = fixed.getInt();
+        if (version < 1 || version > VERSION || fixed.getInt() != NUM_MEASURES)
+            throw new IOException(file + " has an unsupported layout");
+        if (version < VERSION && writable) {
+            ByteBuffer v = ByteBuffer.allocate(4).putInt(VERSION);
+            v.flip();
+            channel.write(v, MAGIC.length);
+        }
+        int nDim = fixed.getInt();
+        numBins = fixed.getInt();
+        maxBins = fixed.getInt();
+        int length = fixed.getInt();
+        ByteBuffer b = ByteBuffer.allocate(length);
+        channel.read(b, 0);
+        b.position(fixed.capacity());
+        variant = Variant.forLabel(readString(b));
+        labels = new String[nDim];
+        for (int i = 0; i < nDim; i++)
+            labels[i] = readString(b);
+        numPairs = numPairs(nDim);
+        dataOffset = length;
+    }
+
+    private static String readString(ByteBuffer b) {
+        byte[] s = new byte[b.getInt()];
+        b.get(s);
+        return new String(s, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * The measures of the pairs of a ResultStore as vectors, in store order. EMPTY and DEGENERATE pairs, and
+ * PARTIAL pairs with no measures, are skipped, so row numbers count only the pairs read; getPairIndices
+ * turns them back into pair indices.
+ */
+public class ResultStoreVectorSource implements VectorSource {
+    private ResultStore store;
+    private long next;          // pair index of the next record looked at
+
+    public ResultStoreVectorSource(File file) throws IOException {
+        store = ResultStore.open(file, false);
+    }
+
+    public ResultStore getStore() {
+        return store;
+    }
+
+    public int getDimension() {
+        return Scagnostics.getNumScagnostics();
+    }
+
+    public int read(double[] chunk) throws IOException {
+        int nVar = getDimension();
+        int maxRows = chunk.length / nVar;
+        long numPairs = store.getNumPairs();
+        int rows = 0;
+        while (rows < maxRows && next < numPairs) {
+            if (isVector(next))
+                store.getMeasures(next, chunk, nVar * rows++);
+            next++;
+        }
+        return rows;
+    }
+
+    public void rewind() {
+        next = 0;
+    }
+
+    public void close() throws IOException {
+        store.close();
+    }
+
+    // pair indices of rows, which must be ascending, as the exemplars of StreamingCluster are
+    public long[] getPairIndices(long[] rows) {
+        long[] indices = new long[rows.length];
+        long row = 0;
+        int r = 0;
+        for (long k = 0; k < store.getNumPairs() && r < rows.length; k++) {
+            if (!isVector(k))
+                continue;
+            while (r < rows.length && rows[r] == row)
+                indices[r++] = k;
+            row++;
+        }
+        return indices;
+    }
+
+    private boolean isVector(long k) {
+        int status = store.getStatus(k);
+        return status == ResultStore.COMPUTED || (status == ResultStore.PARTIAL && store.getNumBins(k) > 0);
+    }
+}
@@ -34,8 +34,7 @@ public class Scagnostics {
     private List edges;        // edges set
     private List triangles;    // triangles set
     private List mstEdges;     // minimum spanning tree set
-    private Edge hullStart;   // entering edge of convex hull
-    private Edge actE;
+    private Triangulation dt;
     private int totalPeeledCount;
     private int totalPeeledCountBackup;
     private int totalCount;
@@ -48,6 +47,8 @@ public class Scagnostics {
             STRIATED = 4, CONVEX = 5, SKINNY = 6, STRINGY = 7, MONOTONIC = 8;
     private final static String[] scagnosticsLabels = {"Outlying", "Skewed", "Clumpy", "Sparse",
             "Striated", "Convex", "Skinny", "Stringy", "Monotonic"};
+    private final static int PRIM_MAX_POINTS = 20000;
+    private final static int[] ALL_MEASURES = {OUTLYING, SKEWED, CLUMPY, SPARSE, STRIATED, CONVEX, SKINNY, STRINGY, MONOTONIC};
     private double[] counts;
     private int[] px, py;
     private boolean[] isOutlier;
@@ -60,18 +61,61 @@ public class Scagnostics {
     private List<Double> maxValues;
 
     private Vector<Node>[] subCluster;
-    private double FUZZ = .999;
+    private long timeLimit;
+    private ComputeStats stats = new ComputeStats();
 
     public Scagnostics(double[] x, double[] y, int numBins, int maxBins) {
-        nodes = new ArrayList();
-        edges = new ArrayList();
-        triangles = new ArrayList();
-        mstEdges = new ArrayList();
-        Binner b = new Binner(maxBins);
-        bdata = b.binHex(x, y, numBins, 3);
+        this(new Binner(maxBins).binHex(x, y, numBins, 3));
+    }
+
+    Scagnostics(BinnedData bdata) {
+        dt = new Triangulation();
+        nodes = dt.nodes;
+        edges = dt.edges;
+        triangles = dt.triangles;
+        mstEdges = dt.mstEdges;
+        this.bdata = bdata;
     }
 
     public double[] compute() {
+        return compute(ALL_MEASURES);
+    }
+
+    /*
+     * Makes compute give up with a ScagnosticsTimeoutException once it has run for longer than millis.
+     * The time is checked while triangulating, in the MST, the alpha shape, the outlier peeling and the
+     * runt search. 0, the default, sets no limit.
+     */
+    public void setTimeLimit(long millis) {
+        timeLimit = millis;
+    }
+
+    // instrumentation of the last compute
+    public ComputeStats getStats() {
+        return stats;
+    }
+
+    /*
+     * Computes only the given measures (OUTLYING = 0 ... MONOTONIC = 8, in the order of getScagnosticsLabels)
+     * and the stages they depend on; the others are NaN. Requested measures are the same as in compute().
+     * The outlier peeling always runs, since every measure is weighted over its clusters.
+     */
+    public double[] compute(int[] measures) {
+        long start = System.nanoTime();
+        stats.reset(bdata.getXData().length);
+        try {
+            return computeRequested(measures);
+        } finally {
+            stats.totalNanos = System.nanoTime() - start;
+        }
+    }
+
+    private double[] computeRequested(int[] measures) {
+        dt.setTimeLimit(timeLimit);
+        boolean[] requested = new boolean[numScagnostics];
+        for (int i = 0; i < measures.length; i++)
+            requested[measures[i]] = true;
+
         px = bdata.getXData();
         py = bdata.getYData();
         if (px.length < 3)
@@ -87,8 +131,11 @@ public class Scagnostics {
         if (isXConstant || isYConstant)
             return null;
 
+        // the per-cluster triangulation is only needed for the MST and alpha shape measures
+        boolean needMST = requested[STRINGY] || requested[STRIATED] || requested[CONVEX] || requested[SKINNY];
+        boolean needAlpha = requested[CONVEX] || requested[SKINNY];
 
-        findOutliers(bdata);
+        findOutliers(bdata, requested[CLUMPY]);
         double[] result = new double[numScagnostics];
         result[OUTLYING] = rel_outlying;
         result[CLUMPY] = rel_clumpy;
@@ -96,16 +143,23 @@ public class Scagnostics {
             if (subCluster[i].size() > 3) {
                 allOutlierExcept(subCluster[i]);
                 double weight = (double) subCluster[i].size() / px.length;
-                clear();
-                computeDT(px, py);
-                computeMST();
-                computeAlphaGraph();
+                if (needMST) {
+                    clear();
+                    computeDT(px, py);
+                    computeMST();
+                }
+                if (needAlpha)
+                    computeAlphaGraph();
                 computeTotalCount();
-                computeAlphaArea();
-                computeAlphaPerimeter();
-                computeHullArea();
-                computeHullPerimeter();
-                double[] tmpResult = computeMeasures();
+                if (needAlpha) {
+                    long t = System.nanoTime();
+                    computeAlphaArea();
+                    computeAlphaPerimeter();
+                    computeHullArea();
+                    computeHullPerimeter();
+                    stats.alphaNanos += System.nanoTime() - t;
+                }
+                double[] tmpResult = computeMeasures(requested);
                 result[SKEWED] += tmpResult[SKEWED] * weight;
                 result[CONVEX] = tmpResult[CONVEX] * weight;
                 result[SKINNY] = tmpResult[SKINNY] * weight;
@@ -115,6 +169,10 @@ public class Scagnostics {
                 result[MONOTONIC] = tmpResult[MONOTONIC] * weight;
             }
         }
+        for (int m = 0; m < numScagnostics; m++) {
+            if (!requested[m])
+                result[m] = Double.NaN;
+        }
         return result;
     }
 
@@ -127,10 +185,15 @@ public class Scagnostics {
     }
 
     public static boolean[] computeScagnosticsExemplars(double[][] pts) {
+        return computeScagnosticsExemplars(pts, 1);
+    }
+
+    public static boolean[] computeScagnosticsExemplars(double[][] pts, int threads) {
         int nPts = pts.length;
         if (nPts < 2)
             return null;
         Cluster c = new Cluster(0, 0);
+        c.setThreads(threads);
         int[] exemp = c.compute(pts);
         boolean[] exemplars = new boolean[nPts];
         for (int i = 0; i < exemp.length; i++)
@@ -140,6 +203,10 @@ public class Scagnostics {
 
     public static boolean[] computeScagnosticsOutliers(double[][] pts) {
 
+        // beyond PRIM_MAX_POINTS (20000) plots the quadratic Prim loop is replaced by the kd-tree MST
+        if (pts.length > PRIM_MAX_POINTS)
+            return new EuclideanMST(pts).computeOutliers();
+
         // Prim's algorithm
 
         int nPts = pts.length;     // p*(p-1)/2 points representing pairwise scatterplots
@@ -205,14 +272,62 @@ public class Scagnostics {
         return outliers;
     }
 
+
     private void clear() {
-        nodes.clear();
-        edges.clear();
-        triangles.clear();
-        mstEdges.clear();
+        dt.clear();
+    }
+
+    private void computeDT(int[] px, int[] py) {
+        long t = System.nanoTime();
+        dt.computeDT(px, py, counts, isOutlier);
+        totalPeeledCount = dt.totalPeeledCount;
+        stats.dtBuilds++;
+        stats.dtNodes += nodes.size();
+        stats.triangulationNanos += System.nanoTime() - t;
+    }
+
+    private void computeMST() {
+        long t = System.nanoTime();
+        dt.computeMST();
+        stats.triangulationNanos += System.nanoTime() - t;
+    }
+
+    private double[] getSortedMSTEdgeLengths() {
+        return dt.getSortedMSTEdgeLengths();
+    }
+
+    private void computeAlphaGraph() {
+        long t = System.nanoTime();
+        dt.computeAlphaGraph(computeAlphaValue());
+        stats.alphaNanos += System.nanoTime() - t;
+    }
+
+    private void computeAlphaArea() {
+        alphaArea = dt.computeAlphaArea();
+    }
+
+    private void computeAlphaPerimeter() {
+        alphaPerimeter = dt.computeAlphaPerimeter();
+    }
+
+    private void computeHullArea() {
+        hullArea = dt.computeHullArea();
+    }
+
+    private void computeHullPerimeter() {
+        hullPerimeter = dt.computeHullPerimeter();
+    }
+
+    private void clearVisits() {
+        dt.clearVisits();
     }
 
     private void findOutliers(BinnedData bdata) {
+        findOutliers(bdata, true);
+    }
+
+    // withClumpy = false leaves rel_clumpy at 0 and skips the runt search of a single cluster
+    private void findOutliers(BinnedData bdata, boolean withClumpy) {
         this.counts = bdata.getCounts();
         isOutlier = new boolean[px.length];
         isOutlierbackup = new boolean[px.length];
@@ -245,8 +360,9 @@ public class Scagnostics {
 
         sortedOriginalMSTLengths = getSortedMSTEdgeLengths();
 
+        if (!withClumpy)
+            return;
         if (subCluster[1].size() == 0) {
-            System.out.println("single cluster.");
             getRuntsAndMaxEdgeInOneClu();
             rel_clumpy = maxValues.get(0);
         } else {
@@ -257,6 +373,7 @@ public class Scagnostics {
                 runtsEdges.get(i).onMST = false;
             }
             for (int i = 0; i < runt_sz; i++) {
+                dt.checkTime();
                 Node p1 = runtsEdges.get(i).p1;
                 Node p2 = runtsEdges.get(i).p2;
                 int index1 = findClosestClu(p1);
@@ -309,6 +426,7 @@ public class Scagnostics {
     }
 
     private void departNodes(int index) {
+        dt.checkTime();
         if (checkSingleClu(index)) {
             return;
         }
@@ -511,76 +629,37 @@ public class Scagnostics {
     }
 
     // compute measures except outlying and clumpy
-    private double[] computeMeasures() {
+    private double[] computeMeasures(boolean[] requested) {
         double[] results = new double[numScagnostics];
         // Do not change order of these calls!
-        results[SKEWED] = computeMSTEdgeLengthSkewnessMeasure();
-        results[CONVEX] = computeConvexityMeasure();
-        results[SKINNY] = computeSkinnyMeasure();
-        results[STRINGY] = computeStringyMeasure();
-        results[STRIATED] = computeStriationMeasure();
-        results[SPARSE] = computeSparsenessMeasure();
-        results[MONOTONIC] = computeMonotonicityMeasure();
+        if (requested[SKEWED])
+            results[SKEWED] = computeMSTEdgeLengthSkewnessMeasure();
+        if (requested[CONVEX])
+            results[CONVEX] = computeConvexityMeasure();
+        if (requested[SKINNY])
+            results[SKINNY] = computeSkinnyMeasure();
+        if (requested[STRINGY])
+            results[STRINGY] = computeStringyMeasure();
+        if (requested[STRIATED])
+            results[STRIATED] = computeStriationMeasure();
+        if (requested[SPARSE])
+            results[SPARSE] = computeSparsenessMeasure();
+        if (requested[MONOTONIC])
+            results[MONOTONIC] = computeMonotonicityMeasure();
         return results;
     }
 
-    private void computeDT(int[] px, int[] py) {
-        totalPeeledCount = 0;
-        Random r = new Random(13579);
-
-        for (int i = 0; i < px.length; i++) {
-            int x = px[i] + (int) (8 * (r.nextDouble() - .5)); // perturb to prevent singularities
-            int y = py[i] + (int) (8 * (r.nextDouble() - .5));
-            double count = counts[i];
-            if (!isOutlier[i]) {
-                insert(x, y, count, i);
-                totalPeeledCount += count;
-            }
-        }
-        setNeighbors();
-        markHull();
-    }
 
 
-    private void computeMST() {
-        if (nodes.size() > 1) {
-            List mstNodes = new ArrayList();
-            Node mstNode = (Node) nodes.get(0);
-            updateMSTNodes(mstNode, mstNodes);
-            int count = 1;
-            while (count < nodes.size()) {
-                Edge addEdge = null;
-                double wmin = Double.MAX_VALUE;
-                Node nmin = null;
-                Iterator mstIterator = mstNodes.iterator();
-                while (mstIterator.hasNext()) {
-                    mstNode = (Node) mstIterator.next();
-                    Edge candidateEdge = mstNode.shortestEdge(false);
-                    if (candidateEdge != null) {
-                        double wt = candidateEdge.weight;
-                        if (wt < wmin) {
-                            wmin = wt;
-                            nmin = mstNode;
-                            addEdge = candidateEdge;
-                        }
-                    }
-                }
-                if (addEdge != null) {
-                    Node addNode = addEdge.otherNode(nmin);
-                    updateMSTNodes(addNode, mstNodes);
-                    updateMSTEdges(addEdge, mstEdges);
-                }
-                count++;
-            }
-        }
-    }
 
-    private static double findCutoff(double[] distances) {
-        int[] index = Sorts.indexedDoubleArraySort(distances, 0, 0);
-        int n50 = distances.length / 2;
+    // boxplot fence of the MST edge lengths, shared with EuclideanMST
+    static double findCutoff(double[] distances) {
+        double[] sorted = distances.clone();
+        Arrays.sort(sorted);
+        int n50 = sorted.length / 2;
         int n25 = n50 / 2;
         int n75 = n50 + n50 / 2;
-        return distances[index[n75]] + 1.5 * (distances[index[n75]] - distances[index[n25]]);
+        return sorted[n75] + 1.5 * (sorted[n75] - sorted[n25]);
     }
 
     private boolean computeMSTOutliers(double omega) {
@@ -651,114 +730,18 @@ public class Scagnostics {
         return 1 - correction * (1 - skewness);
     }
 
-    private void updateMSTEdges(Edge addEdge, List mstEdges) {
-        mstEdges.add(addEdge);
-        addEdge.onMST = true;
-        addEdge.p1.mstDegree++;
-        addEdge.p2.mstDegree++;
-    }
 
-    private void updateMSTNodes(Node addNode, List mstNodes) {
-        mstNodes.add(addNode);
-        addNode.onMST = true;
-    }
 
-    private double[] getSortedMSTEdgeLengths() {
-        double[] lengths = computeEdgeLengths(mstEdges.iterator(), mstEdges.size());
-        Sorts.doubleArraySort(lengths, 0, 0);
-        return lengths;
-    }
 
     private void computeTotalOriginalMSTLengths() {
         for (int i = 0; i < sortedOriginalMSTLengths.length; i++)
             totalOriginalMSTLengths += sortedOriginalMSTLengths[i];
     }
 
-    private double[] computeEdgeLengths(Iterator graph, int n) {
-        double[] lengths = new double[n];
-        int i = 0;
-        while (graph.hasNext()) {
-            Edge e = (Edge) graph.next();
-            lengths[i] = e.weight;
-            i++;
-        }
-        return lengths;
-    }
 
-    private boolean pointsInCircle(Node n, double xc, double yc, double radius) {
-        double r = FUZZ * radius;
-        Iterator i = n.neighbors.iterator();
-        while (i.hasNext()) {
-            Edge e = (Edge) i.next();
-            Node no = e.otherNode(n);
-            double dist = no.distToNode(xc, yc);
-            if (dist < r)
-                return true;
-        }
-        return false;
-    }
 
-    private void computeAlphaGraph() { // requires initializing SEdge.onShape = false
-        boolean deleted;
-        double alpha = computeAlphaValue();
-        do {
-            Iterator i = edges.iterator();
-            deleted = false;
-            while (i.hasNext()) {
-                Edge e = (Edge) i.next();
-                if (e.inT.onComplex) {
-                    if (alpha < e.weight / 2) {
-                        e.inT.onComplex = false;
-                        deleted = true;
-                    } else {
-                        if (e.invE != null)
-                            if (e.invE.inT.onComplex)
-                                continue;
-                        if (!edgeIsExposed(alpha, e)) {
-                            e.inT.onComplex = false;
-                            deleted = true;
-                        }
-                    }
-                }
-            }
-        } while (deleted);
-        markShape();
-    }
 
-    private void markShape() {
-        Iterator i = edges.iterator();
-        while (i.hasNext()) {
-            Edge e = (Edge) i.next();
-            e.onShape = false;
-            if (e.inT.onComplex) {
-                if (e.invE == null) {
-                    e.onShape = true;
-                } else if (!e.invE.inT.onComplex)
-                    e.onShape = true;
-            }
-        }
-    }
 
-    private boolean edgeIsExposed(double alpha, Edge e) {
-        double x1 = e.p1.x;
-        double x2 = e.p2.x;
-        double y1 = e.p1.y;
-        double y2 = e.p2.y;
-        double xe = (x1 + x2) / 2;
-        double ye = (y1 + y2) / 2;
-        double d = Math.sqrt(alpha * alpha - e.weight * e.weight / 4);
-        double xt = d * (y2 - y1) / e.weight;
-        double yt = d * (x2 - x1) / e.weight;
-        double xc1 = xe + xt;
-        double yc1 = ye - yt;
-        double xc2 = xe - xt;
-        double yc2 = ye + yt;
-        boolean pointsInCircle1 = pointsInCircle(e.p1, xc1, yc1, alpha) ||
-                pointsInCircle(e.p2, xc1, yc1, alpha);
-        boolean pointsInCircle2 = pointsInCircle(e.p1, xc2, yc2, alpha) ||
-                pointsInCircle(e.p2, xc2, yc2, alpha);
-        return !(pointsInCircle1 && pointsInCircle2);
-    }
 
     private double computeStringyMeasure() {
         int count1 = 0;
@@ -823,6 +806,7 @@ public class Scagnostics {
     }
 
     private Edge getRuntsAndMaxEdge(double cutoff) {
+        long t = System.nanoTime();
         Iterator it = mstEdges.iterator();
         double[] maxLength = new double[1];
         double maxValue = 0;
@@ -836,10 +820,12 @@ public class Scagnostics {
         double tmp_value = 0;
         while (it.hasNext()) {
             Edge e = (Edge) it.next();
+            dt.checkTime();
             clearVisits();
             e.onMST = false;  // break MST at this edge
             int runts = e.getRunts(maxLength, maxEdge);
             e.onMST = true;   // restore this edge to MST
+            stats.runtEdges++;
             if (e.weight > 1.6 * cutoff && maxLength[0] > 0) {
                 double value = runts * (1 - maxLength[0] / e.weight);
 //                double value = 1 - maxLength[0] / e.weight;
@@ -856,10 +842,12 @@ public class Scagnostics {
         maxEdges.add(tmpEdge1);
         maxEdges.add(tmpEdge2);
         maxValues.add(tmp_value);
+        stats.runtNanos += System.nanoTime() - t;
         return runt_edge;
     }
 
     private void getRuntsAndMaxEdgeInOneClu() {
+        long t = System.nanoTime();
         Iterator it = mstEdges.iterator();
         double[] maxLength = new double[1];
         double maxValue = 0;
@@ -873,10 +861,12 @@ public class Scagnostics {
         double tmp_value = 0;
         while (it.hasNext()) {
             Edge e = (Edge) it.next();
+            dt.checkTime();
             clearVisits();
             e.onMST = false;  // break MST at this edge
             int runts = e.getRunts(maxLength, maxEdge);
             e.onMST = true;   // restore this edge to MST
+            stats.runtEdges++;
             if (maxLength[0] > 0 && runts > 1) {
                 double value = runts * (1 - maxLength[0] / e.weight);
                 if (value > maxValue) {
@@ -892,15 +882,9 @@ public class Scagnostics {
         maxEdges.add(tmpEdge1);
         maxEdges.add(tmpEdge2);
         maxValues.add(tmp_value);
+        stats.runtNanos += System.nanoTime() - t;
     }
 
-    private void clearVisits() {
-        Iterator it = nodes.iterator();
-        while (it.hasNext()) {
-            Node n = (Node) it.next();
-            n.isVisited = false;
-        }
-    }
 
     private double computeMonotonicityMeasure() {
         int n = counts.length;
@@ -1010,294 +994,14 @@ public class Scagnostics {
             return 1;
     }
 
-    private void computeAlphaArea() {
-        double area = 0;
-        Iterator tri = triangles.iterator();
-        while (tri.hasNext()) {
-            Triangle t = (Triangle) tri.next();
-            if (t.onComplex) {
-                Node p1 = t.anEdge.p1;
-                Node p2 = t.anEdge.p2;
-                Node p3 = t.anEdge.nextE.p2;
-                area += Math.abs(p1.x * p2.y + p1.y * p3.x + p2.x * p3.y
-                        - p3.x * p2.y - p3.y * p1.x - p1.y * p2.x);
-            }
-        }
-        alphaArea = area / 2;
-    }
 
-    private void computeHullArea() {
-        double area = 0.0;
-        Iterator tri = triangles.iterator();
-        while (tri.hasNext()) {
-            Triangle t = (Triangle) tri.next();
-            Node p1 = t.anEdge.p1;
-            Node p2 = t.anEdge.p2;
-            Node p3 = t.anEdge.nextE.p2;
-            area += Math.abs(p1.x * p2.y + p1.y * p3.x + p2.x * p3.y
-                    - p3.x * p2.y - p3.y * p1.x - p1.y * p2.x);
-        }
-        hullArea = area / 2.;
-    }
 
-    private void computeAlphaPerimeter() {
-        double sum = 0;
-        Iterator it = edges.iterator();
-        while (it.hasNext()) {
-            Edge e = (Edge) it.next();
-            if (e.onShape) {
-                sum += e.weight;
-            }
-        }
-        alphaPerimeter = sum;
-    }
 
-    private void computeHullPerimeter() {
-        double sum = 0;
-        Edge e = hullStart;
-        do {
-            sum += e.p1.distToNode(e.p2.x, e.p2.y);
-            e = e.nextH;
-        } while (!e.isEqual(hullStart));
-        hullPerimeter = sum;
-    }
 
-    private void setNeighbors() {
-        Iterator it = edges.iterator();
-        while (it.hasNext()) {
-            Edge e = (Edge) it.next();
-            if (e.isNewEdge(e.p1))
-                e.p1.setNeighbor(e);
-            if (e.isNewEdge(e.p2))
-                e.p2.setNeighbor(e);
-        }
-    }
 
-    private void insert(int px, int py, double count, int id) {
-        int eid;
-        Node nd = new Node(px, py, count, id);
-        nodes.add(nd);
-        if (nodes.size() < 3) return;
-        if (nodes.size() == 3)    // create the first triangle
-        {
-            Node p1 = (Node) nodes.get(0);
-            Node p2 = (Node) nodes.get(1);
-            Node p3 = (Node) nodes.get(2);
-            Edge e1 = new Edge(p1, p2);
-            if (e1.onSide(p3) == 0) {
-                nodes.remove(nd);
-                return;
-            }
-            if (e1.onSide(p3) == -1)  // right side
-            {
-                p1 = (Node) nodes.get(1);
-                p2 = (Node) nodes.get(0);
-                e1.update(p1, p2);
-            }
-            Edge e2 = new Edge(p2, p3);
-            Edge e3 = new Edge(p3, p1);
-            e1.nextH = e2;
-            e2.nextH = e3;
-            e3.nextH = e1;
-            hullStart = e1;
-            triangles.add(new Triangle(edges, e1, e2, e3));
-            return;
-        }
-        //when the size of nodes is bigger than 3
-        actE = (Edge) edges.get(0);
-        if (actE.onSide(nd) == -1) {
-            if (actE.invE == null)
-                eid = -1;
-            else
-                eid = searchEdge(actE.invE, nd);
-        } else
-            eid = searchEdge(actE, nd);
-        if (eid == 0) {
-            nodes.remove(nd);
-            return;
-        }
-        if (eid > 0)
-            expandTri(actE, nd, eid);   // nd is inside or on a triangle
-        else
-            expandHull(nd);                // nd is outside convex hull
-    }
 
-    private void expandTri(Edge e, Node nd, int type) {
-        Edge e1 = e;
-        Edge e2 = e1.nextE;
-        Edge e3 = e2.nextE;
-        Node p1 = e1.p1;
-        Node p2 = e2.p1;
-        Node p3 = e3.p1;
-        if (type == 2) {   // nd is inside of the triangle
-            Edge e10 = new Edge(p1, nd);
-            Edge e20 = new Edge(p2, nd);
-            Edge e30 = new Edge(p3, nd);
-            e.inT.removeEdges(edges);
-            triangles.remove(e.inT);     // remove old triangle
-            Edge e100 = e10.makeSymm();
-            Edge e200 = e20.makeSymm();
-            Edge e300 = e30.makeSymm();
-            triangles.add(new Triangle(edges, e1, e20, e100));
-            triangles.add(new Triangle(edges, e2, e30, e200));
-            triangles.add(new Triangle(edges, e3, e10, e300));
-            swapTest(e1);   // swap test for the three new triangles
-            swapTest(e2);
-            swapTest(e3);
-        } else {          // nd is on the edge e
-            Edge e4 = e1.invE;
-            if (e4 == null || e4.inT == null) {          // one triangle involved
-                Edge e30 = new Edge(p3, nd);
-                Edge e02 = new Edge(nd, p2);
-                Edge e10 = new Edge(p1, nd);
-                Edge e03 = e30.makeSymm();
-//								shareEdges(e03,e30);
-                e10.asIndex();
-                e1.mostLeft().nextH = e10;
-                e10.nextH = e02;
-                e02.nextH = e1.nextH;
-                hullStart = e02;
-                triangles.remove(e1.inT);  // remove oldtriangle and add two new triangles
-                edges.remove(e1);
-                edges.add(e10);
-                edges.add(e02);
-                edges.add(e30);
-                edges.add(e03);
-                triangles.add(new Triangle(e2, e30, e02));
-                triangles.add(new Triangle(e3, e10, e03));
-                swapTest(e2);   // swap test for the two new triangles
-                swapTest(e3);
-                swapTest(e30);
-            } else {        // two triangle involved
-                Edge e5 = e4.nextE;
-                Edge e6 = e5.nextE;
-                Node p4 = e6.p1;
-                Edge e10 = new Edge(p1, nd);
-                Edge e20 = new Edge(p2, nd);
-                Edge e30 = new Edge(p3, nd);
-                Edge e40 = new Edge(p4, nd);
-                triangles.remove(e.inT);                   // remove oldtriangle
-                e.inT.removeEdges(edges);
-                triangles.remove(e4.inT);               // remove old triangle
-                e4.inT.removeEdges(edges);
-                e5.asIndex();   // because e, e4 removed, reset edge sortOrder of node p1 and p2
-                e2.asIndex();
-                triangles.add(new Triangle(edges, e2, e30, e20.makeSymm()));
-                triangles.add(new Triangle(edges, e3, e10, e30.makeSymm()));
-                triangles.add(new Triangle(edges, e5, e40, e10.makeSymm()));
-                triangles.add(new Triangle(edges, e6, e20, e40.makeSymm()));
-                swapTest(e2);   // swap test for the three new triangles
-                swapTest(e3);
-                swapTest(e5);
-                swapTest(e6);
-                swapTest(e10);
-                swapTest(e20);
-                swapTest(e30);
-                swapTest(e40);
-            }
-        }
-    }
 
-    private void expandHull(Node nd) {
-        Edge e1, e2, e3 = null, enext;
-        Edge e = hullStart;
-        Edge comedge = null, lastbe = null;
-        while (true) {
-            enext = e.nextH;
-            if (e.onSide(nd) == -1) {  // right side
-                if (lastbe != null) {
-                    e1 = e.makeSymm();
-                    e2 = new Edge(e.p1, nd);
-                    e3 = new Edge(nd, e.p2);
-                    if (comedge == null) {
-                        hullStart = lastbe;
-                        lastbe.nextH = e2;
-                        lastbe = e2;
-                    } else
-                        comedge.linkSymm(e2);
-
-
-                    comedge = e3;
-                    triangles.add(new Triangle(edges, e1, e2, e3));
-                    swapTest(e);
-                }
-            } else {
-                if (comedge != null) break;
-                lastbe = e;
-            }
-            e = enext;
-        }
-
-        lastbe.nextH = e3;
-        e3.nextH = e;
-    }
 
-    private int searchEdge(Edge e, Node nd) {
-        int f2, f3;
-        Edge e0 = null;
-        if ((f2 = e.nextE.onSide(nd)) == -1) {
-            if (e.nextE.invE != null)
-                return searchEdge(e.nextE.invE, nd);
-            else {
-                actE = e;
-                return -1;
-            }
-        }
-        if (f2 == 0) e0 = e.nextE;
-        Edge ee = e.nextE;
-        if ((f3 = ee.nextE.onSide(nd)) == -1) {
-            if (ee.nextE.invE != null)
-                return searchEdge(ee.nextE.invE, nd);
-            else {
-                actE = ee.nextE;
-                return -1;
-            }
-        }
-        if (f3 == 0) e0 = ee.nextE;
-        if (e.onSide(nd) == 0) e0 = e;
-        if (e0 != null) {
-            actE = e0;
-            if (e0.nextE.onSide(nd) == 0) {
-                actE = e0.nextE;
-                return 0;
-            }
-            if (e0.nextE.nextE.onSide(nd) == 0) return 0;
-            return 1;
-        }
-        actE = ee;
-        return 2;
-    }
 
-    private void swapTest(Edge e11) {
-        Edge e21 = e11.invE;
-        if (e21 == null || e21.inT == null) return;
-        Edge e12 = e11.nextE;
-        Edge e13 = e12.nextE;
-        Edge e22 = e21.nextE;
-        Edge e23 = e22.nextE;
-        if (e11.inT.inCircle(e22.p2) || e21.inT.inCircle(e12.p2)) {
-            e11.update(e22.p2, e12.p2);
-            e21.update(e12.p2, e22.p2);
-            e11.linkSymm(e21);
-            e13.inT.update(e13, e22, e11);
-            e23.inT.update(e23, e12, e21);
-            e12.asIndex();
-            e22.asIndex();
-            swapTest(e12);
-            swapTest(e22);
-            swapTest(e13);
-            swapTest(e23);
-        }
-    }
 
-    private void markHull() {
-        Edge e = hullStart;
-        if (e != null)
-            do {
-                e.onHull = true;
-                e.p1.onHull = true;
-                e.p2.onHull = true;
-                e = e.nextH;
-            } while (!e.isEqual(hullStart));
-    }
 }
@@ -0,0 +1,221 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Scagnostics of binned plots, cached by a SHA-256 digest of the integer bin coordinates and counts.
+ * Duplicate plots (repeated columns, permuted rows) bin to the same BinnedData when binned with a fixed
+ * seed in canonical order, as compute(x, y, numBins, maxBins) does, and then skip the geometry entirely.
+ * The most recently used results are kept in memory; with a directory, every result is also kept on disk.
+ */
+public class ScagnosticsCache {
+    static final long SEED = 20190101L;          // also recorded by PlotCapture
+    private static final double[] DEGENERATE = new double[0];    // cached null result
+    private final int maxEntries;
+    private final LinkedHashMap<String, double[]> entries;
+    private File directory;
+    private long hits, diskHits, misses;
+    private volatile long timeLimit;
+    private final ThreadLocal<Binner> binners = new ThreadLocal<Binner>();
+
+    public ScagnosticsCache(int maxEntries) {
+        this.maxEntries = maxEntries;
+        entries = new LinkedHashMap<String, double[]>(16, .75f, true) {
+            protected boolean removeEldestEntry(Map.Entry<String, double[]> eldest) {
+                return size() > ScagnosticsCache.this.maxEntries;
+            }
+        };
+    }
+
+    // keeps results in files under directory as well, shared between runs
+    public void setDirectory(File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IOException("Cannot create " + directory);
+        this.directory = directory;
+    }
+
+    // Scagnostics.setTimeLimit of the plots computed; a plot that runs out of time is not cached
+    public void setTimeLimit(long millis) {
+        timeLimit = millis;
+    }
+
+    // same as new Scagnostics(x, y, numBins, maxBins).compute(), with seeded canonical binning
+    public double[] compute(double[] x, double[] y, int numBins, int maxBins) {
+        return compute(x, y, null, numBins, maxBins);
+    }
+
+    // the same from cells already assigned, for instance by ColumnCache.getCells
+    public double[] compute(double[] x, double[] y, int[] cells, int numBins, int maxBins) {
+        Binner b = binners.get();
+        if (b == null || b.getMaxBins() != maxBins) {
+            b = new Binner(maxBins);
+            b.setCanonical(true);
+            binners.set(b);
+        }
+        b.setSeed(SEED);
+        if (cells == null)
+            cells = b.assignCells(x, y, numBins);
+        return compute(b.binCells(x, y, cells, null, numBins, 3));
+    }
+
+    public double[] compute(BinnedData data) {
+        String key = digest(data);
+        double[] result;
+        synchronized (this) {
+            result = entries.get(key);
+            if (result != null)
+                hits++;
+        }
+        if (result == null && directory != null) {
+            result = read(key);
+            if (result != null) {
+                synchronized (this) {
+                    diskHits++;
+                    entries.put(key, result);
+                }
+            }
+        }
+        if (result == null) {
+            Scagnostics s = new Scagnostics(data);
+            s.setTimeLimit(timeLimit);
+            double[] computed = s.compute();
+            result = computed == null ? DEGENERATE : computed;
+            synchronized (this) {
+                misses++;
+                entries.put(key, result);
+            }
+            if (directory != null)
+                write(key, result);
+        }
+        return result == DEGENERATE ? null : result.clone();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getDiskHits() {
+        return diskHits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    static String digest(BinnedData data) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        int[] x = data.getXData();
+        int[] y = data.getYData();
+        double[] counts = data.getCounts();
+        byte[] buf = new byte[16 * 1024];
+        int p = putInt(buf, 0, x.length);
+        for (int i = 0; i < x.length; i++) {
+            if (p > buf.length - 16) {
+                md.update(buf, 0, p);
+                p = 0;
+            }
+            p = putInt(buf, p, x[i]);
+            p = putInt(buf, p, y[i]);
+            long c = Double.doubleToLongBits(counts[i]);
+            p = putInt(buf, p, (int) (c >>> 32));
+            p = putInt(buf, p, (int) c);
+        }
+        md.update(buf, 0, p);
+        StringBuilder sb = new StringBuilder();
+        for (byte v : md.digest())
+            sb.append(Character.forDigit((v >> 4) & 15, 16)).append(Character.forDigit(v & 15, 16));
+        return sb.toString();
+    }
+
+    private static int putInt(byte[] buf, int p, int v) {
+        buf[p] = (byte) (v >>> 24);
+        buf[p + 1] = (byte) (v >>> 16);
+        buf[p + 2] = (byte) (v >>> 8);
+        buf[p + 3] = (byte) v;
+        return p + 4;
+    }
+
+    // one small file per result, in subdirectories named by the first two digits of the key
+    private File file(String key) {
+        return new File(new File(directory, key.substring(0, 2)), key);
+    }
+
+    private double[] read(String key) {
+        File f = file(key);
+        if (!f.isFile())
+            return null;
+        try (DataInputStream in = new DataInputStream(new FileInputStream(f))) {
+            double[] result = new double[in.readInt()];
+            for (int m = 0; m < result.length; m++)
+                result[m] = in.readDouble();
+            return result.length == 0 ? DEGENERATE : result;
+        } catch (IOException e) {
+            return null;       // unreadable entries are recomputed
+        }
+    }
+
+    // written to a temporary file of its own and renamed, so that concurrent readers never see half an entry,
+    // also when several processes share the directory
+    private void write(String key, double[] result) {
+        File f = file(key);
+        File dir = f.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory())
+            return;
+        File tmp;
+        try {
+            tmp = File.createTempFile(key, ".tmp", dir);
+        } catch (IOException e) {
+            return;
+        }
+        try {
+            try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+                out.writeInt(result.length);
+                for (double v : result)
+                    out.writeDouble(v);
+            }
+            if (!tmp.renameTo(f))
+                tmp.delete();
+        } catch (IOException e) {
+            tmp.delete();
+        }
+    }
+}
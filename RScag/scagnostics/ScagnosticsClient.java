@@ -0,0 +1,161 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/*
+ * A connection to a ScagnosticsDaemon. compute sends one table and waits for the measures of its pairs;
+ * calls from several threads are sent one after another.
+ */
+public class ScagnosticsClient implements Closeable {
+    private SocketChannel channel;
+    private int nextId;
+
+    public ScagnosticsClient(File socket) throws IOException {
+        channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+        channel.connect(UnixDomainSocketAddress.of(socket.toPath()));
+        ByteBuffer hello = ByteBuffer.allocate(8);
+        hello.putInt(ScagnosticsDaemon.MAGIC).putInt(ScagnosticsDaemon.VERSION).flip();
+        write(hello);
+        hello.clear();
+        if (!ScagnosticsDaemon.readFully(channel, hello) || hello.getInt(0) != ScagnosticsDaemon.MAGIC)
+            throw new IOException(socket + " is not a scagnostics daemon");
+    }
+
+    public double[][] compute(double[][] columns, int numBins, int maxBins) throws IOException {
+        return compute(columns, Variant.RSCAG, numBins, maxBins, null);
+    }
+
+    /*
+     * The measures of every pair (i, j), j < i, in the order of Main, one row per pair. measures selects
+     * the measures of RScag as in Scagnostics.compute(int[]); null computes all. The columns are not
+     * changed; the daemon normalizes them.
+     */
+    public synchronized double[][] compute(double[][] columns, Variant variant, int numBins, int maxBins,
+                                           int[] measures) throws IOException {
+        int numRows = columns[0].length;
+        int mask = 0;
+        if (measures != null)
+            for (int m : measures)
+                mask |= 1 << m;
+        int id = nextId++;
+        ByteBuffer request = ByteBuffer.allocate(ScagnosticsDaemon.HEADER + columns.length * numRows * 8);
+        request.putInt(id).put((byte) variant.ordinal()).putInt(numBins).putInt(maxBins).putInt(mask)
+                .putInt(columns.length).putInt(numRows);
+        for (double[] column : columns) {
+            if (column.length != numRows)
+                throw new IllegalArgumentException("columns of different lengths");
+            request.asDoubleBuffer().put(column);
+            request.position(request.position() + numRows * 8);
+        }
+        request.flip();
+        write(request);
+
+        ByteBuffer header = ByteBuffer.allocate(9);
+        read(header);
+        if (header.getInt(0) != id)
+            throw new IOException("reply to request " + header.getInt(0) + " instead of " + id);
+        byte status = header.get(4);
+        ByteBuffer body = ByteBuffer.allocate(status == ScagnosticsDaemon.OK
+                ? header.getInt(5) * Scagnostics.getNumScagnostics() * 8 : header.getInt(5));
+        read(body);
+        if (status == ScagnosticsDaemon.TIMEOUT)
+            throw new IOException("timeout: " + new String(body.array(), StandardCharsets.UTF_8));
+        if (status != ScagnosticsDaemon.OK)
+            throw new IOException(new String(body.array(), StandardCharsets.UTF_8));
+        double[][] results = new double[header.getInt(5)][Scagnostics.getNumScagnostics()];
+        for (double[] result : results)
+            for (int m = 0; m < result.length; m++)
+                result[m] = body.getDouble();
+        return results;
+    }
+
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+    }
+
+    private void read(ByteBuffer buffer) throws IOException {
+        if (!ScagnosticsDaemon.readFully(channel, buffer))
+            throw new IOException("the daemon closed the connection");
+        buffer.flip();
+    }
+
+    /*
+     * ScagnosticsClient <socket> <data.csv> [-bins numBins] [-maxBins maxBins] [-variant RScag|Scag-05|Scag-06]
+     *                   [-repeat n]
+     * Prints the measures of every pair of the table as ResultIndex does; with -repeat, the mean time of n calls.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 2) {
+            System.out.println("usage: ScagnosticsClient <socket> <data.csv> [-bins numBins] [-maxBins maxBins]"
+                    + " [-variant RScag|Scag-05|Scag-06] [-repeat n]");
+            return;
+        }
+        int numBins = 50;
+        int maxBins = 1000;
+        Variant variant = Variant.RSCAG;
+        int repeat = 1;
+        for (int i = 2; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-bins": numBins = Integer.parseInt(value); break;
+                case "-maxBins": maxBins = Integer.parseInt(value); break;
+                case "-variant": variant = Variant.forLabel(value); break;
+                case "-repeat": repeat = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        double[][] columns = Main.getData(new File(argv[1]));
+        if (columns == null)
+            return;
+        ScagnosticsClient client = new ScagnosticsClient(new File(argv[0]));
+        try {
+            long t0 = System.nanoTime();
+            double[][] results = null;
+            for (int r = 0; r < repeat; r++)
+                results = client.compute(columns, variant, numBins, maxBins, null);
+            long nanos = System.nanoTime() - t0;
+            int k = 0;
+            for (int i = 1; i < columns.length; i++)
+                for (int j = 0; j < i; j++)
+                    System.out.println("V" + (j + 1) + ",V" + (i + 1) + "," + Arrays.toString(results[k++]));
+            if (repeat > 1)
+                System.out.println(repeat + " calls, " + nanos / repeat / 1000 + " us per call");
+        } finally {
+            client.close();
+        }
+    }
+}
@@ -0,0 +1,401 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * A long-running JVM that computes scagnostics for clients on a Unix domain socket, so that short calls
+ * pay neither the JVM startup nor the cold JIT. A request is a small table; the reply holds the measures
+ * of all its column pairs, in the order of Main. Connections are read by one thread each and their
+ * requests go to one queue. A worker takes every request waiting in the queue, up to the batch size, and
+ * computes them with its own Binner; replies carry the request id and may come back out of order.
+ *
+ * The protocol is big-endian. The client opens with MAGIC and VERSION (two ints) and the daemon answers
+ * with the same. A request is int id, byte variant (0 RScag, 1 Scag-05, 2 Scag-06), int numBins,
+ * int maxBins, int measures (a bit per measure in the order of getScagnosticsLabels, 0 for all), int
+ * numColumns, int numRows and then the columns one after another as doubles. A reply is int id, byte
+ * status and, for OK, int numPairs followed by nine doubles per pair; for ERROR and TIMEOUT an int length
+ * and a UTF-8 message. A degenerate pair (a constant column, or too few bins), which ResultStore keeps as
+ * DEGENERATE, has nine NaNs.
+ */
+public class ScagnosticsDaemon {
+    static final int MAGIC = 0x52534344;      // "RSCD"
+    static final int VERSION = 1;
+    static final byte OK = 0, ERROR = 1, TIMEOUT = 2;
+    static final int HEADER = 25;             // bytes of a request before the columns
+    private static final int WARMUP_ROWS = 500;
+
+    private File socket;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 16;
+    private long timeLimit;
+    private long maxValues = 1L << 26;        // doubles per request
+    private long maxPairs = 1L << 21;         // pairs per request, 9 doubles each in the reply
+    private LinkedBlockingQueue<Request> queue = new LinkedBlockingQueue<Request>();
+    private ServerSocketChannel server;
+    private List<Thread> workers = new ArrayList<Thread>();
+    private AtomicLong requests = new AtomicLong(), batches = new AtomicLong();
+
+    public ScagnosticsDaemon(File socket) {
+        this.socket = socket;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    // the most requests a worker takes from the queue at once
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    // per pair, 0 for none; a pair that runs out of time fails its request with TIMEOUT
+    public void setTimeLimit(long millis) {
+        timeLimit = millis;
+    }
+
+    // larger requests are answered with ERROR and their connection is closed
+    public void setMaxValues(long maxValues) {
+        this.maxValues = Math.min(maxValues, Integer.MAX_VALUE / 8);
+    }
+
+    // requests of tables with more column pairs are answered with ERROR and their connection is closed
+    public void setMaxPairs(long maxPairs) {
+        this.maxPairs = Math.min(maxPairs, (Integer.MAX_VALUE - 9) / (8 * Scagnostics.getNumScagnostics()));
+    }
+
+    public long getRequests() {
+        return requests.get();
+    }
+
+    public long getBatches() {
+        return batches.get();
+    }
+
+    /*
+     * Runs plots of every PlotGenerator family, from 100 to WARMUP_ROWS rows, through the code of the
+     * workers until the JIT has compiled it. Returns the time taken in ms.
+     */
+    public long warmUp(int plots) {
+        long t0 = System.currentTimeMillis();
+        String[] families = PlotGenerator.getFamilies();
+        PlotGenerator generator = new PlotGenerator(1);
+        Binner binner = new Binner(1000);
+        for (int k = 0; k < plots; k++) {
+            int rows = 100 + (k * 37) % (WARMUP_ROWS - 100);
+            Variant variant = k % 8 == 7 ? Variant.values()[1 + k / 8 % 2] : Variant.RSCAG;
+            double[][] columns = generator.generate(families[k % families.length], rows);
+            compute(new Request(null, k, variant, 50, 1000, null, columns), binner);
+        }
+        return System.currentTimeMillis() - t0;
+    }
+
+    // binds the socket, replacing a stale socket file, and starts the workers
+    public void start() throws IOException {
+        if (socket.exists() && !socket.delete())
+            throw new IOException("cannot remove " + socket);
+        server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+        server.bind(UnixDomainSocketAddress.of(socket.toPath()));
+        for (int w = 0; w < threads; w++) {
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    work();
+                }
+            }, "scagnostics-worker-" + w);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+    }
+
+    // accepts connections until close
+    public void serve() throws IOException {
+        while (true) {
+            final SocketChannel channel;
+            try {
+                channel = server.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            }
+            Thread t = new Thread(new Runnable() {
+                public void run() {
+                    read(new Connection(channel));
+                }
+            }, "scagnostics-connection");
+            t.setDaemon(true);
+            t.start();
+        }
+    }
+
+    public void close() throws IOException {
+        if (server != null)
+            server.close();
+        for (Thread t : workers)
+            t.interrupt();
+        socket.delete();
+    }
+
+    private void read(Connection connection) {
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER);
+            header.limit(8);
+            if (!readFully(connection.channel, header) || header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                connection.close();
+                return;
+            }
+            header.flip();
+            connection.send(header);
+            while (true) {
+                header.clear();
+                if (!readFully(connection.channel, header))
+                    break;
+                header.flip();
+                int id = header.getInt();
+                int variant = header.get();
+                int numBins = header.getInt();
+                int maxBins = header.getInt();
+                int mask = header.getInt();
+                int numColumns = header.getInt();
+                int numRows = header.getInt();
+                String error = null;
+                if (variant < 0 || variant >= Variant.values().length)
+                    error = "unknown variant " + variant;
+                else if (numBins < 1 || maxBins < 1)
+                    error = "numBins and maxBins must be positive";
+                else if (numColumns < 2 || numRows < 1 || (long) numColumns * numRows > maxValues)
+                    error = "a table needs 2 columns and at most " + maxValues + " values, got " + numColumns
+                            + " x " + numRows;
+                else if ((long) numColumns * (numColumns - 1) / 2 > maxPairs)
+                    error = "a table may have at most " + maxPairs + " column pairs, got " + numColumns + " columns";
+                if (error != null) {
+                    connection.send(message(id, ERROR, error));
+                    break;
+                }
+                ByteBuffer data = ByteBuffer.allocate(numColumns * numRows * 8);
+                if (!readFully(connection.channel, data))
+                    break;
+                data.flip();
+                double[][] columns = new double[numColumns][numRows];
+                for (int c = 0; c < numColumns; c++)
+                    data.asDoubleBuffer().get(c * numRows, columns[c]);
+                queue.put(new Request(connection, id, Variant.values()[variant], numBins, maxBins, measures(mask),
+                        columns));
+            }
+        } catch (IOException e) {
+            // the client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        connection.close();
+    }
+
+    private void work() {
+        Binner binner = new Binner(1000);
+        List<Request> batch = new ArrayList<Request>();
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch, batchSize - 1);
+                batches.incrementAndGet();
+                for (Request r : batch) {
+                    ByteBuffer reply;
+                    try {
+                        reply = compute(r, binner);
+                    } catch (ScagnosticsTimeoutException e) {
+                        reply = message(r.id, TIMEOUT, e.getMessage());
+                    } catch (RuntimeException e) {
+                        reply = message(r.id, ERROR, String.valueOf(e));
+                    } catch (OutOfMemoryError | StackOverflowError e) {
+                        // fail the request, not the worker, or its client would wait forever
+                        reply = message(r.id, ERROR, String.valueOf(e));
+                    }
+                    requests.incrementAndGet();
+                    r.connection.send(reply);
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // closed
+        }
+    }
+
+    // the OK reply of a request
+    private ByteBuffer compute(Request r, Binner binner) {
+        binner.setMaxBins(r.maxBins);
+        ColumnCache columns = new ColumnCache(r.columns);
+        int nDim = r.columns.length;
+        int numPairs = nDim * (nDim - 1) / 2;
+        int numScagnostics = Scagnostics.getNumScagnostics();
+        ByteBuffer reply = ByteBuffer.allocate(9 + numPairs * numScagnostics * 8);
+        reply.putInt(r.id).put(OK).putInt(numPairs);
+        for (int i = 1; i < nDim; i++) {
+            for (int j = 0; j < i; j++) {
+                double[] result;
+                if (r.variant == Variant.RSCAG) {
+                    Scagnostics s = new Scagnostics(columns.bin(binner, j, i, r.numBins));
+                    s.setTimeLimit(timeLimit);
+                    result = r.measures == null ? s.compute() : s.compute(r.measures);
+                } else {
+                    OutlierPolicy policy = r.variant == Variant.SCAG_05 ? OutlierPolicy.DEGREE_ONE
+                            : OutlierPolicy.ANY_DEGREE;
+                    BinnedData bdata = binner.binHexagonal(columns.getColumn(j), columns.getColumn(i), r.numBins);
+                    result = new ClassicScagnostics(bdata).compute(new OutlierPolicy[]{policy})[0];
+                }
+                for (int m = 0; m < numScagnostics; m++)
+                    reply.putDouble(result == null ? Double.NaN : result[m]);
+            }
+        }
+        reply.flip();
+        return reply;
+    }
+
+    private static int[] measures(int mask) {
+        if (mask == 0)
+            return null;
+        int n = 0;
+        for (int m = 0; m < Scagnostics.getNumScagnostics(); m++)
+            if ((mask & (1 << m)) != 0) n++;
+        int[] measures = new int[n];
+        n = 0;
+        for (int m = 0; m < Scagnostics.getNumScagnostics(); m++)
+            if ((mask & (1 << m)) != 0) measures[n++] = m;
+        return measures;
+    }
+
+    private static ByteBuffer message(int id, byte status, String message) {
+        byte[] text = message.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer reply = ByteBuffer.allocate(9 + text.length);
+        reply.putInt(id).put(status).putInt(text.length).put(text);
+        reply.flip();
+        return reply;
+    }
+
+    // false if the channel ended before the buffer was full
+    static boolean readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0)
+                return false;
+        }
+        return true;
+    }
+
+    // one client; replies are written by the workers, one at a time
+    private static class Connection {
+        private SocketChannel channel;
+
+        Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        synchronized void send(ByteBuffer reply) {
+            if (channel == null)
+                return;
+            try {
+                while (reply.hasRemaining())
+                    channel.write(reply);
+            } catch (IOException e) {
+                close();
+            }
+        }
+
+        synchronized void close() {
+            if (channel == null)
+                return;
+            try {
+                channel.close();
+            } catch (IOException e) {
+                // already closed
+            }
+            channel = null;
+        }
+    }
+
+    private static class Request {
+        Connection connection;
+        int id;
+        Variant variant;
+        int numBins, maxBins;
+        int[] measures;
+        double[][] columns;
+
+        Request(Connection connection, int id, Variant variant, int numBins, int maxBins, int[] measures,
+                double[][] columns) {
+            this.connection = connection;
+            this.id = id;
+            this.variant = variant;
+            this.numBins = numBins;
+            this.maxBins = maxBins;
+            this.measures = measures;
+            this.columns = columns;
+        }
+    }
+
+    /*
+     * ScagnosticsDaemon <socket> [-threads n] [-batch requests] [-warmup plots] [-timeLimit ms]
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 1) {
+            System.out.println("usage: ScagnosticsDaemon <socket> [-threads n] [-batch requests] [-warmup plots]"
+                    + " [-timeLimit ms]");
+            return;
+        }
+        final ScagnosticsDaemon daemon = new ScagnosticsDaemon(new File(argv[0]));
+        int warmup = 300;
+        for (int i = 1; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-threads": daemon.setThreads(Integer.parseInt(value)); break;
+                case "-batch": daemon.setBatchSize(Integer.parseInt(value)); break;
+                case "-warmup": warmup = Integer.parseInt(value); break;
+                case "-timeLimit": daemon.setTimeLimit(Long.parseLong(value)); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        System.out.println("warmed up on " + warmup + " plots in " + daemon.warmUp(warmup) + " ms");
+        daemon.start();
+        Runtime.getRuntime().addShutdownHook(new Thread() {
+            public void run() {
+                try {
+                    daemon.close();
+                } catch (IOException e) {
+                    // exiting anyway
+                }
+                System.out.println(daemon.getRequests() + " requests in " + daemon.getBatches() + " batches");
+            }
+        });
+        System.out.println("listening on " + argv[0]);
+        daemon.serve();
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/*
+ * All-pairs scagnostics split over several worker processes. plan converts the table to a ColumnFile and
+ * writes a ShardManifest that splits the pair matrix into row ranges of about the same number of pairs.
+ * run starts one ShardWorker process per shard on this machine, waits for them and merges. merge copies
+ * the shard stores into one ResultStore and builds its ResultIndex (<store>.idx). On several hosts, copy
+ * the manifest with its files, start "ShardWorker <manifest> <shard>" on each, bring the shard stores
+ * back and merge.
+ */
+public class ShardCoordinator {
+
+    public static ShardManifest plan(File data, File store, int shards, int numBins, int maxBins, Variant variant,
+                                     long memory, long timeLimit, File cache) throws IOException {
+        File tableFile;
+        if (data.getName().endsWith(".cols")) {
+            tableFile = data;
+        } else {
+            tableFile = new File(data.getPath() + ".cols");
+            if (!tableFile.exists() || tableFile.lastModified() < data.lastModified())
+                ColumnFile.create(data, tableFile, (memory << 20) / 2).close();
+        }
+        ColumnFile table = ColumnFile.open(tableFile);
+        int nDim = table.getNumColumns();
+        table.close();
+        ShardManifest manifest = new ShardManifest(tableFile, store, nDim, shards, numBins, maxBins, variant, memory);
+        manifest.setTimeLimit(timeLimit);
+        manifest.setCache(cache);
+        manifest.write(manifestFile(store));
+        return manifest;
+    }
+
+    // runs every shard in its own JVM with the class path of this one, threads each; logs go to <shard>.log
+    public static void runWorkers(File manifestFile, ShardManifest manifest, int threads) throws IOException {
+        String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+        List<Process> workers = new ArrayList<Process>();
+        for (int s = 0; s < manifest.getNumShards(); s++) {
+            ProcessBuilder pb = new ProcessBuilder(java, "-Xmx" + (manifest.getMemory() + 64) + "m",
+                    "-cp", System.getProperty("java.class.path"), ShardWorker.class.getName(),
+                    manifestFile.getPath(), Integer.toString(s), "-threads", Integer.toString(threads));
+            pb.redirectErrorStream(true);
+            pb.redirectOutput(log(manifest, s));
+            workers.add(pb.start());
+        }
+        List<Integer> failed = new ArrayList<Integer>();
+        for (int s = 0; s < workers.size(); s++) {
+            try {
+                if (workers.get(s).waitFor() != 0)
+                    failed.add(s);
+            } catch (InterruptedException e) {
+                for (Process p : workers)
+                    p.destroy();
+                Thread.currentThread().interrupt();
+                throw new IOException("interrupted while waiting for the workers");
+            }
+        }
+        if (!failed.isEmpty())
+            throw new IOException("shards " + failed + " failed, see " + log(manifest, failed.get(0)));
+    }
+
+    // copies every shard into the manifest's store and indexes it; returns the number of pairs stored
+    public static long merge(ShardManifest manifest) throws IOException {
+        File file = manifest.getStore();
+        ResultStore store = null;
+        for (int s = 0; s < manifest.getNumShards(); s++) {
+            ResultStore shard = ResultStore.open(manifest.getShardStore(s), false);
+            if (store == null) {
+                store = file.exists() ? ResultStore.open(file, true)
+                        : ResultStore.create(file, shard.getLabels(), manifest.getNumBins(), manifest.getMaxBins(),
+                        manifest.getVariant());
+            }
+            try {
+                store.copy(shard, ResultStore.numPairs(manifest.getFrom(s)), ResultStore.numPairs(manifest.getTo(s)));
+            } finally {
+                shard.close();
+            }
+        }
+        long stored = 0;
+        for (long k = 0; k < store.getNumPairs(); k++)
+            if (store.getStatus(k) != ResultStore.EMPTY) stored++;
+        store.flush();
+        ResultIndex.build(store).save(new File(file.getPath() + ".idx"));
+        store.close();
+        return stored;
+    }
+
+    static String[] labels(int nDim) {
+        String[] labels = new String[nDim];
+        for (int i = 0; i < nDim; i++)
+            labels[i] = "V" + (i + 1);
+        return labels;
+    }
+
+    static File manifestFile(File store) {
+        return new File(store.getPath() + ".manifest");
+    }
+
+    private static File log(ShardManifest manifest, int shard) {
+        return new File(manifest.getShardStore(shard).getPath() + ".log");
+    }
+
+    /*
+     * ShardCoordinator plan <data.csv|table.cols> <store> [-shards n] [-bins numBins] [-maxBins maxBins]
+     *                  [-variant RScag|Scag-05|Scag-06] [-memory MB]
+     * ShardCoordinator run <data.csv|table.cols> <store> [same options] [-threads n]
+     * ShardCoordinator merge <manifest>
+     * The manifest is written next to the store as <store>.manifest and the shards as <store>.shard0, ...
+     * run reuses an existing manifest, so it resumes an interrupted run; options given that differ from the
+     * manifest are refused, and the others are taken from it.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 2 || (!argv[0].equals("merge") && argv.length < 3)) {
+            System.out.println("usage: ShardCoordinator plan|run <data.csv|table.cols> <store> [-shards n]"
+                    + " [-bins numBins] [-maxBins maxBins] [-variant RScag|Scag-05|Scag-06] [-memory MB]"
+                    + " [-timeLimit ms] [-cache directory] [-threads n]");
+            System.out.println("       ShardCoordinator merge <manifest>");
+            return;
+        }
+        long t0 = System.currentTimeMillis();
+        if (argv[0].equals("merge")) {
+            long stored = merge(ShardManifest.read(new File(argv[1])));
+            System.out.println(stored + " pairs merged in " + (System.currentTimeMillis() - t0) + " ms");
+            return;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        int shards = cores;
+        int numBins = 50;
+        int maxBins = 1000;
+        Variant variant = Variant.RSCAG;
+        long memory = 512;
+        long timeLimit = 0;
+        File cache = null;
+        int threads = 0;
+        List<String> given = new ArrayList<String>();
+        for (int i = 3; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            given.add(argv[i]);
+            switch (argv[i]) {
+                case "-shards": shards = Integer.parseInt(value); break;
+                case "-bins": numBins = Integer.parseInt(value); break;
+                case "-maxBins": maxBins = Integer.parseInt(value); break;
+                case "-variant": variant = Variant.forLabel(value); break;
+                case "-memory": memory = Long.parseLong(value); break;
+                case "-timeLimit": timeLimit = Long.parseLong(value); break;
+                case "-cache": cache = new File(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        File store = new File(argv[2]);
+        File manifestFile = manifestFile(store);
+        ShardManifest manifest;
+        if (argv[0].equals("run") && manifestFile.exists()) {
+            manifest = ShardManifest.read(manifestFile);
+            String setting = null;
+            int nDim = manifest.getTo(manifest.getNumShards() - 1);
+            if (given.contains("-shards") && Math.max(1, Math.min(shards, nDim - 1)) != manifest.getNumShards())
+                setting = "-shards " + manifest.getNumShards() + ", not " + shards;
+            else if (given.contains("-bins") && manifest.getNumBins() != numBins)
+                setting = "-bins " + manifest.getNumBins() + ", not " + numBins;
+            else if (given.contains("-maxBins") && manifest.getMaxBins() != maxBins)
+                setting = "-maxBins " + manifest.getMaxBins() + ", not " + maxBins;
+            else if (given.contains("-variant") && manifest.getVariant() != variant)
+                setting = "-variant " + manifest.getVariant().getLabel() + ", not " + variant.getLabel();
+            else if (given.contains("-memory") && manifest.getMemory() != memory)
+                setting = "-memory " + manifest.getMemory() + ", not " + memory;
+            else if (given.contains("-timeLimit") && manifest.getTimeLimit() != timeLimit)
+                setting = "-timeLimit " + manifest.getTimeLimit() + ", not " + timeLimit;
+            else if (given.contains("-cache") && (manifest.getCache() == null
+                    || !cache.getAbsoluteFile().equals(manifest.getCache().getAbsoluteFile())))
+                setting = "-cache " + manifest.getCache() + ", not " + cache;
+            if (setting != null)
+                throw new IllegalArgumentException(manifestFile + " was planned with " + setting
+                        + "; remove it to plan again");
+            System.out.println("resuming with the settings of " + manifestFile);
+        } else if (argv[0].equals("run") || argv[0].equals("plan")) {
+            manifest = plan(new File(argv[1]), store, shards, numBins, maxBins, variant, memory, timeLimit, cache);
+        } else {
+            throw new IllegalArgumentException("Unknown command " + argv[0]);
+        }
+        System.out.println(manifest.getNumShards() + " shards in " + manifestFile);
+        if (argv[0].equals("plan"))
+            return;
+        if (threads <= 0)
+            threads = Math.max(1, cores / manifest.getNumShards());
+        runWorkers(manifestFile, manifest, threads);
+        System.out.println("workers finished in " + (System.currentTimeMillis() - t0) + " ms");
+        long stored = merge(manifest);
+        System.out.println(stored + " of " + ResultStore.numPairs(manifest.getTo(manifest.getNumShards() - 1)) + " pairs in " + store + " after "
+                + (System.currentTimeMillis() - t0) + " ms");
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.StringTokenizer;
+
+/*
+ * The plan of a sharded run: the table (a ColumnFile), the settings, and for every shard a range of rows
+ * i of the pair matrix and the store it writes. Shard i ranges are contiguous pair ranges of the final
+ * store. It is a small text file with one "key value" line per setting and one "shard k iFrom iTo store"
+ * line per shard; relative paths are resolved against the manifest's directory, so a manifest and its
+ * files can be copied to other hosts together.
+ */
+public class ShardManifest {
+    private File table, store;
+    private int numBins, maxBins;
+    private Variant variant;
+    private long memory;                 // MB per worker
+    private long timeLimit;              // ms per pair, 0 for none
+    private File cache;                  // ScagnosticsCache directory shared by the workers, or null
+    private int[] from, to;
+    private File[] shards;
+
+    // splits the pairs of nDim columns into count shards of about the same number of pairs
+    public ShardManifest(File table, File store, int nDim, int count, int numBins, int maxBins, Variant variant,
+                         long memory) {
+        this.table = table;
+        this.store = store;
+        this.numBins = numBins;
+        this.maxBins = maxBins;
+        this.variant = variant;
+        this.memory = memory;
+        count = Math.max(1, Math.min(count, nDim - 1));
+        from = new int[count];
+        to = new int[count];
+        shards = new File[count];
+        long numPairs = ResultStore.numPairs(nDim);
+        int i = 1;
+        for (int s = 0; s < count; s++) {
+            from[s] = i;
+            long end = numPairs * (s + 1) / count;
+            while (i < nDim && ResultStore.numPairs(i + 1) <= end)
+                i++;
+            if (s == count - 1)
+                i = nDim;
+            to[s] = Math.max(i, from[s] + 1);
+            i = to[s];
+            shards[s] = new File(store.getPath() + ".shard" + s);
+        }
+    }
+
+    private ShardManifest() {
+    }
+
+    public File getTable() {
+        return table;
+    }
+
+    public File getStore() {
+        return store;
+    }
+
+    public int getNumBins() {
+        return numBins;
+    }
+
+    public int getMaxBins() {
+        return maxBins;
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public long getMemory() {
+        return memory;
+    }
+
+    public long getTimeLimit() {
+        return timeLimit;
+    }
+
+    public void setTimeLimit(long timeLimit) {
+        this.timeLimit = timeLimit;
+    }
+
+    public File getCache() {
+        return cache;
+    }
+
+    public void setCache(File cache) {
+        this.cache = cache;
+    }
+
+    public int getNumShards() {
+        return shards.length;
+    }
+
+    // the shard computes the pairs (i, j) with getFrom(shard) <= i < getTo(shard)
+    public int getFrom(int shard) {
+        return from[shard];
+    }
+
+    public int getTo(int shard) {
+        return to[shard];
+    }
+
+    public File getShardStore(int shard) {
+        return shards[shard];
+    }
+
+    public void write(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        try (PrintWriter pw = new PrintWriter(file)) {
+            pw.println("# RScag shard manifest");
+            pw.println("table " + relative(dir, table));
+            pw.println("store " + relative(dir, store));
+            pw.println("bins " + numBins);
+            pw.println("maxBins " + maxBins);
+            pw.println("variant " + variant.getLabel());
+            pw.println("memory " + memory);
+            pw.println("timeLimit " + timeLimit);
+            if (cache != null)
+                pw.println("cache " + relative(dir, cache));
+            for (int s = 0; s < shards.length; s++)
+                pw.println("shard " + s + " " + from[s] + " " + to[s] + " " + relative(dir, shards[s]));
+        }
+    }
+
+    public static ShardManifest read(File file) throws IOException {
+        File dir = file.getAbsoluteFile().getParentFile();
+        ShardManifest m = new ShardManifest();
+        List<String[]> shardLines = new ArrayList<String[]>();
+        try (BufferedReader in = new BufferedReader(new FileReader(file))) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                StringTokenizer st = new StringTokenizer(line);
+                if (!st.hasMoreTokens() || line.startsWith("#"))
+                    continue;
+                String key = st.nextToken();
+                String value = st.hasMoreTokens() ? st.nextToken() : "";
+                switch (key) {
+                    case "table": m.table = resolve(dir, value); break;
+                    case "store": m.store = resolve(dir, value); break;
+                    case "bins": m.numBins = Integer.parseInt(value); break;
+                    case "maxBins": m.maxBins = Integer.parseInt(value); break;
+                    case "variant": m.variant = Variant.forLabel(value); break;
+                    case "memory": m.memory = Long.parseLong(value); break;
+                    case "timeLimit": m.timeLimit = Long.parseLong(value); break;
+                    case "cache": m.cache = resolve(dir, value); break;
+                    case "shard":
+                        shardLines.add(new String[]{value, st.nextToken(), st.nextToken(), st.nextToken()});
+                        break;
+                    default: throw new IOException("Unknown key " + key + " in " + file);
+                }
+            }
+        }
+        int n = shardLines.size();
+        m.from = new int[n];
+        m.to = new int[n];
+        m.shards = new File[n];
+        for (String[] s : shardLines) {
+            int k = Integer.parseInt(s[0]);
+            m.from[k] = Integer.parseInt(s[1]);
+            m.to[k] = Integer.parseInt(s[2]);
+            m.shards[k] = resolve(dir, s[3]);
+        }
+        if (m.table == null || m.store == null || m.variant == null || n == 0)
+            throw new IOException(file + " is not a shard manifest");
+        return m;
+    }
+
+    // path of f relative to dir if f is inside it
+    private static String relative(File dir, File f) {
+        String d = dir.getAbsolutePath() + File.separator;
+        String p = f.getAbsolutePath();
+        return p.startsWith(d) ? p.substring(d.length()) : p;
+    }
+
+    private static File resolve(File dir, String path) {
+        File f = new File(path);
+        return f.isAbsolute() ? f : new File(dir, path);
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * Computes one shard of a ShardManifest into its own store with a TiledRunner. Workers share nothing but
+ * the table file, so they can run as processes on one machine or on any host that has the manifest's
+ * files; an interrupted worker resumes its store when started again.
+ */
+public class ShardWorker {
+
+    // returns how many pairs were computed
+    public static long run(ShardManifest manifest, int shard, int threads) throws IOException {
+        ColumnFile table = ColumnFile.open(manifest.getTable());
+        try {
+            File file = manifest.getShardStore(shard);
+            ResultStore store = ResultStore.resume(file, table.getNumColumns(), manifest.getNumBins(),
+                    manifest.getMaxBins(), manifest.getVariant());
+            TiledRunner tiled = new TiledRunner(table, manifest.getNumBins(), manifest.getMaxBins(),
+                    manifest.getVariant(), manifest.getMemory() << 20);
+            tiled.setThreads(threads);
+            tiled.getRunner().setTimeLimit(manifest.getTimeLimit());
+            if (manifest.getCache() != null) {
+                ScagnosticsCache cache = new ScagnosticsCache(100000);
+                cache.setDirectory(manifest.getCache());
+                tiled.getRunner().setCache(cache);
+            }
+            if (store == null)
+                store = tiled.create(file, ShardCoordinator.labels(table.getNumColumns()));
+            try {
+                return tiled.run(store, manifest.getFrom(shard), manifest.getTo(shard));
+            } finally {
+                store.close();
+            }
+        } finally {
+            table.close();
+        }
+    }
+
+    /*
+     * ShardWorker <manifest> <shard> [-threads n]
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 2) {
+            System.out.println("usage: ShardWorker <manifest> <shard> [-threads n]");
+            return;
+        }
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < argv.length - 1; i += 2) {
+            if (argv[i].equals("-threads")) threads = Integer.parseInt(argv[i + 1]);
+            else throw new IllegalArgumentException("Unknown option " + argv[i]);
+        }
+        ShardManifest manifest = ShardManifest.read(new File(argv[0]));
+        int shard = Integer.parseInt(argv[1]);
+        long t0 = System.currentTimeMillis();
+        long computed = run(manifest, shard, threads);
+        System.out.println("shard " + shard + ": " + computed + " pairs computed in "
+                + (System.currentTimeMillis() - t0) + " ms");
+    }
+}
@@ -0,0 +1,452 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * k-nearest-neighbour search over scagnostics vectors, by Euclidean or weighted Euclidean distance.
+ * The vectors are stored as floats in kd-tree order: every node splits its range at the middle on the
+ * coordinate of largest spread, so the tree needs no child links, only the split of every node.
+ * Subtrees are built in parallel. Ties are broken by id, so a search always returns the same ids.
+ */
+public class SimilarityIndex {
+    private static final byte[] MAGIC = "RSCAGKNN".getBytes(StandardCharsets.US_ASCII);
+    private static final int VERSION = 1;
+    private static final int LEAF_SIZE = 32;
+    private static final int PARALLEL_SIZE = 1 << 16;
+    private int dim, n;
+    private float[] pts;           // row-major, in tree order
+    private long[] ids;
+    private byte[] splitDim;       // per node, heap numbering: children of t are 2t+1 and 2t+2
+    private float[] splitValue;
+
+    private SimilarityIndex(int dim, int n) {
+        this.dim = dim;
+        this.n = n;
+    }
+
+    // vectors row-major with one id each; both arrays are taken over and reordered
+    public SimilarityIndex(float[] vectors, long[] ids, int dim, int threads) {
+        this(dim, ids.length);
+        if (dim > Byte.MAX_VALUE)
+            throw new IllegalArgumentException("too many dimensions: " + dim);
+        pts = vectors;
+        this.ids = ids;
+        int nodes = countNodes(0, n) + 1;
+        splitDim = new byte[nodes];
+        splitValue = new float[nodes];
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, threads));
+        try {
+            pool.invoke(new Build(0, 0, n));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // the COMPUTED pairs of a store, with pair indices as ids
+    public static SimilarityIndex build(ResultStore store, int threads) {
+        int measures = Scagnostics.getNumScagnostics();
+        long count = 0;
+        for (long k = 0; k < store.getNumPairs(); k++)
+            if (store.getStatus(k) == ResultStore.COMPUTED) count++;
+        if (count * measures > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("too many pairs for one index: " + count);
+        float[] vectors = new float[(int) count * measures];
+        long[] ids = new long[(int) count];
+        int r = 0;
+        for (long k = 0; k < store.getNumPairs(); k++) {
+            if (store.getStatus(k) != ResultStore.COMPUTED)
+                continue;
+            for (int m = 0; m < measures; m++)
+                vectors[r * measures + m] = store.getMeasure(k, m);
+            ids[r++] = k;
+        }
+        return new SimilarityIndex(vectors, ids, measures, threads);
+    }
+
+    // every row of a source, with row numbers as ids
+    public static SimilarityIndex build(VectorSource source, int threads) throws IOException {
+        int dim = source.getDimension();
+        double[] chunk = new double[65536 * dim];
+        float[] vectors = new float[chunk.length];
+        int n = 0;
+        int rows;
+        source.rewind();
+        while ((rows = source.read(chunk)) > 0) {
+            if ((long) (n + rows) * dim > Integer.MAX_VALUE - 8)
+                throw new IllegalArgumentException("too many rows for one index");
+            if ((n + rows) * dim > vectors.length)
+                vectors = Arrays.copyOf(vectors, (int) Math.min(Integer.MAX_VALUE - 8L, 2L * (n + rows) * dim));
+            for (int i = 0; i < rows * dim; i++)
+                vectors[n * dim + i] = (float) chunk[i];
+            n += rows;
+        }
+        long[] ids = new long[n];
+        for (int i = 0; i < n; i++)
+            ids[i] = i;
+        return new SimilarityIndex(Arrays.copyOf(vectors, n * dim), ids, dim, threads);
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public int getDimension() {
+        return dim;
+    }
+
+    public long[] search(double[] query, int k) {
+        return search(query, k, null, null);
+    }
+
+    /*
+     * ids of the k vectors nearest to query, nearest first; weights (null for all 1) scale the squared
+     * coordinate differences, and distances, when not null, receives the weighted squared distances.
+     * Weights must be finite and not negative, or the bounds that prune the tree would be wrong.
+     */
+    public long[] search(double[] query, int k, double[] weights, double[] distances) {
+        k = Math.min(k, n);
+        double[] w = weights;
+        if (w != null) {
+            if (w.length != dim)
+                throw new IllegalArgumentException(dim + " weights expected, got " + w.length);
+            for (double v : w)
+                if (!(v >= 0) || Double.isInfinite(v))
+                    throw new IllegalArgumentException("weights must be finite and not negative, got " + v);
+        }
+        if (w == null) {
+            w = new double[dim];
+            Arrays.fill(w, 1);
+        }
+        Search s = new Search(query, k, w);
+        if (k > 0)
+            s.search(0, 0, n, 0);
+        // heap sort, farthest last
+        for (int i = k - 1; i > 0; i--) {
+            s.swap(0, i);
+            s.siftDown(0, i);
+        }
+        long[] result = new long[k];
+        for (int i = 0; i < k; i++) {
+            result[i] = ids[s.heap[i]];
+            if (distances != null)
+                distances[i] = s.heapDistance[i];
+        }
+        return result;
+    }
+
+    private class Search {
+        double[] q, w, offset;
+        int k, size;
+        int[] heap;              // positions in tree order; a max-heap on (distance, id)
+        double[] heapDistance;
+
+        Search(double[] q, int k, double[] w) {
+            this.q = q;
+            this.k = k;
+            this.w = w;
+            offset = new double[dim];
+            heap = new int[k];
+            heapDistance = new double[k];
+        }
+
+        // rd is the distance from q to the box of the node, built up from the per-coordinate offsets
+        void search(int node, int from, int to, double rd) {
+            if (to - from <= LEAF_SIZE) {
+                for (int i = from; i < to; i++) {
+                    double limit = size < k ? Double.POSITIVE_INFINITY : heapDistance[0];
+                    double d = 0;
+                    int o = i * dim;
+                    for (int j = 0; j < dim && d <= limit; j++) {
+                        double diff = pts[o + j] - q[j];
+                        d += w[j] * diff * diff;
+                    }
+                    if (size < k) {
+                        heap[size] = i;
+                        heapDistance[size] = d;
+                        siftUp(size++);
+                    } else if (d < heapDistance[0] || (d == heapDistance[0] && ids[i] < ids[heap[0]])) {
+                        heap[0] = i;
+                        heapDistance[0] = d;
+                        siftDown(0, k);
+                    }
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            int d = splitDim[node];
+            double diff = q[d] - splitValue[node];
+            int near = 2 * node + 1, far = 2 * node + 2;
+            int nearFrom = from, nearTo = mid, farFrom = mid, farTo = to;
+            if (diff >= 0) {
+                near = 2 * node + 2;
+                far = 2 * node + 1;
+                nearFrom = mid;
+                nearTo = to;
+                farFrom = from;
+                farTo = mid;
+            }
+            search(near, nearFrom, nearTo, rd);
+            double old = offset[d];
+            double farRd = rd - old + w[d] * diff * diff;
+            if (size < k || farRd <= heapDistance[0]) {
+                offset[d] = w[d] * diff * diff;
+                search(far, farFrom, farTo, farRd);
+                offset[d] = old;
+            }
+        }
+
+        boolean after(int a, int b) {
+            return heapDistance[a] > heapDistance[b] || (heapDistance[a] == heapDistance[b] && ids[heap[a]] > ids[heap[b]]);
+        }
+
+        void siftUp(int c) {
+            while (c > 0) {
+                int p = (c - 1) / 2;
+                if (!after(c, p))
+                    return;
+                swap(c, p);
+                c = p;
+            }
+        }
+
+        void siftDown(int p, int size) {
+            while (true) {
+                int c = 2 * p + 1;
+                if (c >= size)
+                    return;
+                if (c + 1 < size && after(c + 1, c))
+                    c++;
+                if (!after(c, p))
+                    return;
+                swap(c, p);
+                p = c;
+            }
+        }
+
+        void swap(int a, int b) {
+            int t = heap[a];
+            heap[a] = heap[b];
+            heap[b] = t;
+            double d = heapDistance[a];
+            heapDistance[a] = heapDistance[b];
+            heapDistance[b] = d;
+        }
+    }
+
+    private static int countNodes(int node, int size) {
+        if (size <= LEAF_SIZE)
+            return node;
+        int half = size >>> 1;
+        return Math.max(countNodes(2 * node + 1, half), countNodes(2 * node + 2, size - half));
+    }
+
+    private class Build extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        int node, from, to;
+
+        Build(int node, int from, int to) {
+            this.node = node;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from <= LEAF_SIZE)
+                return;
+            int d = widest(from, to);
+            int mid = (from + to) >>> 1;
+            select(from, to - 1, mid, d);
+            splitDim[node] = (byte) d;
+            splitValue[node] = pts[mid * dim + d];
+            Build left = new Build(2 * node + 1, from, mid);
+            Build right = new Build(2 * node + 2, mid, to);
+            if (to - from > PARALLEL_SIZE) {
+                invokeAll(left, right);
+            } else {
+                left.compute();
+                right.compute();
+            }
+        }
+    }
+
+    private int widest(int from, int to) {
+        double best = -1;
+        int bestDim = 0;
+        for (int j = 0; j < dim; j++) {
+            float lo = Float.POSITIVE_INFINITY, hi = Float.NEGATIVE_INFINITY;
+            for (int i = from; i < to; i++) {
+                float v = pts[i * dim + j];
+                if (v < lo) lo = v;
+                if (v > hi) hi = v;
+            }
+            if (hi - lo > best) {
+                best = hi - lo;
+                bestDim = j;
+            }
+        }
+        return bestDim;
+    }
+
+    // quickselect on rows from..to so that row m holds the m-th smallest coordinate d
+    private void select(int from, int to, int m, int d) {
+        while (to > from) {
+            float pivot = pts[((from + to) >>> 1) * dim + d];
+            int i = from, j = to;
+            while (i <= j) {
+                while (pts[i * dim + d] < pivot) i++;
+                while (pts[j * dim + d] > pivot) j--;
+                if (i <= j) {
+                    swapRows(i, j);
+                    i++;
+                    j--;
+                }
+            }
+            if (m <= j)
+                to = j;
+            else if (m >= i)
+                from = i;
+            else
+                return;
+        }
+    }
+
+    private void swapRows(int a, int b) {
+        for (int j = 0; j < dim; j++) {
+            float t = pts[a * dim + j];
+            pts[a * dim + j] = pts[b * dim + j];
+            pts[b * dim + j] = t;
+        }
+        long t = ids[a];
+        ids[a] = ids[b];
+        ids[b] = t;
+    }
+
+    public void save(File file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16))) {
+            out.write(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dim);
+            out.writeInt(n);
+            out.writeInt(splitDim.length);
+            for (int i = 0; i < n; i++)
+                out.writeLong(ids[i]);
+            for (int i = 0; i < n * dim; i++)
+                out.writeFloat(pts[i]);
+            out.write(splitDim);
+            for (int t = 0; t < splitValue.length; t++)
+                out.writeFloat(splitValue[t]);
+        }
+    }
+
+    public static SimilarityIndex load(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16))) {
+            byte[] magic = new byte[MAGIC.length];
+            in.readFully(magic);
+            if (!Arrays.equals(magic, MAGIC) || in.readInt() != VERSION)
+                throw new IOException(file + " is not a similarity index");
+            SimilarityIndex index = new SimilarityIndex(in.readInt(), in.readInt());
+            int nodes = in.readInt();
+            index.ids = new long[index.n];
+            for (int i = 0; i < index.n; i++)
+                index.ids[i] = in.readLong();
+            index.pts = new float[index.n * index.dim];
+            for (int i = 0; i < index.pts.length; i++)
+                index.pts[i] = in.readFloat();
+            index.splitDim = new byte[nodes];
+            in.readFully(index.splitDim);
+            index.splitValue = new float[nodes];
+            for (int t = 0; t < nodes; t++)
+                index.splitValue[t] = in.readFloat();
+            return index;
+        }
+    }
+
+    /*
+     * SimilarityIndex <store> <i> <j> [-k n] [-weights w1,...,w9] [-threads n]
+     * Prints the pairs most similar to (i, j). The index is kept as <store>.knn and rebuilt when older than the store.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 3) {
+            System.out.println("usage: SimilarityIndex <store> <i> <j> [-k n] [-weights w1,...,w9] [-threads n]");
+            return;
+        }
+        int k = 10;
+        double[] weights = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 3; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-k": k = Integer.parseInt(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                case "-weights": {
+                    String[] w = value.split(",");
+                    weights = new double[w.length];
+                    for (int j = 0; j < w.length; j++)
+                        weights[j] = Double.parseDouble(w[j]);
+                    break;
+                }
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        File storeFile = new File(argv[0]);
+        File indexFile = new File(argv[0] + ".knn");
+        ResultStore store = ResultStore.open(storeFile, false);
+        SimilarityIndex index;
+        if (indexFile.exists() && indexFile.lastModified() >= storeFile.lastModified()) {
+            index = load(indexFile);
+        } else {
+            index = build(store, threads);
+            index.save(indexFile);
+        }
+        double[] query = store.get(Integer.parseInt(argv[1]), Integer.parseInt(argv[2]));
+        if (query == null) {
+            System.out.println("pair (" + argv[1] + ", " + argv[2] + ") has no scagnostics");
+            store.close();
+            return;
+        }
+        double[] distances = new double[k];
+        long t0 = System.nanoTime();
+        long[] hits = index.search(query, k, weights, distances);
+        long t1 = System.nanoTime();
+        System.out.println(hits.length + " nearest pairs (" + (t1 - t0) / 1000 + " us)");
+        String[] labels = store.getLabels();
+        for (int i = 0; i < hits.length; i++) {
+            int[] ij = ResultStore.pair(hits[i]);
+            System.out.println(labels[ij[1]] + "," + labels[ij[0]] + "," + Math.sqrt(distances[i]));
+        }
+        store.close();
+    }
+}
@@ -0,0 +1,369 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.Arrays;
+
+/*
+ * The binned points of one pair of a StreamingScagnostics table, updated as rows are appended and expire.
+ * Cells, counts and the scale rule are those of Binner.binHex. A crowded cell keeps the members with the
+ * smallest hashed row priority instead of a random draw, so a cell's points only change when a new row
+ * outranks them, one of them expires or the number kept changes, and the result does not depend on how
+ * rows were batched. The kept points are compacted as in binCells, including the points that leaves at (0, 0);
+ * that is intentional parity with Binner.binCells, the one site to change if it is ever fixed.
+ */
+class StreamingBins {
+    static final int SCALE = 3;
+    private static final int MIN_BEST = 4;
+
+    private final StreamingScagnostics table;
+    private final int xCol, yCol;
+    private final int maxBins;
+    private final int initialBins;
+    private final long seed;
+    private int numBins, startScale, scale;
+    private int mBins, nBin;
+    private int first, rows;          // rows [first, rows) are binned
+    private int resetRow;             // rows before it were binned on the grid before the last reset
+    private int[][] members;          // rows of every cell from head on, in row order
+    private int[] head, sizes;
+    private long[][] best;            // the smallest keys of every cell, ascending
+    private int[] nBest;
+    private int[] kept;               // points kept per cell
+    private int totalKept;
+    private int points;               // points of the last update
+    private double[] binned;          // counts of the compacted points, as in binCells
+    private int[] keptRows, keptCells;
+    private double[] lastCount;       // count of every cell in the last BinnedData
+    private int[] occupied, occupiedAt;
+    private int nOccupied;
+    private int[] dirty;              // cells changed since the last BinnedData
+    private boolean[] isDirty;
+    private int nDirty;
+    private boolean pointsChanged;
+    private int rebuilds;
+
+    StreamingBins(StreamingScagnostics table, int xCol, int yCol, int numBins, int maxBins, long seed) {
+        this.table = table;
+        this.xCol = xCol;
+        this.yCol = yCol;
+        this.maxBins = maxBins;
+        this.seed = seed;
+        initialBins = numBins;
+        reset(numBins, SCALE);
+    }
+
+    // forgets all rows; the rows of the window are binned again from the table on the next update
+    void reset(int numBins, int startScale) {
+        this.numBins = numBins;
+        this.startScale = startScale;
+        scale = startScale;
+        if (rows > first)
+            rebuilds++;
+        resetRow = rows;
+        rows = first;
+        mBins = 2 * numBins;
+        nBin = mBins * mBins;
+        members = new int[nBin][];
+        head = new int[nBin];
+        sizes = new int[nBin];
+        best = new long[nBin][];
+        nBest = new int[nBin];
+        kept = new int[nBin];
+        totalKept = 0;
+        binned = new double[nBin];
+        keptRows = new int[nBin];
+        keptCells = new int[nBin];
+        lastCount = new double[nBin];
+        occupied = new int[nBin];
+        occupiedAt = new int[nBin];
+        nOccupied = 0;
+        dirty = new int[nBin];
+        isDirty = new boolean[nBin];
+        nDirty = 0;
+        pointsChanged = true;
+    }
+
+    // starts again from row 0 of a renumbered table
+    void rebase() {
+        first = 0;
+        rows = 0;
+        reset(initialBins, SCALE);
+    }
+
+    /*
+     * Bins the rows [from, to) of the table, dropping the rows before from and adding the rows after the last
+     * call, and returns the new BinnedData, or null if it has not changed. When only counts changed, and none
+     * by more than tolerance relative to the last BinnedData, null is returned as well and the changes are
+     * kept for the next call.
+     */
+    BinnedData update(int from, int to, double tolerance) {
+        // once all rows binned on a finer grid have expired, binning starts at numBins again if the next finer
+        // grid is likely to fit, its points growing at least with the side of the grid
+        if (numBins < initialBins && from >= resetRow) {
+            int finer = initialBins;
+            while (2 * finer / 3 > numBins)
+                finer = 2 * finer / 3;
+            if (points * ((double) finer / numBins) <= maxBins) {
+                first = from;
+                reset(initialBins, SCALE);
+            }
+        }
+        while (true) {
+            remove(first, Math.min(from, rows));
+            first = from;
+            add(Math.max(rows, from), to);
+            rows = to;
+            int s = findScale();
+            if (s != scale) {
+                scale = s;
+                for (int i = 0; i < nOccupied; i++)
+                    markDirty(occupied[i]);
+            }
+            for (int i = 0; i < nDirty; i++) {
+                int c = dirty[i];
+                int k = keep(sizes[c], scale);
+                if (k != kept[c]) {
+                    pointsChanged = true;
+                    totalKept += k - kept[c];
+                    kept[c] = k;
+                }
+                if (k > nBest[c])
+                    rebuildBest(c, k);
+            }
+            // as binHex: a coarser grid and a larger scale until the points fit in maxBins
+            points = compact();
+            if (points > maxBins && numBins > 1) {
+                reset(2 * numBins / 3, (int) (1.5 * scale));
+                continue;
+            }
+            break;
+        }
+        if (!pointsChanged && (nDirty == 0 || countsWithin(tolerance)))
+            return null;
+        return build();
+    }
+
+    int getXColumn() {
+        return xCol;
+    }
+
+    int getYColumn() {
+        return yCol;
+    }
+
+    int getNumBins() {
+        return numBins;
+    }
+
+    // times the cells were built again from all rows, after a wider range or on another grid
+    int getRebuilds() {
+        return rebuilds;
+    }
+
+    private int cell(int r) {
+        return Binner.combineCell(Binner.axisIndex(table.normalized(xCol, r), mBins),
+                Binner.axisIndex(table.normalized(yCol, r), mBins), mBins);
+    }
+
+    private void add(int from, int to) {
+        for (int r = from; r < to; r++) {
+            int c = cell(r);
+            if (c < 0)
+                continue;
+            if (sizes[c] == 0) {
+                occupiedAt[c] = nOccupied;
+                occupied[nOccupied++] = c;
+                if (members[c] == null) {
+                    members[c] = new int[MIN_BEST];
+                    best[c] = new long[MIN_BEST];
+                }
+                head[c] = 0;
+            } else if (head[c] + sizes[c] == members[c].length) {
+                if (head[c] > members[c].length / 2)
+                    System.arraycopy(members[c], head[c], members[c], 0, sizes[c]);
+                else
+                    members[c] = Arrays.copyOfRange(members[c], head[c], head[c] + 2 * sizes[c]);
+                head[c] = 0;
+            }
+            int pos = insertBest(c, key(r));
+            members[c][head[c] + sizes[c]++] = r;
+            if (pos >= 0 && pos < kept[c])
+                pointsChanged = true;
+            markDirty(c);
+        }
+    }
+
+    // rows expire in row order, so each is the first member of its cell
+    private void remove(int from, int to) {
+        for (int r = from; r < to; r++) {
+            int c = cell(r);
+            if (c < 0)
+                continue;
+            head[c]++;
+            if (--sizes[c] == 0) {
+                int last = occupied[--nOccupied];
+                occupied[occupiedAt[c]] = last;
+                occupiedAt[last] = occupiedAt[c];
+            }
+            long[] b = best[c];
+            int pos = Arrays.binarySearch(b, 0, nBest[c], key(r));
+            if (pos >= 0) {
+                System.arraycopy(b, pos + 1, b, pos, nBest[c] - pos - 1);
+                nBest[c]--;
+                if (pos < kept[c])
+                    pointsChanged = true;
+            }
+            markDirty(c);
+        }
+    }
+
+    // the smallest scale, from startScale up by 1.5, at which the kept points fit in the grid
+    private int findScale() {
+        int s = startScale;
+        while (true) {
+            long all = 0;
+            for (int i = 0; i < nOccupied; i++)
+                all += keep(sizes[occupied[i]], s);
+            if (all <= nBin)
+                return s;
+            s = (int) (1.5 * s);
+        }
+    }
+
+    private static int keep(int size, int scale) {
+        if (size <= 1)
+            return size;
+        return Math.max(1, size / scale);
+    }
+
+    /*
+     * Inserts the key of a new member into the smallest keys of cell c, before the member is counted,
+     * and returns its position or -1 if it is not among them. When the keys of some members are missing
+     * from best, only a key below the largest kept one can be placed.
+     */
+    private int insertBest(int c, long key) {
+        long[] b = best[c];
+        int n = nBest[c];
+        boolean complete = n == sizes[c];
+        if (!complete && (n == 0 || key >= b[n - 1]))
+            return -1;
+        if (n == b.length && key >= b[n - 1])
+            return -1;
+        int pos = Arrays.binarySearch(b, 0, n, key);
+        if (pos < 0)
+            pos = -pos - 1;
+        int moved = n == b.length ? n - 1 - pos : n - pos;
+        System.arraycopy(b, pos, b, pos + 1, moved);
+        b[pos] = key;
+        if (n < b.length)
+            nBest[c]++;
+        return pos;
+    }
+
+    // keeps the 2k smallest keys of cell c
+    private void rebuildBest(int c, int k) {
+        int size = sizes[c];
+        long[] keys = new long[size];
+        for (int i = 0; i < size; i++)
+            keys[i] = key(members[c][head[c] + i]);
+        Arrays.sort(keys);
+        int n = Math.min(size, 2 * k);
+        best[c] = Arrays.copyOf(keys, Math.max(n, MIN_BEST));
+        nBest[c] = n;
+    }
+
+    // row priority in the high bits, the row in the low bits
+    private long key(int row) {
+        long z = seed + row * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        z ^= z >>> 31;
+        return (z >>> 33) << 32 | row;
+    }
+
+    private void markDirty(int c) {
+        if (!isDirty[c]) {
+            isDirty[c] = true;
+            dirty[nDirty++] = c;
+        }
+    }
+
+    private boolean countsWithin(double tolerance) {
+        for (int i = 0; i < nDirty; i++) {
+            int c = dirty[i];
+            double count = (double) sizes[c] / kept[c];
+            if (Math.abs(count - lastCount[c]) > tolerance * lastCount[c])
+                return false;
+        }
+        return true;
+    }
+
+    /*
+     * The counts of binCells: the kept points in cell order, where the i-th takes the count at index i,
+     * followed by the cell counts at indices from totalKept on, which binCells keeps as points at (0, 0).
+     * Those phantom points are kept on purpose to match Binner.binCells; change them only together with it.
+     * Returns the number of points.
+     */
+    private int compact() {
+        int all = 0;
+        for (int c = 0; c < nBin; c++) {
+            int kc = kept[c];
+            binned[c] = kc == 0 ? 0 : (double) sizes[c] / kc;
+            for (int t = 0; t < kc; t++) {
+                keptRows[all] = (int) best[c][t];
+                keptCells[all++] = c;
+            }
+        }
+        for (int i = 0; i < all; i++)
+            binned[i] = binned[keptCells[i]];
+        int n = 0;
+        for (int i = 0; i < nBin; i++)
+            if (binned[i] > 0) n++;
+        return n;
+    }
+
+    private BinnedData build() {
+        int n = compact();
+        double[] x = new double[n];
+        double[] y = new double[n];
+        double[] count = new double[n];
+        int k = 0;
+        for (int i = 0; i < nBin; i++) {
+            if (binned[i] > 0) {
+                if (i < totalKept) {
+                    x[k] = table.normalized(xCol, keptRows[i]);
+                    y[k] = table.normalized(yCol, keptRows[i]);
+                }
+                count[k++] = binned[i];
+            }
+        }
+        for (int i = 0; i < nDirty; i++) {
+            int c = dirty[i];
+            lastCount[c] = (double) sizes[c] / kept[c];
+            isDirty[c] = false;
+        }
+        nDirty = 0;
+        pointsChanged = false;
+        return new BinnedData(x, y, count);
+    }
+}
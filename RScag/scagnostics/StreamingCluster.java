@@ -0,0 +1,247 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+/*
+ * Exemplars of a result set read from a VectorSource, holding only a sample and the centers in memory.
+ * Cluster is run on a reservoir sample to choose the number of clusters and their starting centers,
+ * mini-batch k-means passes over the stream then move the centers (each center steps towards a point
+ * by 1 / the number of points it has taken), and a last pass counts the members of every center and
+ * finds the row nearest to it. As in Cluster, only clusters with more than 10% of the rows give an exemplar.
+ */
+public class StreamingCluster {
+    private int chunkRows = 65536;
+    private int sampleSize = 100000;
+    private int passes = 1;
+    private int threads = 1;
+    private long seed = 1;
+    private double[][] centers;
+    private long[] sizes;
+    private long nRow;
+
+    public void setChunkRows(int chunkRows) {
+        this.chunkRows = Math.max(1, chunkRows);
+    }
+
+    public void setSampleSize(int sampleSize) {
+        this.sampleSize = Math.max(2, sampleSize);
+    }
+
+    // mini-batch passes between the sample clustering and the exemplar pass
+    public void setPasses(int passes) {
+        this.passes = Math.max(0, passes);
+    }
+
+    // threads of the sample clustering
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    // row numbers of the exemplars, in the order of the source
+    public long[] compute(VectorSource source) throws IOException {
+        int nVar = source.getDimension();
+        double[] chunk = new double[chunkRows * nVar];
+
+        // reservoir sample
+        double[][] sample = new double[sampleSize][];
+        Random random = new Random(seed);
+        nRow = 0;
+        source.rewind();
+        int rows;
+        while ((rows = source.read(chunk)) > 0) {
+            for (int r = 0; r < rows; r++, nRow++) {
+                long slot = nRow < sampleSize ? nRow : (long) (random.nextDouble() * (nRow + 1));
+                if (slot < sampleSize) {
+                    double[] v = new double[nVar];
+                    System.arraycopy(chunk, r * nVar, v, 0, nVar);
+                    sample[(int) slot] = v;
+                }
+            }
+        }
+        if (nRow < 2)
+            return null;
+        if (nRow < sampleSize) {
+            double[][] all = new double[(int) nRow][];
+            System.arraycopy(sample, 0, all, 0, all.length);
+            sample = all;
+        }
+        Cluster cluster = new Cluster(0, 0);
+        cluster.setThreads(threads);
+        cluster.compute(sample);
+        centers = nonEmpty(cluster.getCenters());
+        int nc = centers.length;
+
+        // mini-batch k-means
+        long[] taken = new long[nc];
+        for (int p = 0; p < passes; p++) {
+            source.rewind();
+            while ((rows = source.read(chunk)) > 0) {
+                for (int r = 0; r < rows; r++) {
+                    int k = nearest(chunk, r * nVar, nVar, null);
+                    if (k < 0)
+                        continue;
+                    double eta = 1. / ++taken[k];
+                    for (int j = 0; j < nVar; j++)
+                        centers[k][j] += eta * (chunk[r * nVar + j] - centers[k][j]);
+                }
+            }
+        }
+
+        // exemplar pass
+        sizes = new long[nc];
+        long[] closest = new long[nc];
+        double[] closestDistances = new double[nc];
+        Arrays.fill(closest, -1);
+        Arrays.fill(closestDistances, Double.POSITIVE_INFINITY);
+        double[] dist = new double[1];
+        long row = 0;
+        source.rewind();
+        while ((rows = source.read(chunk)) > 0) {
+            for (int r = 0; r < rows; r++, row++) {
+                int k = nearest(chunk, r * nVar, nVar, dist);
+                if (k < 0)
+                    continue;
+                sizes[k]++;
+                if (dist[0] < closestDistances[k]) {
+                    closestDistances[k] = dist[0];
+                    closest[k] = row;
+                }
+            }
+        }
+
+        int n = 0;
+        double cutoff = .1;
+        for (int k = 0; k < nc; k++)
+            if (sizes[k] / (double) nRow > cutoff) n++;
+        long[] exemplars = new long[n];
+        n = 0;
+        for (int k = 0; k < nc; k++)
+            if (sizes[k] / (double) nRow > cutoff) exemplars[n++] = closest[k];
+        Arrays.sort(exemplars);
+        return exemplars;
+    }
+
+    // centers after the last compute
+    public double[][] getCenters() {
+        return centers;
+    }
+
+    // rows nearest to each center in the exemplar pass
+    public long[] getSizes() {
+        return sizes;
+    }
+
+    public long getNumRows() {
+        return nRow;
+    }
+
+    /*
+     * StreamingCluster <results.csv|store> [-chunk rows] [-sample n] [-passes n] [-threads n] [-seed s]
+     * Prints the exemplars: the pairs x,y of a ResultStore (see ResultStoreVectorSource), or the row numbers
+     * of a text file of scagnostics vectors, counting from 0 after any header.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 1) {
+            System.out.println("usage: StreamingCluster <results.csv|store> [-chunk rows] [-sample n] [-passes n]"
+                    + " [-threads n] [-seed s]");
+            return;
+        }
+        StreamingCluster cluster = new StreamingCluster();
+        for (int i = 1; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-chunk": cluster.setChunkRows(Integer.parseInt(value)); break;
+                case "-sample": cluster.setSampleSize(Integer.parseInt(value)); break;
+                case "-passes": cluster.setPasses(Integer.parseInt(value)); break;
+                case "-threads": cluster.setThreads(Integer.parseInt(value)); break;
+                case "-seed": cluster.setSeed(Long.parseLong(value)); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        File file = new File(argv[0]);
+        boolean isStore = ResultStore.isStore(file);
+        VectorSource source = isStore ? new ResultStoreVectorSource(file) : new CsvVectorSource(file);
+        try {
+            long t0 = System.currentTimeMillis();
+            long[] exemplars = cluster.compute(source);
+            if (exemplars == null) {
+                System.out.println("fewer than 2 vectors in " + file);
+                return;
+            }
+            System.out.println(exemplars.length + " exemplars of " + cluster.getNumRows() + " vectors in "
+                    + (System.currentTimeMillis() - t0) + " ms");
+            if (isStore) {
+                String[] labels = ((ResultStoreVectorSource) source).getStore().getLabels();
+                System.out.println("x,y");
+                for (long k : ((ResultStoreVectorSource) source).getPairIndices(exemplars)) {
+                    int[] ij = ResultStore.pair(k);
+                    System.out.println(labels[ij[1]] + "," + labels[ij[0]]);
+                }
+            } else {
+                System.out.println("row");
+                for (long row : exemplars)
+                    System.out.println(row);
+            }
+        } finally {
+            source.close();
+        }
+    }
+
+    private int nearest(double[] chunk, int o, int nVar, double[] distance) {
+        double dmin = Double.POSITIVE_INFINITY;
+        int kmin = -1;
+        for (int k = 0; k < centers.length; k++) {
+            double dd = 0;
+            for (int j = 0; j < nVar && dd < dmin; j++) {
+                double d = chunk[o + j] - centers[k][j];
+                dd += d * d;
+            }
+            if (dd < dmin) {
+                dmin = dd;
+                kmin = k;
+            }
+        }
+        if (distance != null)
+            distance[0] = dmin;
+        return kmin;
+    }
+
+    private static double[][] nonEmpty(double[][] centers) {
+        int n = 0;
+        for (int k = 0; k < centers.length; k++)
+            if (centers[k] != null) n++;
+        double[][] kept = new double[n][];
+        n = 0;
+        for (int k = 0; k < centers.length; k++)
+            if (centers[k] != null) kept[n++] = centers[k];
+        return kept;
+    }
+}
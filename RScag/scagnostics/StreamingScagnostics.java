@@ -0,0 +1,416 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Scagnostics of the pairs of a table that grows by appended rows, optionally over a sliding window of the
+ * last rows (setWindow) or of the rows appended in the last milliseconds (setMaxAge). Every tracked pair keeps
+ * its cells (StreamingBins), so a refresh only bins the new rows and drops the expired ones, and its geometry
+ * is only computed again when its binned points or counts have changed.
+ * Columns are normalized by the range of all rows appended so far, as Main does for a whole table; a row
+ * outside the range rebins the pairs of that column from the window, which setBounds avoids.
+ * append and refresh must be called from one thread.
+ */
+public class StreamingScagnostics {
+    private static final long SEED = 20190101L;
+    private static final int REBASE_ROWS = 1 << 30;
+
+    private final int nDim;
+    private final int numBins, maxBins;
+    private double[][] values;        // ring of rows, row r at r & mask
+    private long[] times;
+    private int mask;
+    private int first, end;           // rows of the window
+    private int retained;             // first row of the window at the last refresh
+    private int window = Integer.MAX_VALUE;
+    private long maxAge = Long.MAX_VALUE;
+    private long now = Long.MIN_VALUE;
+    private double[] min, max;
+    private boolean[] fixed, widened;
+    private List<StreamingBins> bins = new ArrayList<StreamingBins>();
+    private List<double[]> results = new ArrayList<double[]>();
+    private HashMap<Long, Integer> pairs = new HashMap<Long, Integer>();
+    private int[] measures;
+    private double tolerance;
+    private int threads = 1;
+    private ExecutorService pool;
+    private int recomputed;
+
+    public StreamingScagnostics(int nDim, int numBins, int maxBins) {
+        this.nDim = nDim;
+        this.numBins = numBins;
+        this.maxBins = maxBins;
+        values = new double[nDim][1024];
+        mask = 1023;
+        min = new double[nDim];
+        max = new double[nDim];
+        Arrays.fill(min, Double.NaN);
+        Arrays.fill(max, Double.NaN);
+        fixed = new boolean[nDim];
+        widened = new boolean[nDim];
+    }
+
+    // normalizes column c by a fixed range; values outside it are clamped and never rebin
+    public void setBounds(int c, double lo, double hi) {
+        min[c] = lo;
+        max[c] = hi;
+        fixed[c] = true;
+        widened[c] = true;
+    }
+
+    // the measures passed to Scagnostics.compute(int[]), all by default
+    public void setMeasures(int[] measures) {
+        this.measures = measures;
+    }
+
+    /*
+     * Relative change of a cell's count, with the same points, below which the geometry is not computed again.
+     * 0 (the default) recomputes on any change of the binned data; infinity only when the points change.
+     */
+    public void setCountTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        close();
+    }
+
+    // keeps only the last rows appended
+    public void setWindow(int rows) {
+        window = rows;
+    }
+
+    // keeps only the rows appended at most maxAge before the latest time passed to append or advance
+    public void setMaxAge(long maxAge) {
+        this.maxAge = maxAge;
+    }
+
+    // the pair (i, j), j < i, with x = column j and y = column i as in Main
+    public void track(int i, int j) {
+        long pair = ResultStore.pairIndex(i, j);
+        if (pairs.containsKey(pair))
+            return;
+        pairs.put(pair, bins.size());
+        bins.add(new StreamingBins(this, j, i, numBins, maxBins, SEED));
+        results.add(null);
+    }
+
+    public void trackAll() {
+        for (int i = 1; i < nDim; i++)
+            for (int j = 0; j < i; j++)
+                track(i, j);
+    }
+
+    // appends batch[c][k] as the next rows of column c, at the latest time passed so far
+    public void append(double[][] batch) {
+        append(batch, null);
+    }
+
+    // appends batch[c][k] as the next rows of column c, row k at times[k]
+    public void append(double[][] batch, long[] times) {
+        if (batch.length != nDim)
+            throw new IllegalArgumentException("batch has " + batch.length + " columns, table " + nDim);
+        int n = batch[0].length;
+        if (end + n > REBASE_ROWS)
+            rebase();
+        ensureCapacity(end + n - retained);
+        for (int c = 0; c < nDim; c++) {
+            double[] v = batch[c];
+            for (int k = 0; k < n; k++)
+                values[c][(end + k) & mask] = v[k];
+            if (fixed[c])
+                continue;
+            for (int k = 0; k < n; k++) {
+                if (Double.isNaN(v[k]))
+                    continue;
+                if (!(v[k] >= min[c])) {
+                    min[c] = v[k];
+                    widened[c] = true;
+                }
+                if (!(v[k] <= max[c])) {
+                    max[c] = v[k];
+                    widened[c] = true;
+                }
+            }
+        }
+        if (times != null || this.times != null) {
+            if (this.times == null)
+                this.times = new long[mask + 1];
+            for (int k = 0; k < n; k++) {
+                long t = times == null ? now : times[k];
+                this.times[(end + k) & mask] = t;
+                now = Math.max(now, t);
+            }
+        }
+        end += n;
+        expire();
+    }
+
+    // moves the time of the window on without appending
+    public void advance(long time) {
+        now = Math.max(now, time);
+        expire();
+    }
+
+    private void expire() {
+        if (end - first > window)
+            first = end - window;
+        if (times != null && maxAge != Long.MAX_VALUE) {
+            while (first < end && times[first & mask] < now - maxAge)
+                first++;
+        }
+    }
+
+    // the ring holds at least the rows from retained on, which pairs may still have to drop
+    private void ensureCapacity(int rows) {
+        if (rows <= mask + 1)
+            return;
+        int capacity = mask + 1;
+        while (capacity < rows)
+            capacity *= 2;
+        for (int c = 0; c < nDim; c++)
+            values[c] = copyRing(values[c], capacity);
+        if (times != null) {
+            long[] t = new long[capacity];
+            for (int r = retained; r < end; r++)
+                t[r & (capacity - 1)] = times[r & mask];
+            times = t;
+        }
+        mask = capacity - 1;
+    }
+
+    private double[] copyRing(double[] v, int capacity) {
+        double[] copy = new double[capacity];
+        for (int r = retained; r < end; r++)
+            copy[r & (capacity - 1)] = v[r & mask];
+        return copy;
+    }
+
+    // numbers the rows of the window from 0 again, before row numbers overflow; every pair is binned again
+    private void rebase() {
+        if (first == 0)
+            throw new IllegalStateException("more than " + REBASE_ROWS + " rows in the window");
+        int capacity = mask + 1;
+        double[][] v = new double[nDim][capacity];
+        for (int c = 0; c < nDim; c++)
+            for (int r = first; r < end; r++)
+                v[c][(r - first) & mask] = values[c][r & mask];
+        values = v;
+        if (times != null) {
+            long[] t = new long[capacity];
+            for (int r = first; r < end; r++)
+                t[(r - first) & mask] = times[r & mask];
+            times = t;
+        }
+        end -= first;
+        first = 0;
+        retained = 0;
+        for (StreamingBins b : bins)
+            b.rebase();
+    }
+
+    // bins the rows appended and drops the rows expired since the last refresh, returns the number of pairs
+    // whose geometry was computed
+    public int refresh() {
+        final AtomicInteger next = new AtomicInteger();
+        final AtomicInteger count = new AtomicInteger();
+        Runnable worker = new Runnable() {
+            public void run() {
+                int p;
+                while ((p = next.getAndIncrement()) < bins.size()) {
+                    if (refresh(p))
+                        count.incrementAndGet();
+                }
+            }
+        };
+        int nThreads = Math.min(threads, bins.size());
+        if (nThreads <= 1) {
+            worker.run();
+        } else {
+            if (pool == null) {
+                pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+                    public Thread newThread(Runnable r) {
+                        Thread t = new Thread(r, "StreamingScagnostics");
+                        t.setDaemon(true);
+                        return t;
+                    }
+                });
+            }
+            List<Future<?>> futures = new ArrayList<Future<?>>();
+            for (int t = 0; t < nThreads; t++)
+                futures.add(pool.submit(worker));
+            try {
+                for (Future<?> f : futures)
+                    f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+        }
+        Arrays.fill(widened, false);
+        retained = first;
+        recomputed = count.get();
+        return recomputed;
+    }
+
+    // stops the refresh threads; they are started again by the next refresh
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+        }
+    }
+
+    private boolean refresh(int p) {
+        StreamingBins b = bins.get(p);
+        if (widened[b.getXColumn()] || widened[b.getYColumn()])
+            b.reset(numBins, StreamingBins.SCALE);
+        BinnedData bdata = b.update(first, end, tolerance);
+        if (bdata == null)
+            return false;
+        Scagnostics s = new Scagnostics(bdata);
+        results.set(p, measures == null ? s.compute() : s.compute(measures));
+        return true;
+    }
+
+    // the measures of pair (i, j) at the last refresh, null if it is not tracked, not computed yet or degenerate
+    public double[] get(int i, int j) {
+        Integer p = pairs.get(ResultStore.pairIndex(i, j));
+        return p == null ? null : results.get(p);
+    }
+
+    // numBins of pair (i, j) after the last refresh, smaller than the one asked for if the plot needed more than maxBins
+    public int getNumBins(int i, int j) {
+        Integer p = pairs.get(ResultStore.pairIndex(i, j));
+        return p == null ? 0 : bins.get(p).getNumBins();
+    }
+
+    // rows in the window
+    public int getNumRows() {
+        return end - first;
+    }
+
+    public int getDimension() {
+        return nDim;
+    }
+
+    // pairs whose geometry was computed by the last refresh
+    public int getRecomputed() {
+        return recomputed;
+    }
+
+    // times the cells of tracked pairs were built again from all rows
+    public long getRebuilds() {
+        long n = 0;
+        for (StreamingBins b : bins)
+            n += b.getRebuilds();
+        return n;
+    }
+
+    // normalized value of row r of column c, as by Main.normalizePoints over the rows so far
+    double normalized(int c, int r) {
+        double v = values[c][r & mask];
+        if (v < min[c])
+            v = min[c];
+        else if (v > max[c])
+            v = max[c];
+        return (v - min[c]) / (max[c] - min[c]);
+    }
+
+    /*
+     * StreamingScagnostics <data.csv> [-batch rows] [-window rows] [-bins numBins] [-maxBins maxBins] [-tolerance t]
+     *                      [-threads n]
+     * Appends the rows of the table in batches, refreshing all pairs after each, and prints the time of every
+     * refresh and the final measures of every pair; columns are labelled V1, V2, ... as in BatchRunner.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 1) {
+            System.out.println("usage: StreamingScagnostics <data.csv> [-batch rows] [-window rows] [-bins numBins]"
+                    + " [-maxBins maxBins] [-tolerance t] [-threads n]");
+            return;
+        }
+        int batch = 1000;
+        int window = Integer.MAX_VALUE;
+        int numBins = 50;
+        int maxBins = 1000;
+        double tolerance = 0;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 1; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-batch": batch = Integer.parseInt(value); break;
+                case "-window": window = Integer.parseInt(value); break;
+                case "-bins": numBins = Integer.parseInt(value); break;
+                case "-maxBins": maxBins = Integer.parseInt(value); break;
+                case "-tolerance": tolerance = Double.parseDouble(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        double[][] data = Main.getData(new File(argv[0]));
+        if (data == null)
+            return;
+        int nDim = data.length;
+        StreamingScagnostics stream = new StreamingScagnostics(nDim, numBins, maxBins);
+        stream.setWindow(window);
+        stream.setCountTolerance(tolerance);
+        stream.setThreads(threads);
+        stream.trackAll();
+        for (int from = 0; from < data[0].length; from += batch) {
+            int to = Math.min(data[0].length, from + batch);
+            double[][] rows = new double[nDim][];
+            for (int c = 0; c < nDim; c++)
+                rows[c] = Arrays.copyOfRange(data[c], from, to);
+            long t0 = System.currentTimeMillis();
+            stream.append(rows);
+            int n = stream.refresh();
+            System.out.println(to + " rows, " + stream.getNumRows() + " in window: " + n + " pairs recomputed, "
+                    + (System.currentTimeMillis() - t0) + " ms");
+        }
+        for (int i = 1; i < nDim; i++) {
+            for (int j = 0; j < i; j++) {
+                double[] r = stream.get(i, j);
+                StringBuilder line = new StringBuilder("V" + (j + 1) + ",V" + (i + 1));
+                for (int m = 0; m < Scagnostics.getNumScagnostics(); m++)
+                    line.append(',').append(r == null ? Double.NaN : r[m]);
+                System.out.println(line);
+            }
+        }
+        stream.close();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * Robustness sweep: scagnostics of many random subsamples or jittered copies of one plot.
+ * The columns are normalized once and the cells of the full plot are assigned once;
+ * every worker thread keeps its own Binner workspace. Replica k is seeded from the sweep
+ * seed and k, so the results do not depend on the number of threads.
+ */
+public class Sweep {
+    private double[] x, y;
+    private int[] cells;
+    private int numBins, maxBins;
+    private long seed = 1;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    public Sweep(double[] x, double[] y, int numBins, int maxBins) {
+        this.x = normalize(x);
+        this.y = normalize(y);
+        this.numBins = numBins;
+        this.maxBins = maxBins;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    // replicas of round(fraction * n) points drawn without replacement
+    public SweepResult subsample(int replicas, double fraction) {
+        if (fraction <= 0 || fraction > 1)
+            throw new IllegalArgumentException("fraction must be in (0, 1]");
+        if (cells == null)
+            cells = new Binner(maxBins).assignCells(x, y, numBins);
+        return run(replicas, fraction, 0);
+    }
+
+    // replicas with gaussian noise of sd jitter added to the normalized points, clamped to [0, 1]
+    public SweepResult jitter(int replicas, double jitter) {
+        if (jitter < 0)
+            throw new IllegalArgumentException("jitter must not be negative");
+        return run(replicas, 1, jitter);
+    }
+
+    private SweepResult run(int replicas, final double fraction, final double jitter) {
+        final double[][] results = new double[replicas][];
+        int nThreads = Math.min(threads, Math.max(1, replicas));
+        ExecutorService pool = Executors.newFixedThreadPool(nThreads);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int w = 0; w < nThreads; w++) {
+            final int first = w;
+            final int stride = nThreads;
+            futures.add(pool.submit(new Runnable() {
+                public void run() {
+                    Binner binner = new Binner(maxBins);
+                    int m = (int) Math.round(fraction * x.length);
+                    int[] rows = new int[Math.max(m, 1)];
+                    double[] xj = jitter > 0 ? new double[x.length] : null;
+                    double[] yj = jitter > 0 ? new double[y.length] : null;
+                    for (int k = first; k < results.length; k += stride) {
+                        Random random = new Random(seed * 1000003 + k);
+                        binner.setSeed(random.nextLong());
+                        BinnedData bdata;
+                        if (jitter > 0) {
+                            for (int i = 0; i < x.length; i++) {
+                                xj[i] = clamp(x[i] + jitter * random.nextGaussian());
+                                yj[i] = clamp(y[i] + jitter * random.nextGaussian());
+                            }
+                            bdata = binner.binHex(xj, yj, numBins, 3);
+                        } else if (fraction < 1) {
+                            select(x.length, rows, random);
+                            bdata = binner.binCells(x, y, cells, rows, numBins, 3);
+                        } else {
+                            bdata = binner.binCells(x, y, cells, null, numBins, 3);
+                        }
+                        results[k] = new Scagnostics(bdata).compute();
+                    }
+                }
+            }));
+        }
+        try {
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        return new SweepResult(results);
+    }
+
+    // selection sampling: rows.length indices out of n, in increasing order
+    private static void select(int n, int[] rows, Random random) {
+        int m = rows.length;
+        int k = 0;
+        for (int i = 0; i < n && k < m; i++) {
+            if ((n - i) * random.nextDouble() < m - k)
+                rows[k++] = i;
+        }
+    }
+
+    private static double clamp(double v) {
+        return v < 0 ? 0 : (v > 1 ? 1 : v);
+    }
+
+    private static double[] normalize(double[] v) {
+        double min = Double.MAX_VALUE;
+        double max = -Double.MAX_VALUE;
+        for (int i = 0; i < v.length; i++) {
+            if (Double.isNaN(v[i])) continue;
+            min = Math.min(min, v[i]);
+            max = Math.max(max, v[i]);
+        }
+        double[] w = new double[v.length];
+        for (int i = 0; i < v.length; i++)
+            w[i] = (v[i] - min) / (max - min);
+        return w;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.Arrays;
+
+// per-measure summary of the replicas of a Sweep; degenerate replicas (null results) are left out
+public class SweepResult {
+    private double[][] replicates;
+    private double[][] sorted;  // [measure][valid replica], ascending
+    private int numValid;
+
+    SweepResult(double[][] replicates) {
+        this.replicates = replicates;
+        for (int k = 0; k < replicates.length; k++)
+            if (replicates[k] != null) numValid++;
+        int nMeasures = Scagnostics.getNumScagnostics();
+        sorted = new double[nMeasures][numValid];
+        int j = 0;
+        for (int k = 0; k < replicates.length; k++) {
+            if (replicates[k] == null) continue;
+            for (int m = 0; m < nMeasures; m++)
+                sorted[m][j] = replicates[k][m];
+            j++;
+        }
+        for (int m = 0; m < nMeasures; m++)
+            Arrays.sort(sorted[m]);
+    }
+
+    public double[][] getReplicates() {
+        return replicates;
+    }
+
+    public int getNumReplicates() {
+        return replicates.length;
+    }
+
+    public int getNumValid() {
+        return numValid;
+    }
+
+    public double[] getMean() {
+        double[] mean = new double[sorted.length];
+        if (numValid == 0)
+            Arrays.fill(mean, Double.NaN);
+        for (int m = 0; m < sorted.length; m++) {
+            for (int j = 0; j < numValid; j++)
+                mean[m] += (sorted[m][j] - mean[m]) / (j + 1);
+        }
+        return mean;
+    }
+
+    // sample variance (n - 1 denominator)
+    public double[] getVariance() {
+        double[] mean = getMean();
+        double[] var = new double[sorted.length];
+        if (numValid < 2)
+            return var;
+        for (int m = 0; m < sorted.length; m++) {
+            double ss = 0;
+            for (int j = 0; j < numValid; j++)
+                ss += (sorted[m][j] - mean[m]) * (sorted[m][j] - mean[m]);
+            var[m] = ss / (numValid - 1);
+        }
+        return var;
+    }
+
+    // quantile p of every measure, interpolated between order statistics as R's default type 7
+    public double[] getQuantile(double p) {
+        double[] q = new double[sorted.length];
+        if (numValid == 0) {
+            Arrays.fill(q, Double.NaN);
+            return q;
+        }
+        double h = (numValid - 1) * p;
+        int lo = (int) Math.floor(h);
+        int hi = Math.min(lo + 1, numValid - 1);
+        for (int m = 0; m < sorted.length; m++)
+            q[m] = sorted[m][lo] + (h - lo) * (sorted[m][hi] - sorted[m][lo]);
+        return q;
+    }
+}
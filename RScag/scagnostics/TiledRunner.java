@@ -0,0 +1,214 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+
+/*
+ * All-pairs scagnostics of a table too wide to hold in memory. The columns are read from a ColumnFile in
+ * blocks, and the pairs are computed tile by tile: block bi against every block bj <= bi. Only the two
+ * blocks of the current tile are loaded, and each tile goes straight into the ResultStore, so memory
+ * depends on the block size and the rows, not on the number of columns. The block size is chosen to fit
+ * a memory budget. Tiles already complete in the store are skipped without loading their columns.
+ */
+public class TiledRunner {
+    private static final int INDEX_ARRAYS = 4;     // axis indices cached per loaded column, at numBins and coarser
+    private static final int PAIR_BYTES = 24;      // pair list, cost keys and sorted copy of a tile
+    private static final int THREAD_BYTES_PER_ROW = 32;   // cells, binner workspace and binned points per thread
+
+    private ColumnFile table;
+    private ColumnCache columns;
+    private BatchRunner runner;
+    private int numBins, maxBins;
+    private Variant variant;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private long memoryBytes;
+    private long loads;
+
+    public TiledRunner(ColumnFile table, int numBins, int maxBins, Variant variant, long memoryBytes) {
+        this.table = table;
+        this.numBins = numBins;
+        this.maxBins = maxBins;
+        this.variant = variant;
+        this.memoryBytes = memoryBytes;
+        this.columns = new ColumnCache(table.getNumColumns());
+        this.runner = new BatchRunner(columns, numBins, maxBins, variant);
+    }
+
+    // the runner of each tile, for its other settings (cache, time limit, cost order)
+    public BatchRunner getRunner() {
+        return runner;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+        runner.setThreads(threads);
+    }
+
+    public ResultStore create(File file, String[] labels) throws IOException {
+        return ResultStore.create(file, labels, numBins, maxBins, variant);
+    }
+
+    /*
+     * The largest number of columns per block such that the two blocks of a tile, their cached indices, the
+     * pairs of the tile and the workspaces of the threads fit in the memory budget.
+     */
+    public int getBlockSize() {
+        long rows = table.getNumRows();
+        long column = rows * (8 + 4 * INDEX_ARRAYS);
+        long free = memoryBytes - threads * (rows * THREAD_BYTES_PER_ROW + 16L * numBins * numBins);
+        int block = table.getNumColumns();
+        while (block > 0 && 2 * block * column + (long) block * block * PAIR_BYTES > free)
+            block = block * 9 / 10;
+        if (block == 0)
+            throw new IllegalArgumentException("a memory budget of " + memoryBytes + " bytes does not hold two"
+                    + " columns of " + rows + " rows");
+        return block;
+    }
+
+    // columns read from the file so far
+    public long getLoads() {
+        return loads;
+    }
+
+    // fills the EMPTY pairs of store, returns how many were computed
+    public long run(ResultStore store) throws IOException {
+        return run(store, 0, table.getNumColumns());
+    }
+
+    // fills the EMPTY pairs (i, j) with iFrom <= i < iTo, the pairs iFrom(iFrom-1)/2 to iTo(iTo-1)/2 - 1 of the store
+    public long run(ResultStore store, int iFrom, int iTo) throws IOException {
+        int block = getBlockSize();
+        long computed = 0;
+        for (int i0 = iFrom; i0 < iTo; i0 += block) {
+            int i1 = Math.min(iTo, i0 + block);
+            for (int j0 = 0; j0 < i1 - 1; j0 += block) {
+                int j1 = Math.min(i1 - 1, j0 + block);
+                if (isComplete(store, i0, i1, j0, j1))
+                    continue;
+                load(i0, i1);
+                load(j0, j1);
+                computed += runner.run(store, i0, i1, j0, j1);
+                for (int c = j0; c < j1; c++)
+                    if (c < i0 || c >= i1) columns.unload(c);
+            }
+            for (int c = i0; c < i1; c++)
+                columns.unload(c);
+        }
+        return computed;
+    }
+
+    private static boolean isComplete(ResultStore store, int iFrom, int iTo, int jFrom, int jTo) {
+        for (int i = Math.max(iFrom, 1); i < iTo; i++)
+            for (int j = jFrom; j < Math.min(i, jTo); j++)
+                if (store.getStatus(ResultStore.pairIndex(i, j)) == ResultStore.EMPTY)
+                    return false;
+        return true;
+    }
+
+    private void load(int from, int to) throws IOException {
+        for (int c = from; c < to; c++) {
+            if (!columns.isLoaded(c)) {
+                columns.load(c, table.read(c));
+                loads++;
+            }
+        }
+    }
+
+    /*
+     * TiledRunner <data.csv|table.cols> <store> [-memory MB] [-bins numBins] [-maxBins maxBins]
+     *             [-variant RScag|Scag-05|Scag-06] [-threads n] [-timeLimit ms] [-order cost|store]
+     * A text table is first converted to <data.csv>.cols, or reused from there if that is newer.
+     * Columns are labelled V1, V2, ... An existing store is resumed; one written with other settings is refused.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 2) {
+            System.out.println("usage: TiledRunner <data.csv|table.cols> <store> [-memory MB] [-bins numBins]"
+                    + " [-maxBins maxBins] [-variant RScag|Scag-05|Scag-06] [-threads n] [-timeLimit ms]"
+                    + " [-order cost|store]");
+            return;
+        }
+        long memory = 1024;
+        int numBins = 50;
+        int maxBins = 1000;
+        Variant variant = Variant.RSCAG;
+        int threads = Runtime.getRuntime().availableProcessors();
+        long timeLimit = 0;
+        String order = "cost";
+        for (int i = 2; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-memory": memory = Long.parseLong(value); break;
+                case "-bins": numBins = Integer.parseInt(value); break;
+                case "-maxBins": maxBins = Integer.parseInt(value); break;
+                case "-variant": variant = Variant.forLabel(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                case "-timeLimit": timeLimit = Long.parseLong(value); break;
+                case "-order": order = value; break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        if (!order.equals("cost") && !order.equals("store"))
+            throw new IllegalArgumentException("Unknown order " + order + ", expected cost or store");
+        long memoryBytes = memory << 20;
+
+        File input = new File(argv[0]);
+        ColumnFile table;
+        if (input.getName().endsWith(".cols")) {
+            table = ColumnFile.open(input);
+        } else {
+            File converted = new File(input.getPath() + ".cols");
+            if (converted.exists() && converted.lastModified() >= input.lastModified()) {
+                table = ColumnFile.open(converted);
+            } else {
+                long t0 = System.currentTimeMillis();
+                table = ColumnFile.create(input, converted, memoryBytes / 2);
+                System.out.println("converted to " + converted + " in " + (System.currentTimeMillis() - t0) + " ms");
+            }
+        }
+        System.out.println("Number of rows, cols " + table.getNumRows() + " " + table.getNumColumns());
+
+        TiledRunner tiled = new TiledRunner(table, numBins, maxBins, variant, memoryBytes);
+        tiled.setThreads(threads);
+        tiled.getRunner().setTimeLimit(timeLimit);
+        tiled.getRunner().setCostOrder(order.equals("cost"));
+
+        File file = new File(argv[1]);
+        ResultStore store = ResultStore.resume(file, table.getNumColumns(), numBins, maxBins, variant);
+        if (store == null) {
+            String[] labels = new String[table.getNumColumns()];
+            for (int i = 0; i < labels.length; i++)
+                labels[i] = "V" + (i + 1);
+            store = tiled.create(file, labels);
+        }
+        long t0 = System.currentTimeMillis();
+        long computed = tiled.run(store);
+        System.out.println(computed + " of " + store.getNumPairs() + " pairs computed in "
+                + (System.currentTimeMillis() - t0) + " ms, blocks of " + tiled.getBlockSize() + " columns, "
+                + tiled.getLoads() + " columns read");
+        if (tiled.getRunner().getPartial() > 0)
+            System.out.println(tiled.getRunner().getPartial() + " pairs ran out of time and are stored as PARTIAL");
+        store.close();
+        table.close();
+    }
+}
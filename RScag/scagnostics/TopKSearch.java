@@ -0,0 +1,317 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/*
+ * The k pairs of a table with the largest value of one measure, without computing every pair.
+ * All pairs are first computed at a coarse numBins, which is cheap; the pairs are then computed at full
+ * resolution in decreasing order of their coarse value, and the search stops once the coarse value of
+ * the next pair, plus a margin, is below the k-th best exact value. The margin is the larger of the
+ * slack and the largest amount by which an exact value has exceeded its coarse value so far.
+ * An infinite slack computes every pair and gives the exact top k.
+ */
+public class TopKSearch {
+    private ColumnCache columns;
+    private int numBins, maxBins;
+    private int coarseBins = 10;
+    private double slack = 0.05;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int nDim;
+    private long numPairs;
+    private float[] coarse;        // [pair * 9 + measure], +infinity where the coarse plot is degenerate
+    private double[] values;
+    private long numComputed;
+    private final ThreadLocal<Binner> binners = new ThreadLocal<Binner>();
+
+    // the columns are normalized in place, as in Main
+    public TopKSearch(double[][] columns, int numBins, int maxBins) {
+        this(new ColumnCache(columns), numBins, maxBins);
+    }
+
+    public TopKSearch(ColumnCache columns, int numBins, int maxBins) {
+        this.columns = columns;
+        this.numBins = numBins;
+        this.maxBins = maxBins;
+        nDim = columns.getNumColumns();
+        numPairs = ResultStore.numPairs(nDim);
+        if (numPairs * Scagnostics.getNumScagnostics() > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("too many pairs: " + numPairs);
+    }
+
+    public void setCoarseBins(int coarseBins) {
+        this.coarseBins = coarseBins;
+        coarse = null;
+    }
+
+    public void setSlack(double slack) {
+        this.slack = slack;
+    }
+
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    // pair indices (as in ResultStore) of the k largest values of measure, largest first
+    public long[] search(int measure, int k) {
+        final int nMeasures = Scagnostics.getNumScagnostics();
+        k = (int) Math.min(k, numPairs);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            if (coarse == null)
+                computeCoarse(pool);
+
+            // pairs by decreasing coarse value
+            long[] keys = new long[(int) numPairs];
+            for (int p = 0; p < numPairs; p++)
+                keys[p] = ((long) ~sortable(coarse[p * nMeasures + measure]) << 32) | p;
+            Arrays.parallelSort(keys);
+
+            // min-heap of the best exact values found so far
+            int[] heap = new int[k];
+            double[] heapValue = new double[k];
+            int size = 0;
+            double overshoot = 0;
+            numComputed = 0;
+            int batch = Math.max(4 * threads, Math.min(k, 256));
+            for (int r = 0; r < numPairs; r += batch) {
+                if (size == k && k > 0) {
+                    double next = coarse[(int) keys[r] * nMeasures + measure];
+                    if (next + Math.max(slack, overshoot) < heapValue[0])
+                        break;
+                }
+                int to = (int) Math.min(numPairs, r + batch);
+                final int[] pairs = new int[to - r];
+                for (int i = r; i < to; i++)
+                    pairs[i - r] = (int) keys[i];
+                double[][] exact = computeExact(pool, pairs, measure);
+                numComputed += pairs.length;
+                for (int i = 0; i < pairs.length; i++) {
+                    if (exact[i] == null || Double.isNaN(exact[i][measure]))
+                        continue;
+                    double v = exact[i][measure];
+                    float c = coarse[pairs[i] * nMeasures + measure];
+                    if (c != Float.POSITIVE_INFINITY)
+                        overshoot = Math.max(overshoot, v - c);
+                    if (size < k) {
+                        heap[size] = pairs[i];
+                        heapValue[size] = v;
+                        siftUp(heap, heapValue, size++);
+                    } else if (k > 0 && worse(heapValue[0], heap[0], v, pairs[i])) {
+                        heap[0] = pairs[i];
+                        heapValue[0] = v;
+                        siftDown(heap, heapValue, 0, k);
+                    }
+                }
+            }
+
+            // heap sort, smallest last
+            for (int n = size - 1; n > 0; n--) {
+                swap(heap, heapValue, 0, n);
+                siftDown(heap, heapValue, 0, n);
+            }
+            long[] result = new long[size];
+            values = new double[size];
+            for (int i = 0; i < size; i++) {
+                result[i] = heap[i];
+                values[i] = heapValue[i];
+            }
+            return result;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    // exact values of the last search, in the order of its pairs
+    public double[] getValues() {
+        return values;
+    }
+
+    // pairs computed at full resolution by the last search
+    public long getNumComputed() {
+        return numComputed;
+    }
+
+    private void computeCoarse(ExecutorService pool) {
+        final int nMeasures = Scagnostics.getNumScagnostics();
+        coarse = new float[(int) numPairs * nMeasures];
+        final int chunk = 256;
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (long s = 0; s < numPairs; s += chunk) {
+            final int from = (int) s;
+            final int to = (int) Math.min(numPairs, s + chunk);
+            futures.add(pool.submit(new Runnable() {
+                public void run() {
+                    int[] ij = ResultStore.pair(from);
+                    for (int p = from; p < to; p++) {
+                        double[] r = new Scagnostics(columns.bin(binner(), ij[1], ij[0], coarseBins)).compute();
+                        for (int m = 0; m < nMeasures; m++)
+                            coarse[p * nMeasures + m] = r == null || Double.isNaN(r[m]) ? Float.POSITIVE_INFINITY : (float) r[m];
+                        if (++ij[1] == ij[0]) {
+                            ij[0]++;
+                            ij[1] = 0;
+                        }
+                    }
+                }
+            }));
+        }
+        await(futures);
+    }
+
+    private double[][] computeExact(ExecutorService pool, final int[] pairs, int measure) {
+        final int[] measures = {measure};
+        final double[][] exact = new double[pairs.length][];
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i = 0; i < pairs.length; i++) {
+            final int index = i;
+            futures.add(pool.submit(new Runnable() {
+                public void run() {
+                    int[] ij = ResultStore.pair(pairs[index]);
+                    exact[index] = new Scagnostics(columns.bin(binner(), ij[1], ij[0], numBins)).compute(measures);
+                }
+            }));
+        }
+        await(futures);
+        return exact;
+    }
+
+    private Binner binner() {
+        Binner b = binners.get();
+        if (b == null) {
+            b = new Binner(maxBins);
+            binners.set(b);
+        }
+        return b;
+    }
+
+    private static void await(List<Future<?>> futures) {
+        try {
+            for (Future<?> f : futures)
+                f.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    // signed int with the order of the float
+    private static int sortable(float v) {
+        int bits = Float.floatToIntBits(v);
+        return bits ^ ((bits >> 31) & 0x7fffffff);
+    }
+
+    // a ranks below b: smaller value, or the same value and a larger pair index
+    private static boolean worse(double va, int a, double vb, int b) {
+        return va < vb || (va == vb && a > b);
+    }
+
+    private static void siftUp(int[] heap, double[] value, int c) {
+        while (c > 0) {
+            int p = (c - 1) / 2;
+            if (!worse(value[c], heap[c], value[p], heap[p]))
+                return;
+            swap(heap, value, c, p);
+            c = p;
+        }
+    }
+
+    private static void siftDown(int[] heap, double[] value, int p, int n) {
+        while (true) {
+            int c = 2 * p + 1;
+            if (c >= n)
+                return;
+            if (c + 1 < n && worse(value[c + 1], heap[c + 1], value[c], heap[c]))
+                c++;
+            if (!worse(value[c], heap[c], value[p], heap[p]))
+                return;
+            swap(heap, value, c, p);
+            p = c;
+        }
+    }
+
+    private static void swap(int[] heap, double[] value, int a, int b) {
+        int t = heap[a];
+        heap[a] = heap[b];
+        heap[b] = t;
+        double v = value[a];
+        value[a] = value[b];
+        value[b] = v;
+    }
+
+    /*
+     * TopKSearch <data.csv> <measure> [-k n] [-bins numBins] [-maxBins maxBins] [-coarse numBins] [-slack s] [-threads n]
+     * Prints the k pairs with the largest value of the measure; columns are labelled V1, V2, ... as in BatchRunner.
+     */
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 2) {
+            System.out.println("usage: TopKSearch <data.csv> <measure> [-k n] [-bins numBins] [-maxBins maxBins]"
+                    + " [-coarse numBins] [-slack s] [-threads n]");
+            return;
+        }
+        int k = 50;
+        int numBins = 50;
+        int maxBins = 1000;
+        int coarseBins = 10;
+        double slack = 0.05;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i < argv.length - 1; i += 2) {
+            String value = argv[i + 1];
+            switch (argv[i]) {
+                case "-k": k = Integer.parseInt(value); break;
+                case "-bins": numBins = Integer.parseInt(value); break;
+                case "-maxBins": maxBins = Integer.parseInt(value); break;
+                case "-coarse": coarseBins = Integer.parseInt(value); break;
+                case "-slack": slack = Double.parseDouble(value); break;
+                case "-threads": threads = Integer.parseInt(value); break;
+                default: throw new IllegalArgumentException("Unknown option " + argv[i]);
+            }
+        }
+        double[][] data = Main.getData(new File(argv[0]));
+        if (data == null)
+            return;
+        int measure = RangeQuery.measure(argv[1]);
+        TopKSearch search = new TopKSearch(data, numBins, maxBins);
+        search.setCoarseBins(coarseBins);
+        search.setSlack(slack);
+        search.setThreads(threads);
+        long t0 = System.currentTimeMillis();
+        long[] pairs = search.search(measure, k);
+        System.out.println("top " + pairs.length + " by " + argv[1] + ", " + search.getNumComputed() + " of "
+                + ResultStore.numPairs(data.length) + " pairs computed in full, " + (System.currentTimeMillis() - t0) + " ms");
+        double[] values = search.getValues();
+        for (int i = 0; i < pairs.length; i++) {
+            int[] ij = ResultStore.pair(pairs[i]);
+            System.out.println("V" + (ij[1] + 1) + ",V" + (ij[0] + 1) + "," + values[i]);
+        }
+    }
+}
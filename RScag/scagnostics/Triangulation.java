@@ -0,0 +1,520 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+// Delaunay triangulation of the binned points with its MST, alpha shape and convex hull
+class Triangulation {
+    protected List<Node> nodes;        // nodes set
+    protected List<Edge> edges;        // edges set
+    protected List triangles;          // triangles set
+    protected List<Edge> mstEdges;     // minimum spanning tree set
+    protected Edge hullStart;          // entering edge of convex hull
+    protected int totalPeeledCount;
+    private Edge actE;
+    private static final double FUZZ = .999;
+    private long timeLimit, deadline;   // System.nanoTime() deadline when timeLimit (ms) > 0
+
+    Triangulation() {
+        nodes = new ArrayList<Node>();
+        edges = new ArrayList<Edge>();
+        triangles = new ArrayList();
+        mstEdges = new ArrayList<Edge>();
+    }
+
+    // starts the time limit of one computation, none when millis is 0
+    void setTimeLimit(long millis) {
+        timeLimit = millis;
+        deadline = System.nanoTime() + millis * 1000000L;
+    }
+
+    void checkTime() {
+        if (timeLimit > 0 && System.nanoTime() - deadline > 0)
+            throw new ScagnosticsTimeoutException(timeLimit);
+    }
+
+    void clear() {
+        nodes.clear();
+        edges.clear();
+        triangles.clear();
+        mstEdges.clear();
+    }
+
+    void computeDT(int[] px, int[] py, double[] counts, boolean[] isOutlier) {
+        totalPeeledCount = 0;
+        Random r = new Random(13579);
+
+        for (int i = 0; i < px.length; i++) {
+            int x = px[i] + (int) (8 * (r.nextDouble() - .5)); // perturb to prevent singularities
+            int y = py[i] + (int) (8 * (r.nextDouble() - .5));
+            double count = counts[i];
+            if (!isOutlier[i]) {
+                checkTime();
+                insert(x, y, count, i);
+                totalPeeledCount += count;
+            }
+        }
+        setNeighbors();
+        markHull();
+    }
+
+    void computeMST() {
+        if (nodes.size() > 1) {
+            List mstNodes = new ArrayList();
+            Node mstNode = (Node) nodes.get(0);
+            updateMSTNodes(mstNode, mstNodes);
+            int count = 1;
+            while (count < nodes.size()) {
+                checkTime();
+                Edge addEdge = null;
+                double wmin = Double.MAX_VALUE;
+                Node nmin = null;
+                Iterator mstIterator = mstNodes.iterator();
+                while (mstIterator.hasNext()) {
+                    mstNode = (Node) mstIterator.next();
+                    Edge candidateEdge = mstNode.shortestEdge(false);
+                    if (candidateEdge != null) {
+                        double wt = candidateEdge.weight;
+                        if (wt < wmin) {
+                            wmin = wt;
+                            nmin = mstNode;
+                            addEdge = candidateEdge;
+                        }
+                    }
+                }
+                if (addEdge != null) {
+                    Node addNode = addEdge.otherNode(nmin);
+                    updateMSTNodes(addNode, mstNodes);
+                    updateMSTEdges(addEdge, mstEdges);
+                }
+                count++;
+            }
+        }
+    }
+
+    double[] getSortedMSTEdgeLengths() {
+        double[] lengths = computeEdgeLengths(mstEdges.iterator(), mstEdges.size());
+        Sorts.doubleArraySort(lengths, 0, 0);
+        return lengths;
+    }
+
+    void computeAlphaGraph(double alpha) { // requires initializing SEdge.onShape = false
+        boolean deleted;
+        do {
+            checkTime();
+            Iterator i = edges.iterator();
+            deleted = false;
+            while (i.hasNext()) {
+                Edge e = (Edge) i.next();
+                if (e.inT.onComplex) {
+                    if (alpha < e.weight / 2) {
+                        e.inT.onComplex = false;
+                        deleted = true;
+                    } else {
+                        if (e.invE != null)
+                            if (e.invE.inT.onComplex)
+                                continue;
+                        if (!edgeIsExposed(alpha, e)) {
+                            e.inT.onComplex = false;
+                            deleted = true;
+                        }
+                    }
+                }
+            }
+        } while (deleted);
+        markShape();
+    }
+
+    double computeAlphaArea() {
+        double area = 0;
+        Iterator tri = triangles.iterator();
+        while (tri.hasNext()) {
+            Triangle t = (Triangle) tri.next();
+            if (t.onComplex) {
+                Node p1 = t.anEdge.p1;
+                Node p2 = t.anEdge.p2;
+                Node p3 = t.anEdge.nextE.p2;
+                area += Math.abs(p1.x * p2.y + p1.y * p3.x + p2.x * p3.y
+                        - p3.x * p2.y - p3.y * p1.x - p1.y * p2.x);
+            }
+        }
+        return area / 2;
+    }
+
+    double computeHullArea() {
+        double area = 0.0;
+        Iterator tri = triangles.iterator();
+        while (tri.hasNext()) {
+            Triangle t = (Triangle) tri.next();
+            Node p1 = t.anEdge.p1;
+            Node p2 = t.anEdge.p2;
+            Node p3 = t.anEdge.nextE.p2;
+            area += Math.abs(p1.x * p2.y + p1.y * p3.x + p2.x * p3.y
+                    - p3.x * p2.y - p3.y * p1.x - p1.y * p2.x);
+        }
+        return area / 2.;
+    }
+
+    double computeAlphaPerimeter() {
+        double sum = 0;
+        Iterator it = edges.iterator();
+        while (it.hasNext()) {
+            Edge e = (Edge) it.next();
+            if (e.onShape) {
+                sum += e.weight;
+            }
+        }
+        return sum;
+    }
+
+    double computeHullPerimeter() {
+        double sum = 0;
+        Edge e = hullStart;
+        do {
+            sum += e.p1.distToNode(e.p2.x, e.p2.y);
+            e = e.nextH;
+        } while (!e.isEqual(hullStart));
+        return sum;
+    }
+
+    void clearVisits() {
+        Iterator it = nodes.iterator();
+        while (it.hasNext()) {
+            Node n = (Node) it.next();
+            n.isVisited = false;
+        }
+    }
+
+    private void updateMSTEdges(Edge addEdge, List mstEdges) {
+        mstEdges.add(addEdge);
+        addEdge.onMST = true;
+        addEdge.p1.mstDegree++;
+        addEdge.p2.mstDegree++;
+    }
+
+    private void updateMSTNodes(Node addNode, List mstNodes) {
+        mstNodes.add(addNode);
+        addNode.onMST = true;
+    }
+
+    private double[] computeEdgeLengths(Iterator graph, int n) {
+        double[] lengths = new double[n];
+        int i = 0;
+        while (graph.hasNext()) {
+            Edge e = (Edge) graph.next();
+            lengths[i] = e.weight;
+            i++;
+        }
+        return lengths;
+    }
+
+    private boolean pointsInCircle(Node n, double xc, double yc, double radius) {
+        double r = FUZZ * radius;
+        Iterator i = n.neighbors.iterator();
+        while (i.hasNext()) {
+            Edge e = (Edge) i.next();
+            Node no = e.otherNode(n);
+            double dist = no.distToNode(xc, yc);
+            if (dist < r)
+                return true;
+        }
+        return false;
+    }
+
+    private void markShape() {
+        Iterator i = edges.iterator();
+        while (i.hasNext()) {
+            Edge e = (Edge) i.next();
+            e.onShape = false;
+            if (e.inT.onComplex) {
+                if (e.invE == null) {
+                    e.onShape = true;
+                } else if (!e.invE.inT.onComplex)
+                    e.onShape = true;
+            }
+        }
+    }
+
+    private boolean edgeIsExposed(double alpha, Edge e) {
+        double x1 = e.p1.x;
+        double x2 = e.p2.x;
+        double y1 = e.p1.y;
+        double y2 = e.p2.y;
+        double xe = (x1 + x2) / 2;
+        double ye = (y1 + y2) / 2;
+        double d = Math.sqrt(alpha * alpha - e.weight * e.weight / 4);
+        double xt = d * (y2 - y1) / e.weight;
+        double yt = d * (x2 - x1) / e.weight;
+        double xc1 = xe + xt;
+        double yc1 = ye - yt;
+        double xc2 = xe - xt;
+        double yc2 = ye + yt;
+        boolean pointsInCircle1 = pointsInCircle(e.p1, xc1, yc1, alpha) ||
+                pointsInCircle(e.p2, xc1, yc1, alpha);
+        boolean pointsInCircle2 = pointsInCircle(e.p1, xc2, yc2, alpha) ||
+                pointsInCircle(e.p2, xc2, yc2, alpha);
+        return !(pointsInCircle1 && pointsInCircle2);
+    }
+
+    private void setNeighbors() {
+        Iterator it = edges.iterator();
+        while (it.hasNext()) {
+            Edge e = (Edge) it.next();
+            if (e.isNewEdge(e.p1))
+                e.p1.setNeighbor(e);
+            if (e.isNewEdge(e.p2))
+                e.p2.setNeighbor(e);
+        }
+    }
+
+    private void insert(int px, int py, double count, int id) {
+        int eid;
+        Node nd = new Node(px, py, count, id);
+        nodes.add(nd);
+        if (nodes.size() < 3) return;
+        if (nodes.size() == 3)    // create the first triangle
+        {
+            Node p1 = (Node) nodes.get(0);
+            Node p2 = (Node) nodes.get(1);
+            Node p3 = (Node) nodes.get(2);
+            Edge e1 = new Edge(p1, p2);
+            if (e1.onSide(p3) == 0) {
+                nodes.remove(nd);
+                return;
+            }
+            if (e1.onSide(p3) == -1)  // right side
+            {
+                p1 = (Node) nodes.get(1);
+                p2 = (Node) nodes.get(0);
+                e1.update(p1, p2);
+            }
+            Edge e2 = new Edge(p2, p3);
+            Edge e3 = new Edge(p3, p1);
+            e1.nextH = e2;
+            e2.nextH = e3;
+            e3.nextH = e1;
+            hullStart = e1;
+            triangles.add(new Triangle(edges, e1, e2, e3));
+            return;
+        }
+        //when the size of nodes is bigger than 3
+        actE = (Edge) edges.get(0);
+        if (actE.onSide(nd) == -1) {
+            if (actE.invE == null)
+                eid = -1;
+            else
+                eid = searchEdge(actE.invE, nd);
+        } else
+            eid = searchEdge(actE, nd);
+        if (eid == 0) {
+            nodes.remove(nd);
+            return;
+        }
+        if (eid > 0)
+            expandTri(actE, nd, eid);   // nd is inside or on a triangle
+        else
+            expandHull(nd);                // nd is outside convex hull
+    }
+
+    private void expandTri(Edge e, Node nd, int type) {
+        Edge e1 = e;
+        Edge e2 = e1.nextE;
+        Edge e3 = e2.nextE;
+        Node p1 = e1.p1;
+        Node p2 = e2.p1;
+        Node p3 = e3.p1;
+        if (type == 2) {   // nd is inside of the triangle
+            Edge e10 = new Edge(p1, nd);
+            Edge e20 = new Edge(p2, nd);
+            Edge e30 = new Edge(p3, nd);
+            e.inT.removeEdges(edges);
+            triangles.remove(e.inT);     // remove old triangle
+            Edge e100 = e10.makeSymm();
+            Edge e200 = e20.makeSymm();
+            Edge e300 = e30.makeSymm();
+            triangles.add(new Triangle(edges, e1, e20, e100));
+            triangles.add(new Triangle(edges, e2, e30, e200));
+            triangles.add(new Triangle(edges, e3, e10, e300));
+            swapTest(e1);   // swap test for the three new triangles
+            swapTest(e2);
+            swapTest(e3);
+        } else {          // nd is on the edge e
+            Edge e4 = e1.invE;
+            if (e4 == null || e4.inT == null) {          // one triangle involved
+                Edge e30 = new Edge(p3, nd);
+                Edge e02 = new Edge(nd, p2);
+                Edge e10 = new Edge(p1, nd);
+                Edge e03 = e30.makeSymm();
+//								shareEdges(e03,e30);
+                e10.asIndex();
+                e1.mostLeft().nextH = e10;
+                e10.nextH = e02;
+                e02.nextH = e1.nextH;
+                hullStart = e02;
+                triangles.remove(e1.inT);  // remove oldtriangle and add two new triangles
+                edges.remove(e1);
+                edges.add(e10);
+                edges.add(e02);
+                edges.add(e30);
+                edges.add(e03);
+                triangles.add(new Triangle(e2, e30, e02));
+                triangles.add(new Triangle(e3, e10, e03));
+                swapTest(e2);   // swap test for the two new triangles
+                swapTest(e3);
+                swapTest(e30);
+            } else {        // two triangle involved
+                Edge e5 = e4.nextE;
+                Edge e6 = e5.nextE;
+                Node p4 = e6.p1;
+                Edge e10 = new Edge(p1, nd);
+                Edge e20 = new Edge(p2, nd);
+                Edge e30 = new Edge(p3, nd);
+                Edge e40 = new Edge(p4, nd);
+                triangles.remove(e.inT);                   // remove oldtriangle
+                e.inT.removeEdges(edges);
+                triangles.remove(e4.inT);               // remove old triangle
+                e4.inT.removeEdges(edges);
+                e5.asIndex();   // because e, e4 removed, reset edge sortOrder of node p1 and p2
+                e2.asIndex();
+                triangles.add(new Triangle(edges, e2, e30, e20.makeSymm()));
+                triangles.add(new Triangle(edges, e3, e10, e30.makeSymm()));
+                triangles.add(new Triangle(edges, e5, e40, e10.makeSymm()));
+                triangles.add(new Triangle(edges, e6, e20, e40.makeSymm()));
+                swapTest(e2);   // swap test for the three new triangles
+                swapTest(e3);
+                swapTest(e5);
+                swapTest(e6);
+                swapTest(e10);
+                swapTest(e20);
+                swapTest(e30);
+                swapTest(e40);
+            }
+        }
+    }
+
+    private void expandHull(Node nd) {
+        Edge e1, e2, e3 = null, enext;
+        Edge e = hullStart;
+        Edge comedge = null, lastbe = null;
+        while (true) {
+            enext = e.nextH;
+            if (e.onSide(nd) == -1) {  // right side
+                if (lastbe != null) {
+                    e1 = e.makeSymm();
+                    e2 = new Edge(e.p1, nd);
+                    e3 = new Edge(nd, e.p2);
+                    if (comedge == null) {
+                        hullStart = lastbe;
+                        lastbe.nextH = e2;
+                        lastbe = e2;
+                    } else
+                        comedge.linkSymm(e2);
+
+
+                    comedge = e3;
+                    triangles.add(new Triangle(edges, e1, e2, e3));
+                    swapTest(e);
+                }
+            } else {
+                if (comedge != null) break;
+                lastbe = e;
+            }
+            e = enext;
+        }
+
+        lastbe.nextH = e3;
+        e3.nextH = e;
+    }
+
+    private int searchEdge(Edge e, Node nd) {
+        int f2, f3;
+        Edge e0 = null;
+        if ((f2 = e.nextE.onSide(nd)) == -1) {
+            if (e.nextE.invE != null)
+                return searchEdge(e.nextE.invE, nd);
+            else {
+                actE = e;
+                return -1;
+            }
+        }
+        if (f2 == 0) e0 = e.nextE;
+        Edge ee = e.nextE;
+        if ((f3 = ee.nextE.onSide(nd)) == -1) {
+            if (ee.nextE.invE != null)
+                return searchEdge(ee.nextE.invE, nd);
+            else {
+                actE = ee.nextE;
+                return -1;
+            }
+        }
+        if (f3 == 0) e0 = ee.nextE;
+        if (e.onSide(nd) == 0) e0 = e;
+        if (e0 != null) {
+            actE = e0;
+            if (e0.nextE.onSide(nd) == 0) {
+                actE = e0.nextE;
+                return 0;
+            }
+            if (e0.nextE.nextE.onSide(nd) == 0) return 0;
+            return 1;
+        }
+        actE = ee;
+        return 2;
+    }
+
+    private void swapTest(Edge e11) {
+        Edge e21 = e11.invE;
+        if (e21 == null || e21.inT == null) return;
+        Edge e12 = e11.nextE;
+        Edge e13 = e12.nextE;
+        Edge e22 = e21.nextE;
+        Edge e23 = e22.nextE;
+        if (e11.inT.inCircle(e22.p2) || e21.inT.inCircle(e12.p2)) {
+            e11.update(e22.p2, e12.p2);
+            e21.update(e12.p2, e22.p2);
+            e11.linkSymm(e21);
+            e13.inT.update(e13, e22, e11);
+            e23.inT.update(e23, e12, e21);
+            e12.asIndex();
+            e22.asIndex();
+            swapTest(e12);
+            swapTest(e22);
+            swapTest(e13);
+            swapTest(e23);
+        }
+    }
+
+    private void markHull() {
+        Edge e = hullStart;
+        if (e != null)
+            do {
+                e.onHull = true;
+                e.p1.onHull = true;
+                e.p2.onHull = true;
+                e = e.nextH;
+            } while (!e.isEqual(hullStart));
+    }
+}
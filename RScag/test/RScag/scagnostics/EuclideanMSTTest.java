@@ -0,0 +1,100 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+/*
+ * The kd-tree MST must flag the same outlying plots as the Prim loop it replaces above PRIM_MAX_POINTS.
+ */
+class EuclideanMSTTest {
+
+    // the plots of one kind: uniform, on a coarse lattice with duplicates, in tight clusters or gaussian
+    private static double[][] plots(Random random, int n, int kind) {
+        double[][] p = new double[n][Scagnostics.getNumScagnostics()];
+        for (int i = 0; i < n; i++) {
+            for (int j = 0; j < p[i].length; j++) {
+                switch (kind) {
+                    case 0: p[i][j] = random.nextDouble(); break;
+                    case 1: p[i][j] = Math.round(random.nextDouble() * 4) / 4.0; break;
+                    case 2: p[i][j] = (i % 5) * 0.2 + random.nextGaussian() * 0.01; break;
+                    default: p[i][j] = random.nextGaussian() * (j + 1);
+                }
+            }
+        }
+        if (kind == 1)
+            for (int i = 0; i < n / 10; i++) p[random.nextInt(n)] = p[random.nextInt(n)].clone();
+        return p;
+    }
+
+    @Test
+    void outliersMatchPrim() {
+        Random random = new Random(4);
+        for (int t = 0; t < 24; t++) {
+            double[][] p = plots(random, 50 + random.nextInt(1500), t % 4);
+            // below PRIM_MAX_POINTS this is the Prim loop
+            boolean[] prim = Scagnostics.computeScagnosticsOutliers(p);
+            EuclideanMST mst = new EuclideanMST(p);
+            mst.setThreads(1 + t % 3);
+            assertArrayEquals(prim, mst.computeOutliers(), "plots " + t + " of kind " + t % 4);
+        }
+    }
+
+    @Test
+    void squaredLengthsMatchPrim() {
+        double[][] p = plots(new Random(7), 800, 0);
+        double[] lengths = new EuclideanMST(p).getLengths().clone();
+        double[] prim = primLengths(p);
+        Arrays.sort(lengths);
+        Arrays.sort(prim);
+        assertArrayEquals(prim, lengths, 1e-12);
+    }
+
+    // squared edge lengths of the MST by the quadratic Prim loop
+    private static double[] primLengths(double[][] p) {
+        int n = p.length;
+        double[] best = new double[n];
+        boolean[] in = new boolean[n];
+        Arrays.fill(best, Double.POSITIVE_INFINITY);
+        best[0] = 0;
+        double[] lengths = new double[n - 1];
+        for (int k = 0; k < n; k++) {
+            int u = -1;
+            for (int i = 0; i < n; i++)
+                if (!in[i] && (u < 0 || best[i] < best[u])) u = i;
+            in[u] = true;
+            if (k > 0) lengths[k - 1] = best[u];
+            for (int i = 0; i < n; i++) {
+                if (in[i]) continue;
+                double d = 0;
+                for (int j = 0; j < p[i].length; j++) d += (p[i][j] - p[u][j]) * (p[i][j] - p[u][j]);
+                best[i] = Math.min(best[i], d);
+            }
+        }
+        return lengths;
+    }
+}
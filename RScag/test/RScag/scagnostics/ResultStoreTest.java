@@ -0,0 +1,173 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/*
+ * Records written to a ResultStore read back the same after it is reopened, and a BatchRunner that resumes
+ * an interrupted store ends with the records of an uninterrupted run.
+ */
+class ResultStoreTest {
+    private static final String[] LABELS = {"V1", "V2", "V3", "V4", "V5", "V6"};
+
+    @TempDir
+    File dir;
+
+    @Test
+    void roundTrip() throws IOException {
+        File file = new File(dir, "pairs.rscag");
+        ResultStore store = ResultStore.create(file, LABELS, 20, 1000, Variant.RSCAG);
+        double[] result = new double[Scagnostics.getNumScagnostics()];
+        for (int m = 0; m < result.length; m++)
+            result[m] = m / 8.0;
+        store.put(1, 0, result);
+        store.put(ResultStore.pairIndex(2, 1), null);
+        store.putPartial(ResultStore.pairIndex(3, 2), result, 13);
+        store.putPartial(ResultStore.pairIndex(4, 0), null, 13);
+        store.close();
+
+        store = ResultStore.open(file, false);
+        assertArrayEquals(LABELS, store.getLabels());
+        assertEquals(20, store.getNumBins());
+        assertEquals(1000, store.getMaxBins());
+        assertEquals(Variant.RSCAG, store.getVariant());
+        assertEquals(15, store.getNumPairs());
+        assertEquals(ResultStore.COMPUTED, store.getStatus(ResultStore.pairIndex(1, 0)));
+        assertArrayEquals(result, store.get(1, 0), 0);
+        assertEquals(ResultStore.DEGENERATE, store.getStatus(ResultStore.pairIndex(2, 1)));
+        assertNull(store.get(2, 1));
+        assertEquals(ResultStore.PARTIAL, store.getStatus(ResultStore.pairIndex(3, 2)));
+        assertEquals(13, store.getNumBins(ResultStore.pairIndex(3, 2)));
+        assertArrayEquals(result, store.getPartial(ResultStore.pairIndex(3, 2)), 0);
+        assertEquals(ResultStore.PARTIAL, store.getStatus(ResultStore.pairIndex(4, 0)));
+        assertEquals(0, store.getNumBins(ResultStore.pairIndex(4, 0)));
+        assertEquals(ResultStore.EMPTY, store.getStatus(ResultStore.pairIndex(5, 4)));
+        store.close();
+    }
+
+    @Test
+    void resumeRefusesOtherSettings() throws IOException {
+        File file = new File(dir, "pairs.rscag");
+        ResultStore store = ResultStore.create(file, LABELS, 20, 1000, Variant.RSCAG);
+        store.put(1, 0, new double[Scagnostics.getNumScagnostics()]);
+        store.close();
+
+        assertNull(ResultStore.resume(new File(dir, "none.rscag"), LABELS.length, 20, 1000, Variant.RSCAG));
+        assertTrue(refused(file, LABELS.length, 50, 1000, Variant.RSCAG).contains("-bins 20, not 50"));
+        assertTrue(refused(file, LABELS.length + 1, 20, 1000, Variant.RSCAG).contains("6 columns, not 7"));
+        assertTrue(refused(file, LABELS.length, 20, 999, Variant.RSCAG).contains("-maxBins 1000, not 999"));
+        assertTrue(refused(file, LABELS.length, 20, 1000, Variant.SCAG_05).contains("-variant RScag, not Scag-05"));
+
+        store = ResultStore.resume(file, LABELS.length, 20, 1000, Variant.RSCAG);
+        assertEquals(ResultStore.COMPUTED, store.getStatus(ResultStore.pairIndex(1, 0)));
+        store.close();
+    }
+
+    @Test
+    void pairIndices() {
+        long k = 0;
+        for (int i = 1; i < 50; i++) {
+            for (int j = 0; j < i; j++, k++) {
+                assertEquals(k, ResultStore.pairIndex(i, j));
+                assertArrayEquals(new int[]{i, j}, ResultStore.pair(k));
+            }
+        }
+        assertEquals(k, ResultStore.numPairs(50));
+    }
+
+    @Test
+    void resumeMatchesOneRun() throws IOException {
+        double[][] columns = columns(new Random(11), LABELS.length, 400);
+
+        File whole = new File(dir, "whole.rscag");
+        BatchRunner runner = runner(columns);
+        ResultStore expected = runner.create(whole, LABELS);
+        assertEquals(expected.getNumPairs(), runner.run(expected));
+        expected.close();
+
+        // interrupted after the pairs of the first three columns
+        File resumed = new File(dir, "resumed.rscag");
+        runner = runner(columns);
+        ResultStore store = runner.create(resumed, LABELS);
+        long first = runner.run(store, 0, 3, 0, 3);
+        assertEquals(3, first);
+        store.close();
+
+        store = ResultStore.open(resumed, true);
+        assertEquals(store.getNumPairs() - first, runner(columns).run(store));
+        assertEquals(0, runner(columns).run(store));
+        store.close();
+
+        expected = ResultStore.open(whole, false);
+        store = ResultStore.open(resumed, false);
+        for (long k = 0; k < store.getNumPairs(); k++) {
+            assertEquals(expected.getStatus(k), store.getStatus(k));
+            assertEquals(ResultStore.COMPUTED, store.getStatus(k));
+            assertArrayEquals(expected.get(k), store.get(k), 0, "pair " + k);
+        }
+        expected.close();
+        store.close();
+    }
+
+    // the message of resume refusing file
+    private static String refused(File file, int nDim, int numBins, int maxBins, Variant variant) {
+        try {
+            ResultStore.resume(file, nDim, numBins, maxBins, variant).close();
+        } catch (IOException e) {
+            return e.getMessage();
+        }
+        return fail(file + " was resumed");
+    }
+
+    // a fixed seed through the cache, so the crowded bins of both runs are subsampled alike
+    private static BatchRunner runner(double[][] columns) {
+        double[][] copy = new double[columns.length][];
+        for (int c = 0; c < columns.length; c++)
+            copy[c] = columns[c].clone();
+        BatchRunner runner = new BatchRunner(copy, 20, 1000, Variant.RSCAG);
+        runner.setThreads(2);
+        runner.setCache(new ScagnosticsCache(0));
+        return runner;
+    }
+
+    private static double[][] columns(Random random, int nDim, int rows) {
+        double[][] columns = new double[nDim][rows];
+        for (int r = 0; r < rows; r++) {
+            double t = random.nextDouble();
+            for (int c = 0; c < nDim; c++)
+                columns[c][r] = c % 2 == 0 ? t * c + random.nextGaussian() * 0.1 : random.nextDouble();
+        }
+        return columns;
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.scagnostics;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/*
+ * The rows of a StreamingScagnostics table give the same measures whether they are appended in one batch
+ * or in many, with a refresh after each.
+ */
+class StreamingScagnosticsTest {
+    private static final int DIM = 4, ROWS = 3000;
+
+    @Test
+    void boundedColumns() {
+        double[][] rows = rows(new Random(3));
+        compare(rows, new int[]{ROWS}, new int[]{1000, 1, 499, 1500}, true, 0);
+    }
+
+    @Test
+    void widenedColumns() {
+        double[][] rows = rows(new Random(5));
+        compare(rows, new int[]{ROWS}, new int[]{7, 300, 1693, 1000}, false, 0);
+    }
+
+    @Test
+    void slidingWindow() {
+        double[][] rows = rows(new Random(9));
+        compare(rows, new int[]{1200, 1800}, new int[]{500, 250, 1250, 1, 999}, true, 1500);
+    }
+
+    private static void compare(double[][] rows, int[] batches, int[] otherBatches, boolean bounded, int window) {
+        StreamingScagnostics a = table(bounded, window);
+        StreamingScagnostics b = table(bounded, window);
+        append(a, rows, batches);
+        append(b, rows, otherBatches);
+        assertEquals(a.getNumRows(), b.getNumRows());
+        for (int i = 1; i < DIM; i++) {
+            for (int j = 0; j < i; j++) {
+                assertNotNull(a.get(i, j));
+                assertEquals(a.getNumBins(i, j), b.getNumBins(i, j));
+                assertArrayEquals(a.get(i, j), b.get(i, j), 0, "pair " + i + ", " + j);
+            }
+        }
+    }
+
+    private static StreamingScagnostics table(boolean bounded, int window) {
+        StreamingScagnostics table = new StreamingScagnostics(DIM, 20, 1000);
+        if (bounded)
+            for (int c = 0; c < DIM; c++) table.setBounds(c, -4, 4);
+        if (window > 0)
+            table.setWindow(window);
+        table.trackAll();
+        return table;
+    }
+
+    // appends the rows in batches of the given sizes, refreshing after each
+    private static void append(StreamingScagnostics table, double[][] rows, int[] batches) {
+        int from = 0;
+        for (int size : batches) {
+            double[][] batch = new double[DIM][size];
+            for (int c = 0; c < DIM; c++)
+                System.arraycopy(rows[c], from, batch[c], 0, size);
+            table.append(batch);
+            table.refresh();
+            from += size;
+        }
+    }
+
+    // column c of row r at rows[c][r]: two dependent columns, a clustered one and noise
+    private static double[][] rows(Random random) {
+        double[][] rows = new double[DIM][ROWS];
+        for (int r = 0; r < ROWS; r++) {
+            double t = random.nextGaussian();
+            rows[0][r] = t;
+            rows[1][r] = t * t - 1 + random.nextGaussian() * 0.2;
+            rows[2][r] = (r % 3 - 1) * 2 + random.nextGaussian() * 0.3;
+            rows[3][r] = random.nextGaussian();
+        }
+        return rows;
+    }
+}
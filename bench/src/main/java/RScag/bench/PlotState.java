@@ -0,0 +1,88 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.bench;
+
+import RScag.scagnostics.CapturedPlot;
+import RScag.scagnostics.PlotCapture;
+import RScag.scagnostics.PlotGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+@State(Scope.Thread)
+public class PlotState {
+    @Param({"RScag", "Scag-05", "Scag-06"})
+    public String variant;
+
+    // any PlotGenerator family, or plot k of a PlotCapture file as file.cap:k; size, numBins and maxBins
+    // are then those of the -p options, PlotReplay prints the captured ones
+    @Param({"binormal", "clustered", "funnel", "stripe"})
+    public String shape;
+
+    @Param({"100", "1000", "10000"})
+    public int size;
+
+    @Param({"50"})
+    public int numBins;
+
+    @Param({"1000"})
+    public int maxBins;
+
+    public Variant v;
+    public double[] x, y;
+
+    private PrintStream out;
+
+    @Setup(Level.Trial)
+    public void generate() throws IOException {
+        v = Variant.forLabel(variant);
+        if (shape.contains(".cap")) {
+            int colon = shape.lastIndexOf(':');
+            boolean indexed = colon > shape.lastIndexOf(".cap");
+            String file = indexed ? shape.substring(0, colon) : shape;
+            int k = indexed ? Integer.parseInt(shape.substring(colon + 1)) : 0;
+            CapturedPlot plot = PlotCapture.read(new File(file)).get(k);
+            x = plot.getX();
+            y = plot.getY();
+        } else {
+            double[][] points = new PlotGenerator(1L).generate(shape, size);
+            x = points[0];
+            y = points[1];
+        }
+        // RScag prints progress messages from inside compute()
+        out = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    @TearDown(Level.Trial)
+    public void restoreOut() {
+        System.setOut(out);
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.bench;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/*
+ * Drives one Scagnostics instance of a variant through reflection so that the individual stages
+ * (binning, triangulation, MST, outlier peeling, runt search) can be timed separately.
+ * Reflection costs nanoseconds per call, the stages take micro- to milliseconds.
+ */
+public class ScagnosticsHandle {
+    private final Variant variant;
+    private final Object scagnostics;
+    private final Stages stages;
+
+    private ScagnosticsHandle(Variant variant, Object scagnostics) {
+        this.variant = variant;
+        this.scagnostics = scagnostics;
+        this.stages = Stages.of(variant);
+    }
+
+    public static ScagnosticsHandle create(Variant variant, double[] x, double[] y, int numBins, int maxBins) {
+        Stages s = Stages.of(variant);
+        try {
+            return new ScagnosticsHandle(variant, s.constructor.newInstance(x, y, numBins, maxBins));
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e);
+        }
+    }
+
+    public static Object bin(Variant variant, double[] x, double[] y, int numBins, int maxBins) {
+        Stages s = Stages.of(variant);
+        try {
+            Object binner = s.binnerConstructor.newInstance(maxBins);
+            if (variant.isRobust())
+                return s.binHex.invoke(binner, x, y, numBins, 3);
+            return s.binHex.invoke(binner, x, y, numBins);
+        } catch (InstantiationException | IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e);
+        }
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public double[] compute() {
+        return (double[]) invoke(stages.compute);
+    }
+
+    // copies the binned coordinates into the instance the way compute() does before peeling
+    public void loadBinnedData() {
+        Object bdata = get(stages.bdata);
+        try {
+            set(stages.px, stages.getXData.invoke(bdata));
+            set(stages.py, stages.getYData.invoke(bdata));
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e);
+        }
+    }
+
+    public void findOutliers() {
+        invoke(stages.findOutliers, get(stages.bdata));
+    }
+
+    // puts every binned point back into the triangulation
+    public void resetOutliers() {
+        boolean[] isOutlier = (boolean[]) get(stages.isOutlier);
+        if (isOutlier != null)
+            Arrays.fill(isOutlier, false);
+    }
+
+    public void triangulate() {
+        invoke(stages.clear);
+        invoke(stages.computeDT, get(stages.px), get(stages.py));
+    }
+
+    public void spanningTree() {
+        invoke(stages.computeMST);
+    }
+
+    public Object runts() {
+        return invoke(stages.runts);
+    }
+
+    private Object get(Field f) {
+        try {
+            return f.get(scagnostics);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void set(Field f, Object value) {
+        try {
+            f.set(scagnostics, value);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object invoke(Method m, Object... args) {
+        try {
+            return m.invoke(scagnostics, args);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e);
+        }
+    }
+
+    private static RuntimeException rethrow(InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException)
+            return (RuntimeException) cause;
+        if (cause instanceof Error)
+            throw (Error) cause;
+        return new IllegalStateException(cause);
+    }
+
+    private static class Stages {
+        private static final Stages[] cache = new Stages[Variant.values().length];
+
+        Constructor<?> constructor;
+        Constructor<?> binnerConstructor;
+        Method binHex;
+        Method compute;
+        Method clear;
+        Method computeDT;
+        Method computeMST;
+        Method findOutliers;
+        Method runts;
+        Method getXData;
+        Method getYData;
+        Field bdata;
+        Field px;
+        Field py;
+        Field isOutlier;
+
+        static synchronized Stages of(Variant variant) {
+            Stages s = cache[variant.ordinal()];
+            if (s == null) {
+                s = new Stages(variant);
+                cache[variant.ordinal()] = s;
+            }
+            return s;
+        }
+
+        private Stages(Variant variant) {
+            Class<?> scag = VariantLoader.loadClass(variant, "Scagnostics");
+            Class<?> binner = VariantLoader.loadClass(variant, "Binner");
+            Class<?> binned = VariantLoader.loadClass(variant, "BinnedData");
+            try {
+                constructor = scag.getConstructor(double[].class, double[].class, int.class, int.class);
+                binnerConstructor = binner.getConstructor(int.class);
+                if (variant.isRobust())
+                    binHex = binner.getMethod("binHex", double[].class, double[].class, int.class, int.class);
+                else
+                    binHex = binner.getMethod("binHex", double[].class, double[].class, int.class);
+                compute = scag.getMethod("compute");
+                clear = declared(scag, "clear");
+                computeDT = declared(scag, "computeDT", int[].class, int[].class);
+                computeMST = declared(scag, "computeMST");
+                findOutliers = declared(scag, "findOutliers", binned);
+                // RScag searches runts over the whole MST, the classic variants inside computeClusterMeasure
+                if (variant.isRobust())
+                    runts = declared(scag, "getRuntsAndMaxEdgeInOneClu");
+                else
+                    runts = declared(scag, "computeClusterMeasure");
+                getXData = declared(binned, "getXData");
+                getYData = declared(binned, "getYData");
+                bdata = field(scag, "bdata");
+                px = field(scag, "px");
+                py = field(scag, "py");
+                isOutlier = field(scag, "isOutlier");
+            } catch (NoSuchMethodException | NoSuchFieldException e) {
+                throw new IllegalStateException("Unexpected Scagnostics layout in " + variant.getLabel(), e);
+            }
+        }
+
+        private static Method declared(Class<?> c, String name, Class<?>... types) throws NoSuchMethodException {
+            Method m = c.getDeclaredMethod(name, types);
+            m.setAccessible(true);
+            return m;
+        }
+
+        private static Field field(Class<?> c, String name) throws NoSuchFieldException {
+            Field f = c.getDeclaredField(name);
+            f.setAccessible(true);
+            return f;
+        }
+    }
+}
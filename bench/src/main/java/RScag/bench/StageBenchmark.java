@@ -0,0 +1,109 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.bench;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Times the stages of Scagnostics.compute one by one. Stages that work on a triangulation or an MST get
+ * a freshly built one per invocation, since they mutate the edge and node flags they read.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StageBenchmark {
+
+    // a fully computed instance whose binned points are all back in play
+    public static class Prepared extends PlotState {
+        public ScagnosticsHandle handle;
+
+        @Setup(Level.Trial)
+        public void prepare() {
+            handle = ScagnosticsHandle.create(v, x, y, numBins, maxBins);
+            handle.compute();
+            handle.resetOutliers();
+        }
+    }
+
+    public static class Triangulated extends Prepared {
+        @Setup(Level.Invocation)
+        public void triangulate() {
+            handle.triangulate();
+        }
+    }
+
+    public static class Spanned extends Prepared {
+        @Setup(Level.Invocation)
+        public void span() {
+            handle.triangulate();
+            handle.spanningTree();
+        }
+    }
+
+    // binned but not yet peeled
+    public static class Binned extends PlotState {
+        public ScagnosticsHandle handle;
+
+        @Setup(Level.Invocation)
+        public void bin() {
+            handle = ScagnosticsHandle.create(v, x, y, numBins, maxBins);
+            handle.loadBinnedData();
+        }
+    }
+
+    @Benchmark
+    public Object binning(PlotState s) {
+        return ScagnosticsHandle.bin(s.v, s.x, s.y, s.numBins, s.maxBins);
+    }
+
+    @Benchmark
+    public void triangulation(Prepared s) {
+        s.handle.triangulate();
+    }
+
+    @Benchmark
+    public void spanningTree(Triangulated s) {
+        s.handle.spanningTree();
+    }
+
+    @Benchmark
+    public Object runtSearch(Spanned s) {
+        return s.handle.runts();
+    }
+
+    @Benchmark
+    public void outlierPeeling(Binned s) {
+        s.handle.findOutliers();
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.bench;
+
+public enum Variant {
+    RSCAG("RScag", "rscag.jar", "RScag.scagnostics."),
+    SCAG_05("Scag-05", "scag-05.jar", "scagnostics."),
+    SCAG_06("Scag-06", "scag-06.jar", "scagnostics.");
+
+    private final String label;
+    private final String jarName;
+    private final String packagePrefix;
+
+    Variant(String label, String jarName, String packagePrefix) {
+        this.label = label;
+        this.jarName = jarName;
+        this.packagePrefix = packagePrefix;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    String getJarName() {
+        return jarName;
+    }
+
+    String className(String simpleName) {
+        return packagePrefix + simpleName;
+    }
+
+    // RScag subsamples crowded bins and takes an extra scale argument in Binner.binHex
+    boolean isRobust() {
+        return this == RSCAG;
+    }
+
+    public static Variant forLabel(String label) {
+        for (Variant v : values()) {
+            if (v.label.equalsIgnoreCase(label))
+                return v;
+        }
+        throw new IllegalArgumentException("Unknown variant: " + label);
+    }
+}
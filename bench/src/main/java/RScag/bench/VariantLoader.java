@@ -0,0 +1,76 @@
+/*
+ * Scagnostics
+ *
+ * Leland Wilkinson and Anushka Anand (University of Illinois at Chicago)
+ * This program accompanies the following paper:
+
+ * Wilkinson L., Anand, A., and Grossman, R. (2006). High-Dimensional visual analytics:
+ *   Interactive exploration guided by pairwise views of point distributions.
+ *   IEEE Transactions on Visualization and Computer Graphics, November/December 2006 (Vol. 12, No. 6) pp. 1363-1372.
+ *
+ * Permission to use, copy, modify, and distribute this software for any
+ * purpose without fee is hereby granted, provided that this entire notice
+ * is included in all copies of any software which is or includes a copy
+ * or modification of this software.
+ * Supporting documentation must also include a citation of
+ * the abovementioned article.
+ * THIS SOFTWARE IS BEING PROVIDED "AS IS", WITHOUT ANY EXPRESS OR IMPLIED
+ * WARRANTY.  IN PARTICULAR, THE AUTHORS MAKE NO
+ * REPRESENTATION OR WARRANTY OF ANY KIND CONCERNING THE MERCHANTABILITY
+ * OF THIS SOFTWARE OR ITS FITNESS FOR ANY PARTICULAR PURPOSE.
+ */
+package RScag.bench;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.EnumMap;
+import java.util.Map;
+
+/*
+ * Loads each scagnostics variant from its own jar in an isolated class loader. The jars are copied into
+ * target/variants by the build; -Drscag.variants=<dir> points somewhere else.
+ */
+public class VariantLoader {
+    private static final Map<Variant, ClassLoader> loaders = new EnumMap<>(Variant.class);
+
+    private VariantLoader() {}
+
+    public static synchronized ClassLoader getLoader(Variant variant) {
+        ClassLoader loader = loaders.get(variant);
+        if (loader == null) {
+            File jar = new File(getVariantsDirectory(), variant.getJarName());
+            if (!jar.isFile())
+                throw new IllegalStateException("Missing variant jar " + jar + ", run mvn package first");
+            try {
+                loader = new URLClassLoader(new URL[]{jar.toURI().toURL()}, ClassLoader.getPlatformClassLoader());
+            } catch (MalformedURLException e) {
+                throw new IllegalStateException(e);
+            }
+            loaders.put(variant, loader);
+        }
+        return loader;
+    }
+
+    public static Class<?> loadClass(Variant variant, String simpleName) {
+        try {
+            return getLoader(variant).loadClass(variant.className(simpleName));
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static File getVariantsDirectory() {
+        String dir = System.getProperty("rscag.variants");
+        if (dir != null)
+            return new File(dir);
+        try {
+            File codeSource = new File(VariantLoader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+            return new File(codeSource.getParentFile(), "variants");
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}